@@ -0,0 +1,41 @@
+package search;
+
+import datastructures.concrete.DoubleLinkedList;
+import datastructures.interfaces.IList;
+import search.analyzers.BooleanQuery;
+import search.models.Result;
+
+/**
+ * Anything the website can send search queries to: a single index, an index split into
+ * in-process shards, or shards running on other machines.
+ */
+public interface ISearchEngine {
+    /**
+     * Returns the k most relevant pages for the given query that also contain every one
+     * of the given phrases, most relevant first. Each phrase is a list of words that must
+     * appear next to each other, in order.
+     */
+    IList<Result> getTopKResults(IList<String> query, IList<IList<String>> phrases, int k);
+
+    /**
+     * Returns the k most relevant pages matching the given boolean query, most relevant
+     * first.
+     */
+    IList<Result> getTopKResults(BooleanQuery query, int k);
+
+    /**
+     * Returns up to 'limit' ways of finishing the given partially-typed query, most
+     * likely first. Engines that can't autocomplete return an empty list.
+     */
+    default IList<String> suggest(String query, int limit) {
+        return new DoubleLinkedList<>();
+    }
+
+    /**
+     * Returns the query with misspelled words corrected, or null if there is nothing to
+     * correct. Engines that can't correct spelling always return null.
+     */
+    default IList<String> correctSpelling(IList<String> query) {
+        return null;
+    }
+}
@@ -0,0 +1,203 @@
+package search;
+
+import datastructures.concrete.KVPair;
+import datastructures.concrete.dictionaries.ChainedHashDictionary;
+import datastructures.interfaces.IDictionary;
+import search.analyzers.Bm25Analyzer;
+import search.analyzers.ImpactIndex;
+import search.analyzers.InvertedIndex;
+import search.analyzers.PageRankAnalyzer;
+import search.analyzers.PositionalIndex;
+import search.analyzers.SpellingCorrector;
+import search.analyzers.SuggestionTrie;
+import search.analyzers.TfIdfAnalyzer;
+import search.analyzers.TitleIndex;
+import search.misc.CorpusManifest;
+import search.misc.SnapshotIO;
+import search.models.WebpageSummary;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * A fully built index, as stored on disk between runs of the search engine.
+ *
+ * A snapshot file starts with a magic number and a format version, followed by the
+ * manifest of the corpus it was built from and a description of the settings used to
+ * build it. If any of these don't match, the snapshot is considered stale and the
+ * index must be rebuilt from the original webpages.
+ *
+ * The inverted index, its impacts, the title index, the autocomplete trie, the
+ * spelling corrector and the BM25 term frequencies are not stored: it is cheaper to
+ * rebuild them from the TF-IDF vectors, page ranks, positions and page summaries than
+ * to read them back from disk.
+ */
+public class IndexSnapshot {
+    private static final int MAGIC = 0x4E4F4F44;  // "NOOD"
+    private static final int VERSION = 3;
+
+    private final IDictionary<URI, WebpageSummary> pages;
+    private final InvertedIndex invertedIndex;
+    private final TfIdfAnalyzer tfIdfAnalyzer;
+    private final PageRankAnalyzer pageRankAnalyzer;
+    private final PositionalIndex positionalIndex;
+    private final ImpactIndex impactIndex;
+    private final SuggestionTrie suggestionTrie;
+    private final SpellingCorrector spellingCorrector;
+    private final TitleIndex titleIndex;
+
+    // Only built the first time it is needed, since most engines rank by TF-IDF.
+    private volatile Bm25Analyzer bm25Analyzer;
+
+    public IndexSnapshot(IDictionary<URI, WebpageSummary> pages,
+                         InvertedIndex invertedIndex,
+                         TfIdfAnalyzer tfIdfAnalyzer,
+                         PageRankAnalyzer pageRankAnalyzer,
+                         PositionalIndex positionalIndex) {
+        this.pages = pages;
+        this.invertedIndex = invertedIndex;
+        this.tfIdfAnalyzer = tfIdfAnalyzer;
+        this.pageRankAnalyzer = pageRankAnalyzer;
+        this.positionalIndex = positionalIndex;
+        this.impactIndex = new ImpactIndex(invertedIndex, tfIdfAnalyzer, pageRankAnalyzer);
+        this.suggestionTrie = new SuggestionTrie(tfIdfAnalyzer.getTerms(), invertedIndex);
+        this.spellingCorrector = new SpellingCorrector(tfIdfAnalyzer.getTerms(), invertedIndex);
+        this.titleIndex = new TitleIndex(pages, invertedIndex, tfIdfAnalyzer);
+
+        // Encode every page's JSON now, so the search API only ever copies bytes.
+        for (KVPair<URI, WebpageSummary> pair : pages) {
+            pair.getValue().toJson();
+        }
+    }
+
+    public IDictionary<URI, WebpageSummary> getPages() {
+        return this.pages;
+    }
+
+    public InvertedIndex getInvertedIndex() {
+        return this.invertedIndex;
+    }
+
+    public TfIdfAnalyzer getTfIdfAnalyzer() {
+        return this.tfIdfAnalyzer;
+    }
+
+    public PageRankAnalyzer getPageRankAnalyzer() {
+        return this.pageRankAnalyzer;
+    }
+
+    public PositionalIndex getPositionalIndex() {
+        return this.positionalIndex;
+    }
+
+    public ImpactIndex getImpactIndex() {
+        return this.impactIndex;
+    }
+
+    public SuggestionTrie getSuggestionTrie() {
+        return this.suggestionTrie;
+    }
+
+    public SpellingCorrector getSpellingCorrector() {
+        return this.spellingCorrector;
+    }
+
+    public TitleIndex getTitleIndex() {
+        return this.titleIndex;
+    }
+
+    public Bm25Analyzer getBm25Analyzer() {
+        Bm25Analyzer analyzer = this.bm25Analyzer;
+        if (analyzer == null) {
+            synchronized (this) {
+                analyzer = this.bm25Analyzer;
+                if (analyzer == null) {
+                    analyzer = new Bm25Analyzer(this.invertedIndex, this.positionalIndex, this.tfIdfAnalyzer);
+                    this.bm25Analyzer = analyzer;
+                }
+            }
+        }
+        return analyzer;
+    }
+
+    /**
+     * Writes this snapshot to the given file.
+     *
+     * The snapshot is first written to a temporary file which then replaces the
+     * original, so a crash part-way through never leaves behind a truncated snapshot.
+     *
+     * @param manifest       The manifest of the corpus this index was built from.
+     * @param configuration  A description of any settings that affect the index.
+     */
+    public void save(Path file, CorpusManifest manifest, String configuration) throws IOException {
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(Files.newOutputStream(temp)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            manifest.save(out);
+            SnapshotIO.writeString(out, configuration);
+
+            out.writeInt(this.pages.size());
+            for (KVPair<URI, WebpageSummary> pair : this.pages) {
+                WebpageSummary summary = pair.getValue();
+                SnapshotIO.writeUri(out, summary.getUri());
+                SnapshotIO.writeString(out, summary.getTitle());
+                SnapshotIO.writeString(out, summary.getBlurb());
+            }
+            this.tfIdfAnalyzer.save(out);
+            this.pageRankAnalyzer.save(out);
+            this.positionalIndex.save(out);
+        }
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Loads the snapshot stored in the given file.
+     *
+     * Returns null if the file does not exist, was written by a different version of
+     * this class, or was built from a different corpus or configuration.
+     *
+     * @throws IOException  if the file exists but could not be read, or is corrupt
+     */
+    public static IndexSnapshot load(Path file, CorpusManifest manifest, String configuration)
+            throws IOException {
+        if (!Files.isRegularFile(file)) {
+            return null;
+        }
+        try (DataInputStream in = new DataInputStream(
+                new BufferedInputStream(Files.newInputStream(file)))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                return null;
+            }
+            if (!CorpusManifest.load(in).equals(manifest)
+                    || !SnapshotIO.readString(in).equals(configuration)) {
+                return null;
+            }
+
+            IDictionary<URI, WebpageSummary> pages = new ChainedHashDictionary<>();
+            int numPages = SnapshotIO.readLength(in);
+            for (int i = 0; i < numPages; i++) {
+                URI uri = SnapshotIO.readUri(in);
+                String title = SnapshotIO.readString(in);
+                String blurb = SnapshotIO.readString(in);
+                pages.put(uri, new WebpageSummary(uri, title, blurb));
+            }
+            TfIdfAnalyzer tfIdfAnalyzer = TfIdfAnalyzer.load(in);
+            InvertedIndex invertedIndex = new InvertedIndex(tfIdfAnalyzer);
+            PageRankAnalyzer pageRankAnalyzer = PageRankAnalyzer.load(in);
+            PositionalIndex positionalIndex = PositionalIndex.load(in, invertedIndex, tfIdfAnalyzer);
+            return new IndexSnapshot(pages, invertedIndex, tfIdfAnalyzer, pageRankAnalyzer, positionalIndex);
+        } catch (RuntimeException ex) {
+            // A corrupt file shows up as a bad URI or an out-of-range id somewhere.
+            throw new IOException("Index snapshot is corrupt", ex);
+        }
+    }
+}
@@ -1,5 +1,11 @@
 package search;
 
+import datastructures.concrete.DoubleLinkedList;
+import datastructures.interfaces.IList;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+
 public class Main {
     // The dataset to index and search.
     // MUST be the name of one of the folders in the 'data' folder.
@@ -13,12 +19,46 @@ public class Main {
     // and know what ports are, feel free to change this if it's convenient.
     public static final int PORT = 8080;
 
-    public static void main(String[] args) {
-        System.out.println("Indexing web pages...");
-        SearchEngine engine = new SearchEngine(DATA_FOLDER_NAME);
+    // The addresses ("host:port") of shard servers to send queries to (see ShardServer).
+    // If this is empty, the whole index is built and searched in this process instead.
+    public static final String[] SHARD_SERVERS = {};
+
+    // How long to wait for each shard server to answer a query before leaving its
+    // results out.
+    public static final int SHARD_TIMEOUT_MILLIS = 2000;
+
+    // While editing the HTML templates, set this to the folder they live in
+    // ("src/main/resources/webapp/templates") to have them reloaded whenever they
+    // change. Otherwise, they are compiled once, on startup.
+    public static final String TEMPLATE_DEV_FOLDER = null;
+
+    // How many search queries may be answered at once. Queries beyond that wait their
+    // turn, for up to QUERY_QUEUE_TIMEOUT_MILLIS, and are then told to retry later.
+    public static final int MAX_CONCURRENT_QUERIES = Runtime.getRuntime().availableProcessors();
+    public static final int QUERY_QUEUE_TIMEOUT_MILLIS = 1000;
+
+    public static void main(String[] args) throws IOException {
+        ISearchEngine engine;
+        if (SHARD_SERVERS.length == 0) {
+            System.out.println("Indexing web pages...");
+            engine = new SearchEngine(DATA_FOLDER_NAME);
+        } else {
+            System.out.println("Building shards...");
+            IList<InetSocketAddress> addresses = new DoubleLinkedList<>();
+            for (String server : SHARD_SERVERS) {
+                int colon = server.lastIndexOf(':');
+                addresses.add(new InetSocketAddress(
+                        server.substring(0, colon), Integer.parseInt(server.substring(colon + 1))));
+            }
+            engine = new ShardCoordinator(addresses, SHARD_TIMEOUT_MILLIS);
+        }
 
         System.out.println("Setting up web server...");
-        Webapp app = new Webapp(engine, SITE_TITLE, PORT);
+        if (!Webapp.useVirtualThreads()) {
+            System.out.println("Virtual threads need Java 21 or later; using a regular thread pool instead.");
+        }
+        Webapp app = new Webapp(
+                engine, SITE_TITLE, PORT, TEMPLATE_DEV_FOLDER, MAX_CONCURRENT_QUERIES, QUERY_QUEUE_TIMEOUT_MILLIS);
 
         System.out.println(String.format(
                 "Ready! Open 'http://localhost:%d' in your web browser.",
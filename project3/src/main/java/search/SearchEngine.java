@@ -2,15 +2,28 @@ package search;
 
 import datastructures.concrete.ChainedHashSet;
 import datastructures.concrete.DoubleLinkedList;
+import datastructures.concrete.dictionaries.ChainedHashDictionary;
+import datastructures.interfaces.IDictionary;
 import datastructures.interfaces.IList;
 import datastructures.interfaces.ISet;
-import misc.Searcher;
+import search.analyzers.Bm25Analyzer;
+import search.analyzers.BooleanQuery;
+import search.analyzers.ImpactIndex;
+import search.analyzers.InvertedIndex;
 import search.analyzers.PageRankAnalyzer;
+import search.analyzers.PositionalIndex;
+import search.analyzers.SpellingCorrector;
 import search.analyzers.TfIdfAnalyzer;
+import search.analyzers.TitleIndex;
+import search.analyzers.TopKCollector;
+import search.misc.CorpusManifest;
+import search.misc.ResultCache;
+import search.misc.WordTokenizer;
 import search.misc.exceptions.DataExtractionException;
 import search.misc.Bridge;
 import search.models.Result;
 import search.models.Webpage;
+import search.models.WebpageCache;
 import search.models.WebpageSummary;
 
 import java.io.IOException;
@@ -18,39 +31,166 @@ import java.net.URI;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.IntToDoubleFunction;
+import java.util.stream.IntStream;
 
-public class SearchEngine {
+public class SearchEngine implements ISearchEngine {
     public static double PAGE_RANK_DECAY = 0.85;
     public static double PAGE_RANK_EPSILON = 0.0001;
     public static int PAGE_RANK_ITERATION_LIMIT = 200;
+    public static int PAGE_RANK_PARALLELISM = Runtime.getRuntime().availableProcessors();
+    public static int PAGE_LOADING_PARALLELISM = Runtime.getRuntime().availableProcessors();
 
-    private ISet<WebpageSummary> pages;
-    private TfIdfAnalyzer tfIdfAnalyzer;
-    private PageRankAnalyzer pageRankAnalyzer;
+    // The built index is saved next to the data folder using this extension.
+    public static final String SNAPSHOT_EXTENSION = ".snapshot";
+
+    // Parsed webpages are cached next to the data folder using this extension.
+    public static final String PAGE_CACHE_EXTENSION = ".pages";
+
+    // The approximate amount of memory the search result cache may use.
+    public static long RESULT_CACHE_BYTES = 16 * 1024 * 1024;
+
+    // How pages are scored against a query. Cached results aren't tagged with the model
+    // that produced them, so set this before creating any engine.
+    public static Ranking RANKING = Ranking.TF_IDF;
+
+    // How much a page's title score (see TitleIndex) adds to its relevance, before
+    // multiplying by page rank. Title scores and TF-IDF relevances are both between 0
+    // and 1; BM25 relevances are usually larger, so the title counts for less there.
+    // Zero turns title matching off.
+    public static double TITLE_BOOST = 0.5;
+
+    private static final int[] NO_DOCUMENTS = new int[0];
+
+    /**
+     * The ways a page's relevance to a query can be computed. Either way, the relevance
+     * is multiplied by the square root of the page's rank.
+     */
+    public enum Ranking {
+        // Cosine similarity of TF-IDF vectors (see TfIdfAnalyzer).
+        TF_IDF,
+        // Okapi BM25 (see Bm25Analyzer).
+        BM25
+    }
+
+    private final String dataFolderName;
+    private final ResultCache resultCache;
+
+    // Queries read this field exactly once, so a concurrent reload() never leaves them
+    // looking at a mix of the old and new index.
+    private volatile IndexSnapshot index;
 
     public SearchEngine(String dataFolderName) {
+        this.dataFolderName = dataFolderName;
+        this.resultCache = new ResultCache(RESULT_CACHE_BYTES);
+        this.reload();
+    }
+
+    /**
+     * Rescans the data folder and switches to an index of its current contents,
+     * rebuilding whatever changed since the index was last built.
+     *
+     * Any cached search results are discarded, since they may be out of date.
+     */
+    public synchronized void reload() {
+        Path root = Paths.get("data", this.dataFolderName);
+        Path snapshotFile = Paths.get("data", this.dataFolderName + SNAPSHOT_EXTENSION);
+        Path pageCacheFile = Paths.get("data", this.dataFolderName + PAGE_CACHE_EXTENSION);
+
         long start = System.currentTimeMillis();
-        ISet<Webpage> webpages = this.collectWebpages(Paths.get("data", dataFolderName));
+        IList<Path> files = findWebpageFiles(root);
+        CorpusManifest manifest = CorpusManifest.scan(root, files);
+        IndexSnapshot snapshot = loadSnapshot(snapshotFile, manifest);
+        if (snapshot != null) {
+            long end = System.currentTimeMillis() - start;
+            System.out.println("Done loading index snapshot (" + (end / 1000.0) + " sec)");
+        } else {
+            snapshot = this.buildIndex(root, manifest, pageCacheFile);
+            this.saveSnapshot(snapshot, snapshotFile, manifest);
+        }
+
+        synchronized (this.resultCache) {
+            this.index = snapshot;
+            this.resultCache.clear();
+        }
+    }
+
+    /**
+     * Returns the cache of recent search results, mainly so its hit and miss counts
+     * can be inspected.
+     */
+    public ResultCache getResultCache() {
+        return this.resultCache;
+    }
+
+    private IndexSnapshot buildIndex(Path root, CorpusManifest manifest, Path pageCacheFile) {
+        long start = System.currentTimeMillis();
+        ISet<Webpage> webpages = collectWebpages(root, manifest, pageCacheFile);
         long end = System.currentTimeMillis() - start;
         System.out.println("Done loading pages (" + (end / 1000.0) + " sec)");
 
-        this.pages = this.extractWebpageSummaries(webpages);
+        IDictionary<URI, WebpageSummary> summaries = extractWebpageSummaries(webpages);
         System.out.println("Done extracting");
 
         start = System.currentTimeMillis();
-        this.tfIdfAnalyzer = new TfIdfAnalyzer(webpages);
-        this.pageRankAnalyzer = new PageRankAnalyzer(
+        TfIdfAnalyzer tfIdf = new TfIdfAnalyzer(webpages);
+        InvertedIndex index = new InvertedIndex(tfIdf);
+        PageRankAnalyzer pageRank = new PageRankAnalyzer(
                 webpages,
                 PAGE_RANK_DECAY,
                 PAGE_RANK_EPSILON,
-                PAGE_RANK_ITERATION_LIMIT);
+                PAGE_RANK_ITERATION_LIMIT,
+                PAGE_RANK_PARALLELISM);
+        PositionalIndex positions = new PositionalIndex(webpages, index, tfIdf);
         end = System.currentTimeMillis() - start;
         System.out.println("Done indexing (" + (end / 1000.0) + " sec)");
+
+        return new IndexSnapshot(summaries, index, tfIdf, pageRank, positions);
+    }
+
+    /**
+     * Returns a description of every setting that changes the contents of the index.
+     * A snapshot built with a different configuration is never reused.
+     */
+    static String describeConfiguration() {
+        return String.format("decay=%s;epsilon=%s;limit=%d",
+                PAGE_RANK_DECAY, PAGE_RANK_EPSILON, PAGE_RANK_ITERATION_LIMIT);
+    }
+
+    /**
+     * Returns the index stored in the given snapshot, or null if it has to be rebuilt.
+     */
+    static IndexSnapshot loadSnapshot(Path snapshotFile, CorpusManifest manifest) {
+        try {
+            return IndexSnapshot.load(snapshotFile, manifest, describeConfiguration());
+        } catch (IOException ex) {
+            // A corrupt snapshot is not fatal: we can always rebuild the index.
+            System.out.println("Could not read index snapshot, rebuilding: " + ex);
+            return null;
+        }
+    }
+
+    private void saveSnapshot(IndexSnapshot snapshot, Path snapshotFile, CorpusManifest manifest) {
+        try {
+            snapshot.save(snapshotFile, manifest, describeConfiguration());
+        } catch (IOException ex) {
+            System.out.println("Could not save index snapshot: " + ex);
+        }
     }
 
     public double computeScore(IList<String> query, URI uri) {
-        double tfIdf = this.tfIdfAnalyzer.computeRelevance(query, uri);
-        double pageRank = this.pageRankAnalyzer.computePageRank(uri);
+        IndexSnapshot index = this.index;
+        int documentId = index.getInvertedIndex().getDocumentId(uri);
+        double relevance = prepareRelevance(index, query).applyAsDouble(documentId);
+        double title = index.getTitleIndex().findMatches(query).findScore(documentId);
+        return this.computeScore(index, relevance + TITLE_BOOST * title, uri);
+    }
+
+    private double computeScore(IndexSnapshot index, double relevance, URI uri) {
+        double pageRank = index.getPageRankAnalyzer().computePageRank(uri);
 
         if (pageRank <= 0.0) {
             throw new IllegalStateException(String.format(
@@ -79,44 +219,326 @@ public class SearchEngine {
         // but it's still a pretty ad-hoc approach. Feel free to adjust or
         // change this formula: we will be grading your TfIdfAnalyzer and
         // PageRankAnalyzer classes separately, but not this method.
-        return tfIdf * Math.sqrt(pageRank);
+        //
+        // The relevance is the body's relevance plus the weighted title score
+        // (see TITLE_BOOST).
+        return relevance * Math.sqrt(pageRank);
     }
 
+    /**
+     * Returns the k most relevant pages for the given query, most relevant first.
+     *
+     * Results for recent queries are served from a cache.
+     */
     public IList<Result> getTopKResults(IList<String> query, int k) {
-        IList<Result> results = new DoubleLinkedList<>();
+        return this.getTopKResults(query, new DoubleLinkedList<>(), k);
+    }
+
+    /**
+     * Returns the k most relevant pages for the given query that also contain every one
+     * of the given phrases, most relevant first. Each phrase is a list of words that must
+     * appear next to each other, in order.
+     *
+     * Results for recent queries are served from a cache.
+     */
+    @Override
+    public IList<Result> getTopKResults(IList<String> query, IList<IList<String>> phrases, int k) {
+        IList<String> cacheKey = query;
+        if (!phrases.isEmpty()) {
+            // Query words never contain quotes, so quoted phrases can't collide with them.
+            cacheKey = new DoubleLinkedList<>();
+            for (String word : query) {
+                cacheKey.add(word);
+            }
+            for (IList<String> phrase : phrases) {
+                cacheKey.add("\"" + String.join(" ", phrase) + "\"");
+            }
+        }
+
+        IList<Result> cached = this.resultCache.get(cacheKey, k);
+        if (cached != null) {
+            return cached;
+        }
+        IndexSnapshot index = this.index;
+        IList<Result> results = computeTopKResults(index, query, phrases, k);
+        synchronized (this.resultCache) {
+            // Don't cache results computed from an index that has since been replaced.
+            if (index == this.index) {
+                this.resultCache.put(cacheKey, k, results);
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Returns the k most relevant pages matching the given boolean query, most relevant
+     * first. Pages are ranked by the words the query asks for, ignoring any it excludes.
+     *
+     * Results for recent queries are served from a cache.
+     */
+    @Override
+    public IList<Result> getTopKResults(BooleanQuery query, int k) {
+        // The brackets keep boolean queries from colliding with any ordinary query.
+        IList<String> cacheKey = new DoubleLinkedList<>();
+        cacheKey.add("[" + query + "]");
 
-        for (WebpageSummary summary: this.pages) {
-            double score = this.computeScore(query, summary.getUri());
-            results.add(new Result(summary, score));
+        IList<Result> cached = this.resultCache.get(cacheKey, k);
+        if (cached != null) {
+            return cached;
         }
+        IndexSnapshot index = this.index;
+        int[] matches = query.findMatches(index.getInvertedIndex(), index.getPositionalIndex());
+        IList<Result> results = scoreMatches(index, query.getPositiveWords(), matches, k);
+        synchronized (this.resultCache) {
+            if (index == this.index) {
+                this.resultCache.put(cacheKey, k, results);
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Returns up to 'limit' ways of finishing the given partially-typed query, most
+     * likely first. Only the last word is completed: each suggestion is the rest of the
+     * query as typed (after tokenizing), followed by a word starting with the last word.
+     *
+     * If the query ends in whitespace, the last word is already finished, so there is
+     * nothing to suggest.
+     *
+     * @throws IllegalArgumentException  if limit is negative or greater than
+     *                                   SuggestionTrie.MAX_SUGGESTIONS
+     */
+    @Override
+    public IList<String> suggest(String query, int limit) {
+        IList<String> words = WordTokenizer.extract(query);
+        IList<String> output = new DoubleLinkedList<>();
+        if (words.isEmpty() || Character.isWhitespace(query.charAt(query.length() - 1))) {
+            return output;
+        }
+        String prefix = words.remove();
+        StringBuilder before = new StringBuilder();
+        for (String word : words) {
+            before.append(word).append(' ');
+        }
+        for (String completion : this.index.getSuggestionTrie().suggest(prefix, limit)) {
+            output.add(before + completion);
+        }
+        return output;
+    }
+
+    /**
+     * Returns the query with every word that appears nowhere in the corpus replaced by
+     * the closest word that does, or null if there is nothing to correct. Words with no
+     * close match are left as they are.
+     */
+    @Override
+    public IList<String> correctSpelling(IList<String> query) {
+        SpellingCorrector corrector = this.index.getSpellingCorrector();
+        IList<String> output = new DoubleLinkedList<>();
+        boolean changed = false;
+        for (String word : query) {
+            String corrected = corrector.correct(word);
+            if (corrected != null && !corrected.equals(word)) {
+                output.add(corrected);
+                changed = true;
+            } else {
+                output.add(word);
+            }
+        }
+        return changed ? output : null;
+    }
 
-        IList<Result> topK = Searcher.topKSort(k, results);
+    static IList<Result> computeTopKResults(IndexSnapshot index,
+                                             IList<String> query,
+                                             IList<IList<String>> phrases,
+                                             int k) {
+        if (!phrases.isEmpty()) {
+            // Few pages contain an exact phrase, so we score every page that does.
+            int[] matches = index.getPositionalIndex().findPhrases(phrases);
+            return scoreMatches(index, query, matches, k);
+        }
 
-        IList<Result> reversed = new DoubleLinkedList<>();
-        for (Result res : topK) {
-            reversed.insert(0, res);
+        // Pages that contain none of the query words have a relevance of zero. With
+        // TF-IDF, pages that can't beat the k-th best score found so far are also skipped
+        // without being fully scored: see ImpactIndex for how the score is split up per word.
+        // Only the final winners are turned into Result objects.
+        TopKCollector collector = new TopKCollector(k);
+        ImpactIndex impacts = index.getImpactIndex();
+        TfIdfAnalyzer.PreparedQuery tfIdfQuery = null;
+        Bm25Analyzer.PreparedQuery bm25Query = null;
+        IntToDoubleFunction relevance;
+        if (RANKING == Ranking.BM25) {
+            bm25Query = index.getBm25Analyzer().prepareQuery(query);
+            relevance = bm25Query::computeRelevance;
+        } else {
+            tfIdfQuery = index.getTfIdfAnalyzer().prepareQuery(query);
+            relevance = tfIdfQuery::computeRelevance;
         }
 
-        return reversed;
+        // Pages with query words in their titles get a bonus the body's upper bounds
+        // don't account for, so we score them first and leave them out of the body
+        // search. There are few of them, and they tend to be the best results: for a
+        // navigational query they often fill the top k with scores the body can't beat,
+        // and the body search ends right away.
+        int[] titleMatches = NO_DOCUMENTS;
+        if (TITLE_BOOST != 0.0) {
+            TitleIndex.Matches titles = index.getTitleIndex().findMatches(query);
+            for (int i = 0; i < titles.size(); i++) {
+                int document = titles.getDocument(i);
+                double score = relevance.applyAsDouble(document) + TITLE_BOOST * titles.getScore(i);
+                collector.collect(document, score * impacts.getPageRankFactor(document));
+            }
+            titleMatches = titles.getDocuments();
+        }
+
+        if (bm25Query != null) {
+            index.getBm25Analyzer().findTopK(bm25Query, impacts::getPageRankFactor, collector, titleMatches);
+        } else {
+            impacts.findTopK(tfIdfQuery, collector, titleMatches);
+        }
+        return toResults(index, collector);
+    }
+
+    /**
+     * Scores every one of the given pages against the query, and returns the best k.
+     *
+     * @param matches  Document ids, in increasing order.
+     */
+    static IList<Result> scoreMatches(IndexSnapshot index, IList<String> query, int[] matches, int k) {
+        TopKCollector collector = new TopKCollector(k);
+        ImpactIndex impacts = index.getImpactIndex();
+        IntToDoubleFunction relevance = prepareRelevance(index, query);
+        TitleIndex.Matches titles = index.getTitleIndex().findMatches(query);
+        for (int document : matches) {
+            double score = relevance.applyAsDouble(document) + TITLE_BOOST * titles.findScore(document);
+            collector.collect(document, score * impacts.getPageRankFactor(document));
+        }
+        return toResults(index, collector);
     }
 
-    private ISet<Webpage> collectWebpages(Path root) {
+    /**
+     * Returns a function giving the relevance of a page's body to the query, by the
+     * current ranking model. It is fastest when called with increasing document ids.
+     */
+    private static IntToDoubleFunction prepareRelevance(IndexSnapshot index, IList<String> query) {
+        if (RANKING == Ranking.BM25) {
+            return index.getBm25Analyzer().prepareQuery(query)::computeRelevance;
+        }
+        return index.getTfIdfAnalyzer().prepareQuery(query)::computeRelevance;
+    }
+
+    private static IList<Result> toResults(IndexSnapshot index, TopKCollector collector) {
+        InvertedIndex invertedIndex = index.getInvertedIndex();
+        collector.sort();
+
+        IList<Result> results = new DoubleLinkedList<>();
+        for (int i = 0; i < collector.size(); i++) {
+            URI uri = invertedIndex.getUri(collector.getDocumentId(i));
+            results.add(new Result(index.getPages().get(uri), collector.getScore(i)));
+        }
+        return results;
+    }
+
+    static IList<Path> findWebpageFiles(Path root) {
         try {
             return Files.walk(root)
                     .filter(Files::isRegularFile)
                     .filter(path -> path.toString().endsWith(".htm") || path.toString().endsWith(".html"))
-                    .map(Path::toUri)
-                    .map(Webpage::load)
-                    .collect(Bridge.toISet());
+                    .collect(Bridge.toIList());
         } catch (IOException ex) {
             throw new DataExtractionException("Could not find given root folder", ex);
         }
     }
 
-    private ISet<WebpageSummary> extractWebpageSummaries(ISet<Webpage> pages) {
-        ISet<WebpageSummary> output = new ChainedHashSet<>();
+    /**
+     * Loads every webpage listed in the manifest.
+     *
+     * Pages whose files are unchanged since the last run are read from the page cache;
+     * the rest are parsed from their original HTML in parallel, using at most
+     * PAGE_LOADING_PARALLELISM threads. If anything changed, the page cache is
+     * rewritten afterwards.
+     */
+    static ISet<Webpage> collectWebpages(Path root, CorpusManifest manifest, Path pageCacheFile) {
+        WebpageCache cache = loadPageCache(pageCacheFile);
+
+        Webpage[] pages = new Webpage[manifest.size()];
+        int[] misses = new int[manifest.size()];
+        int numMisses = 0;
+        for (int i = 0; i < manifest.size(); i++) {
+            pages[i] = cache.get(manifest.getPath(i), manifest.getSize(i), manifest.getLastModified(i));
+            if (pages[i] == null) {
+                misses[numMisses] = i;
+                numMisses++;
+            }
+        }
+
+        if (numMisses > 0) {
+            int[] toParse = Arrays.copyOf(misses, numMisses);
+            IList<Webpage> parsed = parseInParallel(root, manifest, toParse);
+            int j = 0;
+            for (Webpage page : parsed) {
+                pages[toParse[j]] = page;
+                j++;
+            }
+        }
+
+        WebpageCache updated = new WebpageCache();
+        ISet<Webpage> webpages = new ChainedHashSet<>();
+        for (int i = 0; i < manifest.size(); i++) {
+            updated.put(manifest.getPath(i), manifest.getSize(i), manifest.getLastModified(i), pages[i]);
+            webpages.add(pages[i]);
+        }
+
+        if (numMisses > 0 || cache.size() != manifest.size()) {
+            try {
+                updated.save(pageCacheFile);
+            } catch (IOException ex) {
+                System.out.println("Could not save webpage cache: " + ex);
+            }
+        }
+        return webpages;
+    }
+
+    /**
+     * Parses the original HTML of the given manifest entries, returning the pages in the
+     * same order as 'indices'.
+     *
+     * Parsing a page is CPU-bound, so the work is spread across a bounded pool of threads.
+     */
+    private static IList<Webpage> parseInParallel(Path root, CorpusManifest manifest, int[] indices) {
+        ForkJoinPool pool = new ForkJoinPool(PAGE_LOADING_PARALLELISM);
+        try {
+            return pool.submit(() -> IntStream.of(indices)
+                    .parallel()
+                    .mapToObj(i -> Webpage.loadOriginal(root.resolve(manifest.getPath(i)).toUri()))
+                    .collect(Bridge.toIList())
+            ).get();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new DataExtractionException("Interrupted while loading webpages", ex);
+        } catch (ExecutionException ex) {
+            if (ex.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) ex.getCause();
+            }
+            throw new DataExtractionException("Could not load webpages", ex.getCause());
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    private static WebpageCache loadPageCache(Path pageCacheFile) {
+        try {
+            return WebpageCache.load(pageCacheFile);
+        } catch (IOException ex) {
+            System.out.println("Could not read webpage cache, re-parsing pages: " + ex);
+            return new WebpageCache();
+        }
+    }
+
+    static IDictionary<URI, WebpageSummary> extractWebpageSummaries(ISet<Webpage> pages) {
+        IDictionary<URI, WebpageSummary> output = new ChainedHashDictionary<>();
         for (Webpage page : pages) {
-            output.add(page.getSummary());
+            output.put(page.getUri(), page.getSummary());
         }
         return output;
     }
@@ -0,0 +1,134 @@
+package search;
+
+import datastructures.interfaces.IList;
+import search.misc.SnapshotIO;
+import search.models.Result;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Sends requests to a single ShardServer.
+ *
+ * Connections are kept open and reused between requests, since opening a new one
+ * would cost a round trip of its own. Each connection carries one request at a time;
+ * a connection that fails or times out part-way through a request is closed rather
+ * than reused, since we can no longer tell where the next response starts.
+ */
+class ShardClient implements Closeable {
+    private final InetSocketAddress address;
+    private final int timeoutMillis;
+    private final ConcurrentLinkedQueue<Connection> idle;
+
+    /**
+     * @param timeoutMillis  How long to wait for the server to accept a connection or to
+     *                       send the next part of a response, or 0 to wait forever.
+     */
+    public ShardClient(InetSocketAddress address, int timeoutMillis) {
+        this.address = address;
+        this.timeoutMillis = timeoutMillis;
+        this.idle = new ConcurrentLinkedQueue<>();
+    }
+
+    public InetSocketAddress getAddress() {
+        return this.address;
+    }
+
+    /**
+     * Sends a request and reads its response.
+     *
+     * @throws IOException  if the server could not be reached, took too long, or
+     *                      reported an error
+     */
+    public <T> T send(Request request, Response<T> response) throws IOException {
+        Connection connection = this.idle.poll();
+        if (connection == null) {
+            connection = new Connection(this.address, this.timeoutMillis);
+        }
+        T output;
+        try {
+            request.write(connection.out);
+            connection.out.flush();
+            if (connection.in.readByte() != ShardProtocol.OK) {
+                // The error message is the whole response, so the connection is still usable.
+                String message = SnapshotIO.readString(connection.in);
+                this.idle.add(connection);
+                throw new ShardException(this.address + ": " + message);
+            }
+            output = response.read(connection.in);
+        } catch (ShardException ex) {
+            throw ex;
+        } catch (IOException | RuntimeException ex) {
+            connection.close();
+            throw ex;
+        }
+        this.idle.add(connection);
+        return output;
+    }
+
+    /**
+     * Sends a search request and reads back its results.
+     */
+    public IList<Result> search(Request request) throws IOException {
+        return this.send(request, ShardProtocol::readResults);
+    }
+
+    @Override
+    public void close() {
+        for (Connection connection = this.idle.poll(); connection != null; connection = this.idle.poll()) {
+            connection.close();
+        }
+    }
+
+    interface Request {
+        void write(DataOutputStream out) throws IOException;
+    }
+
+    interface Response<T> {
+        T read(DataInputStream in) throws IOException;
+    }
+
+    /**
+     * Thrown when a shard answers a request with an error.
+     */
+    static class ShardException extends IOException {
+        public ShardException(String message) {
+            super(message);
+        }
+    }
+
+    private static class Connection {
+        private final Socket socket;
+        private final DataInputStream in;
+        private final DataOutputStream out;
+
+        public Connection(InetSocketAddress address, int timeoutMillis) throws IOException {
+            this.socket = new Socket();
+            try {
+                this.socket.connect(address, timeoutMillis);
+                this.socket.setSoTimeout(timeoutMillis);
+                this.socket.setTcpNoDelay(true);
+                this.in = new DataInputStream(new BufferedInputStream(this.socket.getInputStream()));
+                this.out = new DataOutputStream(new BufferedOutputStream(this.socket.getOutputStream()));
+            } catch (IOException ex) {
+                this.socket.close();
+                throw ex;
+            }
+        }
+
+        public void close() {
+            try {
+                this.socket.close();
+            } catch (IOException ex) {
+                // Do nothing: we're done with this connection either way.
+            }
+        }
+    }
+}
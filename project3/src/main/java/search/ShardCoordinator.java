@@ -0,0 +1,207 @@
+package search;
+
+import datastructures.concrete.ChainedHashSet;
+import datastructures.concrete.DoubleLinkedList;
+import datastructures.interfaces.IList;
+import datastructures.interfaces.ISet;
+import search.analyzers.BooleanQuery;
+import search.analyzers.CorpusStatistics;
+import search.analyzers.PageRankAnalyzer;
+import search.misc.SnapshotIO;
+import search.models.Result;
+import search.models.Webpage;
+
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Answers queries by sending them to every ShardServer at once and merging their
+ * results, like ShardedSearchEngine does with in-process shards.
+ *
+ * A shard that fails, or doesn't answer within the timeout, is left out of the results
+ * rather than failing the whole query: a page of results missing one shard is better
+ * than no results at all.
+ *
+ * Before any queries, the coordinator builds the shards' indexes in two passes, so that
+ * scores from different shards can be compared (see ShardedSearchEngine). First, every
+ * shard sends its document frequencies and links; the coordinator adds up the
+ * frequencies and computes the page rank of every page over the whole link graph.
+ * Then it sends every shard the statistics of the whole corpus and the page ranks of
+ * that shard's pages, and the shards build their indexes.
+ */
+public class ShardCoordinator implements ISearchEngine, Closeable {
+    private final ShardClient[] shards;
+    private final int timeoutMillis;
+    private final ExecutorService executor;
+
+    /**
+     * Connects to the given shard servers and builds their indexes.
+     *
+     * @param timeoutMillis  How long a query waits for each shard before giving up on it.
+     *                       Building the indexes is never timed out.
+     * @throws IOException  if any shard could not be built
+     * @throws IllegalArgumentException  if timeoutMillis is not positive
+     */
+    public ShardCoordinator(IList<InetSocketAddress> addresses, int timeoutMillis) throws IOException {
+        if (timeoutMillis <= 0) {
+            throw new IllegalArgumentException("timeoutMillis must be positive");
+        }
+        this.timeoutMillis = timeoutMillis;
+        this.executor = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "shard-coordinator");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        ShardClient[] builders = new ShardClient[addresses.size()];
+        this.shards = new ShardClient[addresses.size()];
+        int i = 0;
+        for (InetSocketAddress address : addresses) {
+            builders[i] = new ShardClient(address, 0);
+            this.shards[i] = new ShardClient(address, timeoutMillis);
+            i++;
+        }
+        try {
+            this.build(builders);
+        } finally {
+            for (ShardClient builder : builders) {
+                builder.close();
+            }
+        }
+    }
+
+    @Override
+    public IList<Result> getTopKResults(IList<String> query, IList<IList<String>> phrases, int k) {
+        return this.search(out -> {
+            out.writeByte(ShardProtocol.SEARCH);
+            out.writeInt(k);
+            ShardProtocol.writeWords(out, query);
+            out.writeInt(phrases.size());
+            for (IList<String> phrase : phrases) {
+                ShardProtocol.writeWords(out, phrase);
+            }
+        }, k);
+    }
+
+    @Override
+    public IList<Result> getTopKResults(BooleanQuery query, int k) {
+        // The query's string form parses back into the same query.
+        String text = query.toString();
+        return this.search(out -> {
+            out.writeByte(ShardProtocol.BOOLEAN_SEARCH);
+            out.writeInt(k);
+            SnapshotIO.writeString(out, text);
+        }, k);
+    }
+
+    /**
+     * Closes every connection to the shards. The shard servers keep running.
+     */
+    @Override
+    public void close() {
+        this.executor.shutdownNow();
+        for (ShardClient shard : this.shards) {
+            shard.close();
+        }
+    }
+
+    private IList<Result> search(ShardClient.Request request, int k) {
+        @SuppressWarnings("unchecked")
+        Future<IList<Result>>[] futures = (Future<IList<Result>>[]) new Future[this.shards.length];
+        for (int i = 0; i < this.shards.length; i++) {
+            ShardClient shard = this.shards[i];
+            futures[i] = this.executor.submit(() -> shard.search(request));
+        }
+
+        // Every shard gets the same deadline, counted from when the query was sent out.
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(this.timeoutMillis);
+        IList<IList<Result>> lists = new DoubleLinkedList<>();
+        for (int i = 0; i < futures.length; i++) {
+            try {
+                long remaining = Math.max(0, deadline - System.nanoTime());
+                lists.add(futures[i].get(remaining, TimeUnit.NANOSECONDS));
+            } catch (TimeoutException ex) {
+                futures[i].cancel(true);
+                System.out.println("Shard " + this.shards[i].getAddress() + " timed out");
+            } catch (ExecutionException ex) {
+                System.out.println("Shard " + this.shards[i].getAddress() + " failed: " + ex.getCause());
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        return ShardedSearchEngine.mergeTopK(lists, k);
+    }
+
+    private void build(ShardClient[] builders) throws IOException {
+        long start = System.currentTimeMillis();
+        CorpusStatistics statistics = new CorpusStatistics();
+        ISet<Webpage> linkGraph = new ChainedHashSet<>();
+        @SuppressWarnings("unchecked")
+        IList<URI>[] shardPages = (IList<URI>[]) new IList[builders.length];
+
+        for (int i = 0; i < builders.length; i++) {
+            IList<URI> pages = new DoubleLinkedList<>();
+            shardPages[i] = pages;
+            statistics.merge(builders[i].send(
+                    out -> out.writeByte(ShardProtocol.STATISTICS),
+                    in -> readStatistics(in, pages, linkGraph)));
+        }
+
+        // Page rank only needs each page's links, so the pages carry no words.
+        PageRankAnalyzer pageRank = new PageRankAnalyzer(
+                linkGraph,
+                SearchEngine.PAGE_RANK_DECAY,
+                SearchEngine.PAGE_RANK_EPSILON,
+                SearchEngine.PAGE_RANK_ITERATION_LIMIT,
+                SearchEngine.PAGE_RANK_PARALLELISM);
+
+        // Every shard builds its index at the same time.
+        @SuppressWarnings("unchecked")
+        Future<Void>[] futures = (Future<Void>[]) new Future[builders.length];
+        for (int i = 0; i < builders.length; i++) {
+            ShardClient builder = builders[i];
+            IList<URI> pages = shardPages[i];
+            futures[i] = this.executor.submit(() -> builder.send(out -> {
+                out.writeByte(ShardProtocol.BUILD);
+                statistics.save(out);
+                pageRank.save(out, pages);
+            }, in -> null));
+        }
+        for (Future<Void> future : futures) {
+            try {
+                future.get();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted while building shards", ex);
+            } catch (ExecutionException ex) {
+                throw new IOException("Could not build shard", ex.getCause());
+            }
+        }
+
+        long end = System.currentTimeMillis() - start;
+        System.out.println("Done building " + builders.length + " shards (" + (end / 1000.0) + " sec)");
+    }
+
+    private static CorpusStatistics readStatistics(DataInputStream in, IList<URI> pages, ISet<Webpage> linkGraph)
+            throws IOException {
+        CorpusStatistics statistics = CorpusStatistics.load(in);
+        int numPages = in.readInt();
+        for (int i = 0; i < numPages; i++) {
+            URI uri = SnapshotIO.readUri(in);
+            IList<URI> links = ShardProtocol.readUris(in);
+            pages.add(uri);
+            linkGraph.add(new Webpage(uri, links, new DoubleLinkedList<>(), "", ""));
+        }
+        return statistics;
+    }
+}
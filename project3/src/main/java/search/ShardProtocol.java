@@ -0,0 +1,94 @@
+package search;
+
+import datastructures.concrete.DoubleLinkedList;
+import datastructures.interfaces.IList;
+import search.misc.SnapshotIO;
+import search.models.Result;
+import search.models.WebpageSummary;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.URI;
+
+/**
+ * The binary protocol spoken between a ShardCoordinator and its ShardServers.
+ *
+ * A connection carries any number of requests, one after another. Each request is a
+ * single type byte followed by its arguments; each response is a status byte, followed
+ * by the result if the status is OK or by a message if it is ERROR. Strings and URIs
+ * are written as in index snapshots (see SnapshotIO).
+ *
+ *   STATISTICS                  -> statistics, pages (URI and outgoing links of each)
+ *   BUILD statistics, ranks     -> nothing
+ *   SEARCH k, words, phrases    -> results
+ *   BOOLEAN_SEARCH k, query     -> results
+ *
+ * A shard can't answer searches until it has been sent BUILD.
+ */
+final class ShardProtocol {
+    static final byte STATISTICS = 1;
+    static final byte BUILD = 2;
+    static final byte SEARCH = 3;
+    static final byte BOOLEAN_SEARCH = 4;
+
+    static final byte OK = 0;
+    static final byte ERROR = 1;
+
+    private ShardProtocol() {
+    }
+
+    static void writeWords(DataOutputStream out, IList<String> words) throws IOException {
+        out.writeInt(words.size());
+        for (String word : words) {
+            SnapshotIO.writeString(out, word);
+        }
+    }
+
+    static IList<String> readWords(DataInputStream in) throws IOException {
+        IList<String> words = new DoubleLinkedList<>();
+        int size = in.readInt();
+        for (int i = 0; i < size; i++) {
+            words.add(SnapshotIO.readString(in));
+        }
+        return words;
+    }
+
+    static void writeUris(DataOutputStream out, IList<URI> uris) throws IOException {
+        out.writeInt(uris.size());
+        for (URI uri : uris) {
+            SnapshotIO.writeUri(out, uri);
+        }
+    }
+
+    static IList<URI> readUris(DataInputStream in) throws IOException {
+        IList<URI> uris = new DoubleLinkedList<>();
+        int size = in.readInt();
+        for (int i = 0; i < size; i++) {
+            uris.add(SnapshotIO.readUri(in));
+        }
+        return uris;
+    }
+
+    static void writeResults(DataOutputStream out, IList<Result> results) throws IOException {
+        out.writeInt(results.size());
+        for (Result result : results) {
+            SnapshotIO.writeUri(out, result.getUri());
+            SnapshotIO.writeString(out, result.getTitle());
+            SnapshotIO.writeString(out, result.getBlurb());
+            out.writeDouble(result.getScore());
+        }
+    }
+
+    static IList<Result> readResults(DataInputStream in) throws IOException {
+        IList<Result> results = new DoubleLinkedList<>();
+        int size = in.readInt();
+        for (int i = 0; i < size; i++) {
+            URI uri = SnapshotIO.readUri(in);
+            String title = SnapshotIO.readString(in);
+            String blurb = SnapshotIO.readString(in);
+            results.add(new Result(new WebpageSummary(uri, title, blurb), in.readDouble()));
+        }
+        return results;
+    }
+}
@@ -0,0 +1,292 @@
+package search;
+
+import datastructures.concrete.DoubleLinkedList;
+import datastructures.interfaces.IList;
+import datastructures.interfaces.ISet;
+import search.analyzers.BooleanQuery;
+import search.analyzers.CorpusStatistics;
+import search.analyzers.InvertedIndex;
+import search.analyzers.PageRankAnalyzer;
+import search.analyzers.PositionalIndex;
+import search.analyzers.TfIdfAnalyzer;
+import search.misc.CorpusManifest;
+import search.misc.SnapshotIO;
+import search.misc.WordTokenizer;
+import search.models.Result;
+import search.models.Webpage;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Hosts one shard of the index and answers requests for it over TCP, using the
+ * protocol described in ShardProtocol.
+ *
+ * A shard server only ever loads its own part of the corpus. It can't build its index
+ * on its own, though: IDF scores and page ranks depend on the whole corpus. So on
+ * startup, the server only counts its document frequencies and waits for a
+ * ShardCoordinator to collect the counts (and links) from every shard, and to send back
+ * the statistics and page ranks of the whole corpus. See ShardCoordinator.
+ *
+ * To run a corpus split across two shards on one machine, start
+ *
+ *     ShardServer wikipedia-with-spam 0 2 9001
+ *     ShardServer wikipedia-with-spam 1 2 9002
+ *
+ * in separate processes, then list both addresses in Main.SHARD_SERVERS.
+ */
+public class ShardServer implements Closeable {
+    private final ISet<Webpage> webpages;
+    private final CorpusStatistics statistics;
+    private final ServerSocket serverSocket;
+    private final ExecutorService connections;
+    private final Set<Socket> openSockets;
+
+    // Null until a coordinator has sent the statistics of the whole corpus.
+    private volatile IndexSnapshot index;
+
+    /**
+     * Starts serving the given pages on the given port. Use port 0 to pick any free port.
+     */
+    public ShardServer(ISet<Webpage> webpages, int port) throws IOException {
+        this.webpages = webpages;
+        this.statistics = new CorpusStatistics();
+        for (Webpage page : webpages) {
+            this.statistics.addDocument(page.getWords());
+        }
+        this.index = null;
+
+        this.serverSocket = new ServerSocket(port);
+        this.openSockets = ConcurrentHashMap.newKeySet();
+        this.connections = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "shard-server-" + this.getPort());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.connections.submit(this::acceptConnections);
+    }
+
+    /**
+     * Returns the port this server is listening on.
+     */
+    public int getPort() {
+        return this.serverSocket.getLocalPort();
+    }
+
+    /**
+     * Stops accepting requests and drops every open connection.
+     */
+    @Override
+    public void close() throws IOException {
+        this.serverSocket.close();
+        this.connections.shutdownNow();
+        for (Socket socket : this.openSockets) {
+            socket.close();
+        }
+    }
+
+    /**
+     * Usage: ShardServer <data folder> <shard> <number of shards> <port>
+     */
+    public static void main(String[] args) throws IOException, InterruptedException {
+        if (args.length != 4) {
+            System.out.println("Usage: ShardServer <data folder> <shard> <number of shards> <port>");
+            System.exit(1);
+        }
+        String dataFolderName = args[0];
+        int shard = Integer.parseInt(args[1]);
+        int numShards = Integer.parseInt(args[2]);
+        int port = Integer.parseInt(args[3]);
+
+        long start = System.currentTimeMillis();
+        ISet<Webpage> webpages = loadShard(dataFolderName, shard, numShards);
+        long end = System.currentTimeMillis() - start;
+        System.out.println("Done loading " + webpages.size() + " pages (" + (end / 1000.0) + " sec)");
+
+        ShardServer server = new ShardServer(webpages, port);
+        System.out.println("Serving shard " + shard + " of " + numShards + " on port " + server.getPort());
+
+        // The server's threads are daemons, so keep the process alive ourselves.
+        Thread.currentThread().join();
+    }
+
+    /**
+     * Loads the pages of the data folder belonging to the given shard. Pages are
+     * assigned to shards by their path within the data folder, so every server agrees
+     * on the split without talking to the others.
+     */
+    static ISet<Webpage> loadShard(String dataFolderName, int shard, int numShards) {
+        Path root = Paths.get("data", dataFolderName);
+        Path pageCacheFile = Paths.get("data", String.format(
+                "%s.shard-%d-of-%d%s", dataFolderName, shard, numShards, SearchEngine.PAGE_CACHE_EXTENSION));
+
+        IList<Path> files = new DoubleLinkedList<>();
+        for (Path file : SearchEngine.findWebpageFiles(root)) {
+            String path = root.relativize(file).toString().replace('\\', '/');
+            if (Math.floorMod(path.hashCode(), numShards) == shard) {
+                files.add(file);
+            }
+        }
+        return SearchEngine.collectWebpages(root, CorpusManifest.scan(root, files), pageCacheFile);
+    }
+
+    private void acceptConnections() {
+        while (!this.serverSocket.isClosed()) {
+            try {
+                Socket socket = this.serverSocket.accept();
+                this.openSockets.add(socket);
+                this.connections.submit(() -> this.serve(socket));
+            } catch (IOException ex) {
+                if (!this.serverSocket.isClosed()) {
+                    System.out.println("Could not accept connection: " + ex);
+                }
+            }
+        }
+    }
+
+    /**
+     * Answers requests from one connection until the other side closes it.
+     */
+    private void serve(Socket socket) {
+        try (Socket s = socket;
+             DataInputStream in = new DataInputStream(new BufferedInputStream(s.getInputStream()));
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(s.getOutputStream()))) {
+            s.setTcpNoDelay(true);
+            while (!Thread.currentThread().isInterrupted()) {
+                byte type;
+                try {
+                    type = in.readByte();
+                } catch (EOFException ex) {
+                    return;
+                }
+                this.handle(type, in, out);
+                out.flush();
+            }
+        } catch (SocketException ex) {
+            // The connection was dropped, or the server closed: nothing left to do.
+        } catch (IOException ex) {
+            System.out.println("Shard connection failed: " + ex);
+        } finally {
+            this.openSockets.remove(socket);
+        }
+    }
+
+    private void handle(byte type, DataInputStream in, DataOutputStream out) throws IOException {
+        switch (type) {
+            case ShardProtocol.STATISTICS:
+                out.writeByte(ShardProtocol.OK);
+                this.statistics.save(out);
+                out.writeInt(this.webpages.size());
+                for (Webpage page : this.webpages) {
+                    SnapshotIO.writeUri(out, page.getUri());
+                    ShardProtocol.writeUris(out, page.getLinks());
+                }
+                break;
+            case ShardProtocol.BUILD:
+                CorpusStatistics corpus = CorpusStatistics.load(in);
+                PageRankAnalyzer pageRank = PageRankAnalyzer.load(in);
+                this.build(corpus, pageRank);
+                out.writeByte(ShardProtocol.OK);
+                break;
+            case ShardProtocol.SEARCH: {
+                int k = in.readInt();
+                IList<String> words = ShardProtocol.readWords(in);
+                IList<IList<String>> phrases = new DoubleLinkedList<>();
+                int numPhrases = in.readInt();
+                for (int i = 0; i < numPhrases; i++) {
+                    phrases.add(ShardProtocol.readWords(in));
+                }
+                IndexSnapshot current = this.index;
+                if (current == null) {
+                    this.writeNotBuilt(out);
+                    break;
+                }
+                try {
+                    this.writeResults(out, SearchEngine.computeTopKResults(current, words, phrases, k));
+                } catch (RuntimeException ex) {
+                    this.writeError(out, ex);
+                }
+                break;
+            }
+            case ShardProtocol.BOOLEAN_SEARCH: {
+                int k = in.readInt();
+                String text = SnapshotIO.readString(in);
+                IndexSnapshot current = this.index;
+                if (current == null) {
+                    this.writeNotBuilt(out);
+                    break;
+                }
+                try {
+                    this.writeResults(out, search(current, text, k));
+                } catch (RuntimeException ex) {
+                    this.writeError(out, ex);
+                }
+                break;
+            }
+            default:
+                // We can't tell where an unknown request ends, so give up on the connection.
+                throw new IOException("Unknown request type " + type);
+        }
+    }
+
+    /**
+     * Answers a boolean query sent as text. A query that simplified down to a single
+     * word or phrase no longer has an operator in it, so it doesn't parse back. It's
+     * matched the same way here instead: unlike an ordinary query, only pages containing
+     * the word or phrase in their bodies match, not pages with it in their titles.
+     */
+    private static IList<Result> search(IndexSnapshot index, String text, int k) {
+        BooleanQuery query = BooleanQuery.parse(text);
+        if (query == null) {
+            IList<String> words = WordTokenizer.extract(text);
+            IList<IList<String>> phrases = WordTokenizer.extractPhrases(text);
+            int[] matches = phrases.isEmpty()
+                    ? index.getInvertedIndex().findCandidates(words)
+                    : index.getPositionalIndex().findPhrases(phrases);
+            return SearchEngine.scoreMatches(index, words, matches, k);
+        }
+        int[] matches = query.findMatches(index.getInvertedIndex(), index.getPositionalIndex());
+        return SearchEngine.scoreMatches(index, query.getPositiveWords(), matches, k);
+    }
+
+    private synchronized void build(CorpusStatistics corpus, PageRankAnalyzer pageRank) {
+        long start = System.currentTimeMillis();
+        TfIdfAnalyzer tfIdf = new TfIdfAnalyzer(this.webpages, corpus);
+        InvertedIndex invertedIndex = new InvertedIndex(tfIdf);
+        PositionalIndex positions = new PositionalIndex(this.webpages, invertedIndex, tfIdf);
+        this.index = new IndexSnapshot(
+                SearchEngine.extractWebpageSummaries(this.webpages), invertedIndex, tfIdf, pageRank, positions);
+        long end = System.currentTimeMillis() - start;
+        System.out.println("Done indexing shard (" + (end / 1000.0) + " sec)");
+    }
+
+    private void writeResults(DataOutputStream out, IList<Result> results) throws IOException {
+        out.writeByte(ShardProtocol.OK);
+        ShardProtocol.writeResults(out, results);
+    }
+
+    private void writeError(DataOutputStream out, RuntimeException ex) throws IOException {
+        ex.printStackTrace();
+        out.writeByte(ShardProtocol.ERROR);
+        SnapshotIO.writeString(out, ex.toString());
+    }
+
+    private void writeNotBuilt(DataOutputStream out) throws IOException {
+        out.writeByte(ShardProtocol.ERROR);
+        SnapshotIO.writeString(out, "This shard has not been built yet");
+    }
+}
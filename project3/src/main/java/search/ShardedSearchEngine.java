@@ -0,0 +1,278 @@
+package search;
+
+import datastructures.concrete.ArrayHeap;
+import datastructures.concrete.ChainedHashSet;
+import datastructures.concrete.DoubleLinkedList;
+import datastructures.interfaces.IDictionary;
+import datastructures.interfaces.IList;
+import datastructures.interfaces.IPriorityQueue;
+import datastructures.interfaces.ISet;
+import search.analyzers.BooleanQuery;
+import search.analyzers.CorpusStatistics;
+import search.analyzers.InvertedIndex;
+import search.analyzers.PageRankAnalyzer;
+import search.analyzers.PositionalIndex;
+import search.analyzers.TfIdfAnalyzer;
+import search.misc.CorpusManifest;
+import search.models.Result;
+import search.models.Webpage;
+import search.models.WebpageSummary;
+
+import java.net.URI;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/**
+ * A search engine that splits the corpus into several shards, each with its own
+ * index, and searches all of them in parallel.
+ *
+ * Every page belongs to exactly one shard, chosen by its URI. Each shard finds its own
+ * best k pages, and the per-shard lists are merged into the overall best k.
+ *
+ * Scores from different shards can only be compared if every shard computes them the
+ * same way, so two things are shared between shards rather than computed per shard:
+ * IDF scores come from document frequencies counted over the whole corpus (see
+ * CorpusStatistics), and page ranks are computed over the whole link graph, since
+ * links cross shards freely.
+ */
+public class ShardedSearchEngine implements ISearchEngine {
+    private final IndexSnapshot[] shards;
+    private final ForkJoinPool pool;
+
+    /**
+     * Indexes every webpage in the given data folder, split into the given number of
+     * shards.
+     *
+     * Shards are always rebuilt from the webpages, although the webpages themselves
+     * are read from the page cache where possible, as in SearchEngine.
+     */
+    public ShardedSearchEngine(String dataFolderName, int numShards) {
+        this(loadWebpages(dataFolderName), numShards);
+    }
+
+    /**
+     * Indexes the given webpages, split into the given number of shards.
+     *
+     * @throws IllegalArgumentException  if numShards is not positive
+     */
+    public ShardedSearchEngine(ISet<Webpage> webpages, int numShards) {
+        if (numShards <= 0) {
+            throw new IllegalArgumentException("There must be at least one shard");
+        }
+        this.pool = new ForkJoinPool(numShards);
+
+        long start = System.currentTimeMillis();
+        @SuppressWarnings("unchecked")
+        ISet<Webpage>[] shardPages = (ISet<Webpage>[]) new ISet[numShards];
+        for (int i = 0; i < numShards; i++) {
+            shardPages[i] = new ChainedHashSet<>();
+        }
+        for (Webpage page : webpages) {
+            shardPages[findShard(page.getUri(), numShards)].add(page);
+        }
+
+        // First pass: every shard counts its own document frequencies, then the counts
+        // are added up to give the statistics of the whole corpus.
+        CorpusStatistics[] counts = this.runOnEveryShard(numShards, shard -> {
+            CorpusStatistics statistics = new CorpusStatistics();
+            for (Webpage page : shardPages[shard]) {
+                statistics.addDocument(page.getWords());
+            }
+            return statistics;
+        }, new CorpusStatistics[numShards]);
+        CorpusStatistics statistics = new CorpusStatistics();
+        for (CorpusStatistics count : counts) {
+            statistics.merge(count);
+        }
+
+        PageRankAnalyzer pageRank = new PageRankAnalyzer(
+                webpages,
+                SearchEngine.PAGE_RANK_DECAY,
+                SearchEngine.PAGE_RANK_EPSILON,
+                SearchEngine.PAGE_RANK_ITERATION_LIMIT,
+                SearchEngine.PAGE_RANK_PARALLELISM);
+
+        // Second pass: every shard builds its index using the shared statistics.
+        this.shards = this.runOnEveryShard(numShards, shard -> {
+            TfIdfAnalyzer tfIdf = new TfIdfAnalyzer(shardPages[shard], statistics);
+            InvertedIndex index = new InvertedIndex(tfIdf);
+            PositionalIndex positions = new PositionalIndex(shardPages[shard], index, tfIdf);
+            IDictionary<URI, WebpageSummary> summaries = SearchEngine.extractWebpageSummaries(shardPages[shard]);
+            return new IndexSnapshot(summaries, index, tfIdf, pageRank, positions);
+        }, new IndexSnapshot[numShards]);
+
+        long end = System.currentTimeMillis() - start;
+        System.out.println("Done indexing " + numShards + " shards (" + (end / 1000.0) + " sec)");
+    }
+
+    /**
+     * Returns the number of shards the corpus is split into.
+     */
+    public int numShards() {
+        return this.shards.length;
+    }
+
+    /**
+     * Returns the k most relevant pages for the given query, most relevant first.
+     */
+    public IList<Result> getTopKResults(IList<String> query, int k) {
+        return this.getTopKResults(query, new DoubleLinkedList<>(), k);
+    }
+
+    /**
+     * Returns the k most relevant pages for the given query that also contain every one
+     * of the given phrases, most relevant first.
+     */
+    @Override
+    public IList<Result> getTopKResults(IList<String> query, IList<IList<String>> phrases, int k) {
+        return this.search(shard -> SearchEngine.computeTopKResults(this.shards[shard], query, phrases, k), k);
+    }
+
+    /**
+     * Returns the k most relevant pages matching the given boolean query, most relevant
+     * first.
+     */
+    @Override
+    public IList<Result> getTopKResults(BooleanQuery query, int k) {
+        IList<String> words = query.getPositiveWords();
+        return this.search(shard -> {
+            IndexSnapshot index = this.shards[shard];
+            int[] matches = query.findMatches(index.getInvertedIndex(), index.getPositionalIndex());
+            return SearchEngine.scoreMatches(index, words, matches, k);
+        }, k);
+    }
+
+    /**
+     * Returns the shard the page with the given URI belongs to.
+     */
+    static int findShard(URI uri, int numShards) {
+        return Math.floorMod(uri.hashCode(), numShards);
+    }
+
+    /**
+     * Merges lists of results, each sorted from most to least relevant, into a single
+     * list of the best k results, most relevant first.
+     *
+     * This is a k-way merge: a heap holds the best remaining result of every list, so
+     * producing each result costs one heap operation no matter how many lists there are.
+     */
+    static IList<Result> mergeTopK(IList<IList<Result>> lists, int k) {
+        IPriorityQueue<ListCursor> heap = new ArrayHeap<>();
+        int index = 0;
+        for (IList<Result> list : lists) {
+            ListCursor cursor = new ListCursor(list, index);
+            if (cursor.hasCurrent()) {
+                heap.insert(cursor);
+            }
+            index++;
+        }
+
+        IList<Result> output = new DoubleLinkedList<>();
+        while (output.size() < k && !heap.isEmpty()) {
+            ListCursor best = heap.removeMin();
+            output.add(best.current());
+            best.advance();
+            if (best.hasCurrent()) {
+                heap.insert(best);
+            }
+        }
+        return output;
+    }
+
+    private IList<Result> search(ShardTask<IList<Result>> task, int k) {
+        @SuppressWarnings("unchecked")
+        IList<Result>[] results = this.runOnEveryShard(this.shards.length, task, (IList<Result>[]) new IList[this.shards.length]);
+        IList<IList<Result>> lists = new DoubleLinkedList<>();
+        for (IList<Result> list : results) {
+            lists.add(list);
+        }
+        return mergeTopK(lists, k);
+    }
+
+    /**
+     * Runs the task once per shard in parallel, filling 'output' with the results in
+     * shard order.
+     */
+    private <T> T[] runOnEveryShard(int numShards, ShardTask<T> task, T[] output) {
+        @SuppressWarnings("unchecked")
+        Future<T>[] futures = (Future<T>[]) new Future[numShards];
+        for (int shard = 0; shard < numShards; shard++) {
+            int current = shard;
+            futures[shard] = this.pool.submit((Callable<T>) () -> task.run(current));
+        }
+        try {
+            for (int shard = 0; shard < numShards; shard++) {
+                output[shard] = futures[shard].get();
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for shards", ex);
+        } catch (ExecutionException ex) {
+            if (ex.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) ex.getCause();
+            }
+            throw new IllegalStateException("A shard failed", ex.getCause());
+        }
+        return output;
+    }
+
+    private static ISet<Webpage> loadWebpages(String dataFolderName) {
+        Path root = Paths.get("data", dataFolderName);
+        Path pageCacheFile = Paths.get("data", dataFolderName + SearchEngine.PAGE_CACHE_EXTENSION);
+
+        long start = System.currentTimeMillis();
+        IList<Path> files = SearchEngine.findWebpageFiles(root);
+        CorpusManifest manifest = CorpusManifest.scan(root, files);
+        ISet<Webpage> webpages = SearchEngine.collectWebpages(root, manifest, pageCacheFile);
+        long end = System.currentTimeMillis() - start;
+        System.out.println("Done loading pages (" + (end / 1000.0) + " sec)");
+        return webpages;
+    }
+
+    private interface ShardTask<T> {
+        T run(int shard);
+    }
+
+    /**
+     * The position reached so far in one of the lists being merged. Cursors compare so
+     * that the one on the highest score comes first in a min-heap; ties go to the list
+     * given first, so the merge is deterministic.
+     */
+    private static class ListCursor implements Comparable<ListCursor> {
+        private final Result[] results;
+        private final int list;
+        private int position;
+
+        public ListCursor(IList<Result> results, int list) {
+            this.results = new Result[results.size()];
+            int i = 0;
+            for (Result result : results) {
+                this.results[i++] = result;
+            }
+            this.list = list;
+            this.position = 0;
+        }
+
+        public boolean hasCurrent() {
+            return this.position < this.results.length;
+        }
+
+        public Result current() {
+            return this.results[this.position];
+        }
+
+        public void advance() {
+            this.position++;
+        }
+
+        @Override
+        public int compareTo(ListCursor other) {
+            int byScore = Double.compare(other.current().getScore(), this.current().getScore());
+            return byScore != 0 ? byScore : Integer.compare(this.list, other.list);
+        }
+    }
+}
@@ -1,17 +1,33 @@
 package search;
 
 import datastructures.interfaces.IList;
+import org.eclipse.jetty.server.Server;
+import org.eclipse.jetty.util.thread.ExecutorThreadPool;
+import search.analyzers.BooleanQuery;
 import search.models.Result;
-import search.SearchEngine;
+import search.analyzers.SuggestionTrie;
+import search.misc.ChunkInputStream;
+import search.misc.Json;
+import search.misc.RequestLimiter;
+import search.misc.TemplateCache;
 import search.misc.WordTokenizer;
-import spark.ModelAndView;
+import search.misc.exceptions.OverloadedException;
 import spark.Request;
 import spark.Response;
+import spark.Route;
 import spark.Service;
-import spark.template.mustache.MustacheTemplateEngine;
+import spark.embeddedserver.EmbeddedServers;
+import spark.embeddedserver.jetty.EmbeddedJettyFactory;
+import spark.embeddedserver.jetty.JettyServerFactory;
 
+import java.io.UnsupportedEncodingException;
+import java.lang.reflect.Method;
+import java.net.URLEncoder;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Supplier;
 
 /**
  * Contains all code to manage and serve our website.
@@ -28,26 +44,57 @@ public class Webapp {
      */
     private static final String TEMPLATE_FILES = "webapp/templates";
 
+    /**
+     * API responses smaller than this are not worth gzipping.
+     */
+    private static final int GZIP_MIN_BYTES = 1024;
+
+    private static final byte[] COMMA = {','};
+
     private final String siteName;
-    private final SearchEngine engine;
+    private final ISearchEngine engine;
+    private final TemplateCache templates;
+    private final RequestLimiter queries;
     private final Service http;
 
     /**
      * Creates a new instance of this class.
      *
-     * @param engine    The SearchEngine we will be using to answer user queries
+     * @param engine    The search engine we will be using to answer user queries
      * @param siteName  The name of our website
      * @param port      The port to serve our website on.
      */
-    public Webapp(SearchEngine engine, String siteName, int port) {
+    public Webapp(ISearchEngine engine, String siteName, int port) {
+        this(engine, siteName, port, null, Main.MAX_CONCURRENT_QUERIES, Main.QUERY_QUEUE_TIMEOUT_MILLIS);
+    }
+
+    /**
+     * Creates a new instance of this class.
+     *
+     * @param engine             The search engine we will be using to answer user queries
+     * @param siteName           The name of our website
+     * @param port               The port to serve our website on.
+     * @param templateDevFolder  The folder to reload templates from whenever they change,
+     *                           or null to compile them once from the classpath.
+     * @param maxConcurrentQueries  How many search queries may be answered at once.
+     * @param queueTimeoutMillis    How long a search query may wait for its turn before
+     *                              being answered with "503 Service Unavailable".
+     */
+    public Webapp(ISearchEngine engine, String siteName, int port, String templateDevFolder,
+                  int maxConcurrentQueries, int queueTimeoutMillis) {
         this.engine = engine;
         this.siteName = siteName;
+        this.templates = new TemplateCache(TEMPLATE_FILES, templateDevFolder, "main.mustache", "search.mustache");
+        this.queries = new RequestLimiter(maxConcurrentQueries, queueTimeoutMillis);
 
         this.http = Service.ignite()
                 .staticFileLocation(STATIC_FILES)
                 .port(port);
         this.http.get("/", this::handleMain);
-        this.http.get("/search", this::handleSearch);
+        this.http.get("/search", this.limited(this::handleSearch));
+        this.http.get("/suggest", this::handleSuggest);
+        this.http.get("/api/search", this.limited(this::handleApiSearch));
+        this.http.exception(OverloadedException.class, this::handleOverloaded);
         this.http.exception(Exception.class, (ex, req, res) -> {
             ex.printStackTrace();
             res.status(500);
@@ -62,6 +109,72 @@ public class Webapp {
         this.http.init();
     }
 
+    /**
+     * Has Jetty answer every request on a virtual thread of its own, if this JVM has them.
+     * Queries waiting for their turn then don't tie up a pool thread each, so cheap
+     * requests are never stuck behind them.
+     *
+     * Virtual threads only exist from Java 21 on. On older versions this returns false
+     * and changes nothing, so Spark's usual, bounded thread pool is kept.
+     *
+     * Spark has a single factory for Jetty servers, shared by the whole process, so this
+     * applies to every Service started afterwards. Call it once, from main(), before any
+     * Webapp is created.
+     */
+    public static boolean useVirtualThreads() {
+        Method factory;
+        try {
+            // Looked up by name so this still runs on Java 8.
+            factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+        } catch (NoSuchMethodException ex) {
+            return false;
+        }
+        EmbeddedServers.add(EmbeddedServers.defaultIdentifier(), new EmbeddedJettyFactory(serverFactory(() -> {
+            try {
+                return (ExecutorService) factory.invoke(null);
+            } catch (ReflectiveOperationException ex) {
+                throw new IllegalStateException("Could not create virtual threads", ex);
+            }
+        })));
+        return true;
+    }
+
+    /**
+     * Returns a factory for Jetty servers that run every task on an executor from the
+     * given supplier, rather than on a thread pool of Jetty's own. Spark's thread count
+     * settings are ignored: the executor decides how many threads there are.
+     */
+    static JettyServerFactory serverFactory(Supplier<ExecutorService> executors) {
+        return (maxThreads, minThreads, idleTimeoutMillis) -> new Server(new ExecutorThreadPool(executors.get()));
+    }
+
+    /**
+     * Wraps the given route so it waits for its turn at the query limit, which bounds how
+     * many queries are answered at once. The home page and autocomplete are cheap, so
+     * they are always answered straight away.
+     */
+    private Route limited(Route route) {
+        return (req, res) -> this.queries.execute(() -> route.handle(req, res));
+    }
+
+    /**
+     * Handles queries turned away because too many others were ahead of them. Answering
+     * right away, rather than once the queue finally gets to them, keeps a burst of
+     * queries from slowing every later one down too.
+     */
+    private void handleOverloaded(Exception ex, Request req, Response res) {
+        // Whole seconds, rounded up.
+        int retryAfter = Math.max(1, (this.queries.getQueueTimeoutMillis() + 999) / 1000);
+        res.status(503);
+        res.header("Retry-After", String.valueOf(retryAfter));
+        if (req.pathInfo().startsWith("/api/")) {
+            res.type("application/json");
+            res.body("{\"error\":\"overloaded\"}");
+        } else {
+            res.body("<h1>503 Service Unavailable</h1><p>Too many searches right now. Please try again shortly.</p>");
+        }
+    }
+
     /**
      * Handles all incoming requests for our home page.
      */
@@ -75,17 +188,34 @@ public class Webapp {
     /**
      * Handles all incoming user queries.
      */
-    private String handleSearch(Request req, Response res) {
+    private String handleSearch(Request req, Response res) throws UnsupportedEncodingException {
         // Get search query
         String query = req.queryParams("query");
         int numResults = Integer.parseInt(req.queryParamOrDefault("num_results", "20"));
 
-        // Perform core search
-        IList<String> queryTerms = WordTokenizer.extract(query);
-        IList<Result> results = this.engine.getTopKResults(queryTerms, numResults);
+        // Perform core search. Words in "double quotes" must appear as an exact phrase,
+        // and queries using AND, OR or NOT only return pages matching the expression.
+        IList<Result> results;
+        Map<String, Object> model = new HashMap<>();
+        BooleanQuery booleanQuery = BooleanQuery.parse(query);
+        if (booleanQuery != null) {
+            results = this.engine.getTopKResults(booleanQuery, numResults);
+        } else {
+            IList<String> queryTerms = WordTokenizer.extract(query);
+            IList<IList<String>> phrases = WordTokenizer.extractPhrases(query);
+            results = this.engine.getTopKResults(queryTerms, phrases, numResults);
+
+            // Offer a correction if any word appears nowhere: such words are simply
+            // ignored when ranking. Quoted phrases are left alone.
+            IList<String> corrected = phrases.isEmpty() ? this.engine.correctSpelling(queryTerms) : null;
+            if (corrected != null) {
+                String didYouMean = String.join(" ", corrected);
+                model.put("didYouMean", didYouMean);
+                model.put("didYouMeanUrl", "/search?query=" + URLEncoder.encode(didYouMean, "UTF-8"));
+            }
+        }
 
         // Render results
-        Map<String, Object> model = new HashMap<>();
         model.put("siteTitle", this.siteName);
         model.put("results", results);
         model.put("initialQuery", query);
@@ -93,8 +223,66 @@ public class Webapp {
         return this.render("search.mustache", model);
     }
 
+    /**
+     * Handles autocomplete requests, sent as the user types. Responds with a JSON array
+     * of completed queries.
+     */
+    private String handleSuggest(Request req, Response res) {
+        String prefix = req.queryParamOrDefault("prefix", "");
+        int limit = Integer.parseInt(req.queryParamOrDefault(
+                "limit", String.valueOf(SuggestionTrie.MAX_SUGGESTIONS)));
+        limit = Math.max(0, Math.min(limit, SuggestionTrie.MAX_SUGGESTIONS));
+
+        res.type("application/json");
+        return Json.array(this.engine.suggest(prefix, limit));
+    }
+
+    /**
+     * Handles search queries sent by programs rather than people. Responds with the
+     * results as JSON:
+     *
+     *     {"query":"...","results":[{"uri":"...","title":"...","blurb":"...","score":0.5},...]}
+     *
+     * Every page's JSON is encoded once, when it is indexed (see WebpageSummary.toJson),
+     * so all we write per result is its score. The response is streamed out as-is, and
+     * gzipped if the client accepts it and it's big enough to be worth compressing.
+     */
+    private Object handleApiSearch(Request req, Response res) {
+        String query = req.queryParamOrDefault("query", "");
+        int numResults = Integer.parseInt(req.queryParamOrDefault("num_results", "20"));
+
+        IList<Result> results;
+        BooleanQuery booleanQuery = BooleanQuery.parse(query);
+        if (booleanQuery != null) {
+            results = this.engine.getTopKResults(booleanQuery, numResults);
+        } else {
+            results = this.engine.getTopKResults(
+                    WordTokenizer.extract(query), WordTokenizer.extractPhrases(query), numResults);
+        }
+
+        ChunkInputStream body = new ChunkInputStream();
+        body.add("{\"query\":" + Json.quote(query) + ",\"results\":[");
+        boolean first = true;
+        for (Result result : results) {
+            if (!first) {
+                body.add(COMMA);
+            }
+            body.add(result.getSummary().toJson());
+            body.add(",\"score\":" + result.getScore() + "}");
+            first = false;
+        }
+        body.add("]}");
+
+        res.type("application/json");
+        String acceptEncoding = req.headers("Accept-Encoding");
+        if (body.length() >= GZIP_MIN_BYTES && acceptEncoding != null && acceptEncoding.contains("gzip")) {
+            // Spark compresses the body itself once this header is set.
+            res.header("Content-Encoding", "gzip");
+        }
+        return body;
+    }
+
     private String render(String templateName, Map<String, Object> params) {
-        return new MustacheTemplateEngine(TEMPLATE_FILES).render(
-                new ModelAndView(params, templateName));
+        return this.templates.render(templateName, params);
     }
 }
@@ -0,0 +1,283 @@
+package search.analyzers;
+
+import datastructures.interfaces.IList;
+
+import java.util.Arrays;
+import java.util.function.IntToDoubleFunction;
+
+/**
+ * This class scores documents against a query using Okapi BM25, as an alternative to
+ * the cosine similarity of TF-IDF vectors computed by TfIdfAnalyzer.
+ *
+ * A document's BM25 score is a sum over the query's words t:
+ *
+ *     score(q, d) = sum over t of idf(t) * (K1 + 1) * tf(t, d) / (tf(t, d) + K1 * (1 - B + B * |d| / avg))
+ *
+ * where tf(t, d) is the number of times t appears in d, |d| is the number of words in
+ * d and avg is the average number of words per document. Unlike TF-IDF, repeating a
+ * word over and over quickly stops paying off, and long documents are only partly
+ * penalized for their length.
+ *
+ * Everything the formula needs is kept in primitive arrays: the term frequencies are
+ * stored alongside each posting list, in the same order, and the length part of the
+ * denominator is computed once per document. Scoring a posting is then an array
+ * lookup, an addition and a division.
+ *
+ * The term frequencies are recovered by counting positions in a PositionalIndex, so
+ * nothing extra needs to be stored in an index snapshot.
+ */
+public class Bm25Analyzer {
+    // How quickly repeating a word stops increasing the score.
+    public static final double K1 = 1.2;
+
+    // How much a document's length is taken into account, from 0 (not at all) to 1.
+    public static final double B = 0.75;
+
+    private static final int[] NO_DOCUMENTS = new int[0];
+
+    private InvertedIndex index;
+
+    // Maps each word id to its IDF score.
+    private double[] idfScores;
+
+    // Maps each word id to the number of times it appears in every page of its posting
+    // list, in the same order as the posting list.
+    private int[][] frequencies;
+
+    // Maps each document id to the number of words in it.
+    private int[] documentLengths;
+
+    // Maps each document id to K1 * (1 - B + B * |d| / avg).
+    private double[] lengthNorms;
+
+    /**
+     * Computes the term frequencies and document lengths of every page in the index.
+     *
+     * If tfIdf was built for one shard of a larger corpus, document frequencies are
+     * taken from the statistics of the whole corpus, as TfIdfAnalyzer does. The average
+     * document length is still that of the shard, which is close enough when pages are
+     * spread across shards at random.
+     *
+     * @param positions  A positional index built against the same inverted index.
+     */
+    public Bm25Analyzer(InvertedIndex index, PositionalIndex positions, TfIdfAnalyzer tfIdf) {
+        this.index = index;
+        TermDictionary terms = tfIdf.getTerms();
+        int numTerms = terms.size();
+        int numDocuments = tfIdf.numDocuments();
+
+        this.frequencies = new int[numTerms][];
+        this.documentLengths = new int[numDocuments];
+        long totalLength = 0;
+        for (int term = 0; term < numTerms; term++) {
+            PostingList.Cursor cursor = index.getPostingList(term).cursor();
+            int[] counts = new int[index.getDocumentFrequency(term)];
+            for (int i = 0; i < counts.length; i++) {
+                counts[i] = positions.countPositions(term, i);
+                this.documentLengths[cursor.document()] += counts[i];
+                totalLength += counts[i];
+                cursor.next();
+            }
+            this.frequencies[term] = counts;
+        }
+
+        double averageLength = numDocuments == 0 ? 0.0 : (double) totalLength / numDocuments;
+        this.lengthNorms = new double[numDocuments];
+        for (int id = 0; id < numDocuments; id++) {
+            double relativeLength = averageLength == 0.0 ? 0.0 : this.documentLengths[id] / averageLength;
+            this.lengthNorms[id] = K1 * (1 - B + B * relativeLength);
+        }
+
+        CorpusStatistics statistics = tfIdf.getStatistics();
+        int[] documentFrequencies = new int[numTerms];
+        int corpusSize = statistics == null ? numDocuments : statistics.numDocuments();
+        for (int term = 0; term < numTerms; term++) {
+            documentFrequencies[term] = statistics == null
+                    ? index.getDocumentFrequency(term)
+                    : statistics.getDocumentFrequency(terms.getTerm(term));
+        }
+        this.idfScores = new double[numTerms];
+        for (int term = 0; term < numTerms; term++) {
+            // Unlike log(N / df), this never drops to zero for words found in every page.
+            double df = documentFrequencies[term];
+            this.idfScores[term] = Math.log(1 + (corpusSize - df + 0.5) / (df + 0.5));
+        }
+    }
+
+    /**
+     * Returns the IDF score of the word with the given id.
+     */
+    public double getIdf(int term) {
+        return this.idfScores[term];
+    }
+
+    /**
+     * Returns the number of words in the document with the given id.
+     */
+    public int getDocumentLength(int documentId) {
+        return this.documentLengths[documentId];
+    }
+
+    /**
+     * Looks up the words of the given query once, so it can be compared against many
+     * documents. Words found nowhere in the index are dropped, since they add nothing
+     * to any score.
+     */
+    public PreparedQuery prepareQuery(IList<String> query) {
+        int[] ids = new int[query.size()];
+        int count = 0;
+        for (String word : query) {
+            int id = this.index.getTermId(word);
+            if (id != TermDictionary.NOT_FOUND) {
+                ids[count] = id;
+                count++;
+            }
+        }
+        Arrays.sort(ids, 0, count);
+
+        // A word repeated in the query counts once per repetition.
+        int unique = 0;
+        for (int i = 0; i < count; i++) {
+            if (i == 0 || ids[i] != ids[i - 1]) {
+                unique++;
+            }
+        }
+        int[] terms = new int[unique];
+        double[] weights = new double[unique];
+        int next = -1;
+        for (int i = 0; i < count; i++) {
+            if (i == 0 || ids[i] != ids[i - 1]) {
+                next++;
+                terms[next] = ids[i];
+            }
+            weights[next] += this.idfScores[ids[i]] * (K1 + 1);
+        }
+        return new PreparedQuery(terms, weights);
+    }
+
+    /**
+     * Passes every document containing at least one of the query's words to the
+     * collector, scored by BM25 multiplied by the given per-document boost.
+     *
+     * The posting lists are walked side by side, one document at a time, so each
+     * document's score is finished before moving on and no per-document state is kept.
+     */
+    public void findTopK(PreparedQuery query, IntToDoubleFunction boosts, TopKCollector collector) {
+        this.findTopK(query, boosts, collector, NO_DOCUMENTS);
+    }
+
+    /**
+     * Like findTopK(query, boosts, collector), but never collects any of the given
+     * documents, which the caller has already scored its own way.
+     *
+     * @param skip  Document ids, in increasing order.
+     */
+    public void findTopK(PreparedQuery query, IntToDoubleFunction boosts, TopKCollector collector, int[] skip) {
+        int count = query.terms.length;
+        if (collector.capacity() == 0 || count == 0) {
+            return;
+        }
+        PostingList.Cursor[] cursors = query.newCursors();
+        int nextSkip = 0;
+        while (true) {
+            int document = PostingList.NO_MORE_DOCUMENTS;
+            for (PostingList.Cursor cursor : cursors) {
+                document = Math.min(document, cursor.document());
+            }
+            if (document == PostingList.NO_MORE_DOCUMENTS) {
+                return;
+            }
+            while (nextSkip < skip.length && skip[nextSkip] < document) {
+                nextSkip++;
+            }
+            if (nextSkip < skip.length && skip[nextSkip] == document) {
+                for (PostingList.Cursor cursor : cursors) {
+                    if (cursor.document() == document) {
+                        cursor.next();
+                    }
+                }
+                continue;
+            }
+
+            double lengthNorm = this.lengthNorms[document];
+            double score = 0.0;
+            for (int i = 0; i < count; i++) {
+                PostingList.Cursor cursor = cursors[i];
+                if (cursor.document() == document) {
+                    int tf = this.frequencies[query.terms[i]][cursor.position()];
+                    score += query.weights[i] * tf / (tf + lengthNorm);
+                    cursor.next();
+                }
+            }
+            collector.collect(document, score * boosts.applyAsDouble(document));
+        }
+    }
+
+    /**
+     * Scores each of the given documents for the query, multiplied by the given
+     * per-document boost, and passes them all to the collector.
+     *
+     * @param documents  Document ids, in increasing order.
+     */
+    public void scoreDocuments(PreparedQuery query, int[] documents, IntToDoubleFunction boosts,
+                               TopKCollector collector) {
+        PostingList.Cursor[] cursors = query.newCursors();
+        for (int document : documents) {
+            collector.collect(document, this.score(query, cursors, document) * boosts.applyAsDouble(document));
+        }
+    }
+
+    private double score(PreparedQuery query, PostingList.Cursor[] cursors, int document) {
+        double lengthNorm = this.lengthNorms[document];
+        double score = 0.0;
+        for (int i = 0; i < cursors.length; i++) {
+            PostingList.Cursor cursor = cursors[i];
+            cursor.advance(document);
+            if (cursor.document() == document) {
+                int tf = this.frequencies[query.terms[i]][cursor.position()];
+                score += query.weights[i] * tf / (tf + lengthNorm);
+            }
+        }
+        return score;
+    }
+
+    /**
+     * Represents a query whose words have already been looked up.
+     */
+    public class PreparedQuery {
+        private final int[] terms;
+        private final double[] weights;
+
+        // Reused by computeRelevance(...) for as long as documents come in increasing order.
+        private PostingList.Cursor[] cursors;
+        private int lastDocument;
+
+        private PreparedQuery(int[] terms, double[] weights) {
+            this.terms = terms;
+            this.weights = weights;
+            this.cursors = null;
+            this.lastDocument = -1;
+        }
+
+        /**
+         * Returns the BM25 score of the document with the given id.
+         *
+         * This is fastest when called with document ids in increasing order.
+         */
+        public double computeRelevance(int documentId) {
+            if (this.cursors == null || documentId < this.lastDocument) {
+                this.cursors = this.newCursors();
+            }
+            this.lastDocument = documentId;
+            return score(this, this.cursors, documentId);
+        }
+
+        private PostingList.Cursor[] newCursors() {
+            PostingList.Cursor[] output = new PostingList.Cursor[this.terms.length];
+            for (int i = 0; i < this.terms.length; i++) {
+                output[i] = index.getPostingList(this.terms[i]).cursor();
+            }
+            return output;
+        }
+    }
+}
@@ -0,0 +1,374 @@
+package search.analyzers;
+
+import datastructures.concrete.DoubleLinkedList;
+import datastructures.interfaces.IList;
+import search.misc.WordTokenizer;
+
+/**
+ * A search query written using the AND, OR and NOT operators, such as
+ *
+ *     seattle AND (rain OR snow) NOT "seattle times"
+ *
+ * Operators must be written in upper case, so an ordinary query containing the word
+ * "and" is not affected. NOT binds tightest, then AND, then OR; words written next to
+ * each other with no operator between them are joined with AND, and parentheses group
+ * as usual. Text in double quotes is an exact phrase.
+ *
+ * A query is evaluated by combining the posting lists of its words: see
+ * DocumentIterators for how that is done without scanning the whole corpus.
+ */
+public abstract class BooleanQuery {
+    private static final String AND = "AND";
+    private static final String OR = "OR";
+    private static final String NOT = "NOT";
+
+    /**
+     * Parses the given search query.
+     *
+     * Returns null if the query doesn't use any of the operators, meaning it should be
+     * treated as an ordinary ranked query. Mistakes like unbalanced parentheses or an
+     * operator with nothing after it are ignored rather than rejected.
+     */
+    public static BooleanQuery parse(String input) {
+        IList<String> tokens = tokenize(input);
+        boolean hasOperator = false;
+        for (String token : tokens) {
+            hasOperator |= token.equals(AND) || token.equals(OR) || token.equals(NOT);
+        }
+        if (!hasOperator) {
+            return null;
+        }
+        Parser parser = new Parser(tokens);
+        IList<BooleanQuery> parts = new DoubleLinkedList<>();
+        Parser.addIfPresent(parts, parser.parseOr());
+        while (parser.hasNext()) {
+            // Only a stray closing parenthesis stops the parser early: skip it and go on.
+            parser.skip();
+            Parser.addIfPresent(parts, parser.parseOr());
+        }
+        if (parts.isEmpty()) {
+            return null;
+        }
+        return parts.size() == 1 ? parts.get(0) : new And(parts);
+    }
+
+    /**
+     * Returns the sorted ids of every document matching this query.
+     */
+    public int[] findMatches(InvertedIndex index, PositionalIndex positions) {
+        return DocumentIterators.toArray(this.iterator(index, positions));
+    }
+
+    /**
+     * Returns every word this query asks for, leaving out words it excludes using NOT.
+     * These are the words matching documents are ranked by.
+     */
+    public IList<String> getPositiveWords() {
+        IList<String> output = new DoubleLinkedList<>();
+        this.collectPositiveWords(output);
+        return output;
+    }
+
+    abstract DocumentIterator iterator(InvertedIndex index, PositionalIndex positions);
+
+    abstract void collectPositiveWords(IList<String> output);
+
+    /**
+     * Returns this query written out in full, with every group in parentheses. Two
+     * queries with the same string form always match the same documents.
+     */
+    @Override
+    public abstract String toString();
+
+    /**
+     * Splits the input into words, quoted phrases (kept with their quotes), and
+     * parentheses.
+     */
+    private static IList<String> tokenize(String input) {
+        IList<String> tokens = new DoubleLinkedList<>();
+        StringBuilder current = new StringBuilder();
+        int i = 0;
+        while (i < input.length()) {
+            char c = input.charAt(i);
+            if (c == '"') {
+                int end = input.indexOf('"', i + 1);
+                if (end == -1) {
+                    end = input.length();
+                }
+                flush(current, tokens);
+                tokens.add(input.substring(i, Math.min(end + 1, input.length())));
+                i = end + 1;
+                continue;
+            }
+            if (c == '(' || c == ')') {
+                flush(current, tokens);
+                tokens.add(String.valueOf(c));
+            } else if (Character.isWhitespace(c)) {
+                flush(current, tokens);
+            } else {
+                current.append(c);
+            }
+            i++;
+        }
+        flush(current, tokens);
+        return tokens;
+    }
+
+    private static void flush(StringBuilder current, IList<String> tokens) {
+        if (current.length() > 0) {
+            tokens.add(current.toString());
+            current.setLength(0);
+        }
+    }
+
+    /**
+     * A recursive descent parser over the query's tokens.
+     */
+    private static class Parser {
+        private final String[] tokens;
+        private int next;
+
+        public Parser(IList<String> tokens) {
+            this.tokens = new String[tokens.size()];
+            int i = 0;
+            for (String token : tokens) {
+                this.tokens[i++] = token;
+            }
+            this.next = 0;
+        }
+
+        public boolean hasNext() {
+            return this.next < this.tokens.length;
+        }
+
+        public void skip() {
+            this.next++;
+        }
+
+        private boolean peek(String token) {
+            return this.hasNext() && this.tokens[this.next].equals(token);
+        }
+
+        // or := and ("OR" and)*
+        public BooleanQuery parseOr() {
+            IList<BooleanQuery> children = new DoubleLinkedList<>();
+            addIfPresent(children, this.parseAnd());
+            while (this.peek(OR)) {
+                this.next++;
+                addIfPresent(children, this.parseAnd());
+            }
+            return children.isEmpty() ? null : children.size() == 1 ? children.get(0) : new Or(children);
+        }
+
+        // and := not (["AND"] not)*
+        private BooleanQuery parseAnd() {
+            IList<BooleanQuery> children = new DoubleLinkedList<>();
+            while (this.hasNext() && !this.peek(OR) && !this.peek(")")) {
+                if (this.peek(AND)) {
+                    this.next++;
+                    continue;
+                }
+                addIfPresent(children, this.parseNot());
+            }
+            return children.isEmpty() ? null : children.size() == 1 ? children.get(0) : new And(children);
+        }
+
+        // not := "NOT" not | "(" or ")" | phrase | word
+        private BooleanQuery parseNot() {
+            String token = this.tokens[this.next++];
+            if (token.equals(NOT)) {
+                if (!this.hasNext() || this.peek(OR) || this.peek(")") || this.peek(AND)) {
+                    return null;
+                }
+                BooleanQuery child = this.parseNot();
+                return child == null ? null : new Not(child);
+            } else if (token.equals("(")) {
+                BooleanQuery child = this.parseOr();
+                if (this.peek(")")) {
+                    this.next++;
+                }
+                return child;
+            }
+            // A word can only turn into nothing (if it was all punctuation) or a single
+            // word, but a phrase can contain any number of words.
+            IList<String> words = WordTokenizer.extract(token);
+            if (words.isEmpty()) {
+                return null;
+            }
+            return words.size() == 1 ? new Term(words.get(0)) : new Phrase(words);
+        }
+
+        public static void addIfPresent(IList<BooleanQuery> children, BooleanQuery child) {
+            if (child != null) {
+                children.add(child);
+            }
+        }
+    }
+
+    private static class Term extends BooleanQuery {
+        private final String word;
+
+        public Term(String word) {
+            this.word = word;
+        }
+
+        @Override
+        DocumentIterator iterator(InvertedIndex index, PositionalIndex positions) {
+            int term = index.getTermId(this.word);
+            if (term == TermDictionary.NOT_FOUND) {
+                return DocumentIterators.fromArray(new int[0]);
+            }
+            return index.getPostingList(term).cursor();
+        }
+
+        @Override
+        void collectPositiveWords(IList<String> output) {
+            output.add(this.word);
+        }
+
+        @Override
+        public String toString() {
+            return this.word;
+        }
+    }
+
+    private static class Phrase extends BooleanQuery {
+        private final IList<String> words;
+
+        public Phrase(IList<String> words) {
+            this.words = words;
+        }
+
+        @Override
+        DocumentIterator iterator(InvertedIndex index, PositionalIndex positions) {
+            IList<IList<String>> phrases = new DoubleLinkedList<>();
+            phrases.add(this.words);
+            return DocumentIterators.fromArray(positions.findPhrases(phrases));
+        }
+
+        @Override
+        void collectPositiveWords(IList<String> output) {
+            for (String word : this.words) {
+                output.add(word);
+            }
+        }
+
+        @Override
+        public String toString() {
+            return "\"" + String.join(" ", this.words) + "\"";
+        }
+    }
+
+    private static class Not extends BooleanQuery {
+        private final BooleanQuery child;
+
+        public Not(BooleanQuery child) {
+            this.child = child;
+        }
+
+        @Override
+        DocumentIterator iterator(InvertedIndex index, PositionalIndex positions) {
+            // Only reached when NOT isn't directly inside an AND, as in "NOT cat" on its own.
+            return DocumentIterators.intersect(
+                    new DocumentIterator[0],
+                    new DocumentIterator[] {this.child.iterator(index, positions)},
+                    index.size());
+        }
+
+        @Override
+        void collectPositiveWords(IList<String> output) {
+            // Excluded words don't count towards a page's ranking.
+        }
+
+        @Override
+        public String toString() {
+            return "NOT " + this.child;
+        }
+    }
+
+    private static class And extends BooleanQuery {
+        private final IList<BooleanQuery> children;
+
+        public And(IList<BooleanQuery> children) {
+            this.children = children;
+        }
+
+        @Override
+        DocumentIterator iterator(InvertedIndex index, PositionalIndex positions) {
+            // Negated children are skipped through rather than walked.
+            int numExcluded = 0;
+            for (BooleanQuery child : this.children) {
+                if (child instanceof Not) {
+                    numExcluded++;
+                }
+            }
+            DocumentIterator[] required = new DocumentIterator[this.children.size() - numExcluded];
+            DocumentIterator[] excluded = new DocumentIterator[numExcluded];
+            int r = 0;
+            int e = 0;
+            for (BooleanQuery child : this.children) {
+                if (child instanceof Not) {
+                    excluded[e++] = ((Not) child).child.iterator(index, positions);
+                } else {
+                    required[r++] = child.iterator(index, positions);
+                }
+            }
+            return DocumentIterators.intersect(required, excluded, index.size());
+        }
+
+        @Override
+        void collectPositiveWords(IList<String> output) {
+            for (BooleanQuery child : this.children) {
+                child.collectPositiveWords(output);
+            }
+        }
+
+        @Override
+        public String toString() {
+            return join(this.children, " AND ");
+        }
+    }
+
+    private static class Or extends BooleanQuery {
+        private final IList<BooleanQuery> children;
+
+        public Or(IList<BooleanQuery> children) {
+            this.children = children;
+        }
+
+        @Override
+        DocumentIterator iterator(InvertedIndex index, PositionalIndex positions) {
+            DocumentIterator[] iterators = new DocumentIterator[this.children.size()];
+            int i = 0;
+            for (BooleanQuery child : this.children) {
+                iterators[i++] = child.iterator(index, positions);
+            }
+            return DocumentIterators.union(iterators);
+        }
+
+        @Override
+        void collectPositiveWords(IList<String> output) {
+            for (BooleanQuery child : this.children) {
+                child.collectPositiveWords(output);
+            }
+        }
+
+        @Override
+        public String toString() {
+            return join(this.children, " OR ");
+        }
+    }
+
+    private static String join(IList<BooleanQuery> children, String separator) {
+        StringBuilder output = new StringBuilder("(");
+        boolean first = true;
+        for (BooleanQuery child : children) {
+            if (!first) {
+                output.append(separator);
+            }
+            output.append(child);
+            first = false;
+        }
+        return output.append(")").toString();
+    }
+}
@@ -0,0 +1,119 @@
+package search.analyzers;
+
+import datastructures.interfaces.IList;
+import search.misc.SnapshotIO;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Counts how many documents contain each word, across the whole corpus.
+ *
+ * When the corpus is split into shards, each shard only sees its own documents, but
+ * IDF scores must be computed from every document or the same page would score
+ * differently depending on which shard it landed in. Each shard therefore counts its
+ * own documents, the counts are merged, and every shard is built using the merged
+ * statistics.
+ */
+public class CorpusStatistics {
+    private TermDictionary terms;
+    private int[] documentFrequencies;
+    private int numDocuments;
+
+    /**
+     * Creates statistics for an empty corpus.
+     */
+    public CorpusStatistics() {
+        this.terms = new TermDictionary();
+        this.documentFrequencies = new int[16];
+        this.numDocuments = 0;
+    }
+
+    /**
+     * Counts a document containing the given words.
+     */
+    public void addDocument(IList<String> words) {
+        int[] ids = new int[words.size()];
+        int i = 0;
+        for (String word : words) {
+            ids[i++] = this.terms.add(word);
+        }
+        this.ensureCapacity(this.terms.size());
+
+        // Sorting puts repeats of the same word together, so each is counted once.
+        Arrays.sort(ids);
+        for (i = 0; i < ids.length; i++) {
+            if (i == 0 || ids[i] != ids[i - 1]) {
+                this.documentFrequencies[ids[i]]++;
+            }
+        }
+        this.numDocuments++;
+    }
+
+    /**
+     * Adds every document counted by the other statistics to these ones.
+     */
+    public void merge(CorpusStatistics other) {
+        for (int term = 0; term < other.terms.size(); term++) {
+            int id = this.terms.add(other.terms.getTerm(term));
+            this.ensureCapacity(this.terms.size());
+            this.documentFrequencies[id] += other.documentFrequencies[term];
+        }
+        this.numDocuments += other.numDocuments;
+    }
+
+    /**
+     * Returns the number of documents counted.
+     */
+    public int numDocuments() {
+        return this.numDocuments;
+    }
+
+    /**
+     * Returns the number of documents containing the given word.
+     */
+    public int getDocumentFrequency(String word) {
+        int term = this.terms.getId(word);
+        return term == TermDictionary.NOT_FOUND ? 0 : this.documentFrequencies[term];
+    }
+
+    /**
+     * Returns the IDF score of the given word, or 0.0 if no document contains it.
+     */
+    public double getIdf(String word) {
+        int frequency = this.getDocumentFrequency(word);
+        if (frequency == 0) {
+            return 0.0;
+        }
+        return Math.log((double) this.numDocuments / frequency);
+    }
+
+    /**
+     * Writes these statistics to the given stream. See load(...).
+     */
+    public void save(DataOutputStream out) throws IOException {
+        this.terms.save(out);
+        SnapshotIO.writeIntArray(out, Arrays.copyOf(this.documentFrequencies, this.terms.size()));
+        out.writeInt(this.numDocuments);
+    }
+
+    /**
+     * Reads back statistics previously written using save(...).
+     */
+    public static CorpusStatistics load(DataInputStream in) throws IOException {
+        CorpusStatistics statistics = new CorpusStatistics();
+        statistics.terms = TermDictionary.load(in);
+        statistics.documentFrequencies = SnapshotIO.readIntArray(in);
+        statistics.numDocuments = in.readInt();
+        return statistics;
+    }
+
+    private void ensureCapacity(int size) {
+        if (size > this.documentFrequencies.length) {
+            this.documentFrequencies = Arrays.copyOf(
+                    this.documentFrequencies, Math.max(size, 2 * this.documentFrequencies.length));
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package search.analyzers;
+
+/**
+ * Walks forwards through a sorted set of document ids.
+ *
+ * Every iterator starts on its first id, and document() returns
+ * PostingList.NO_MORE_DOCUMENTS once it has moved past the last one.
+ */
+public interface DocumentIterator {
+    /**
+     * Returns the id the iterator is on, or PostingList.NO_MORE_DOCUMENTS if there are
+     * none left.
+     */
+    int document();
+
+    /**
+     * Moves to the next id.
+     */
+    void next();
+
+    /**
+     * Moves forwards to the first id greater than or equal to the target. Does nothing
+     * if the iterator is already there.
+     */
+    void advance(int target);
+
+    /**
+     * Returns an estimate of how many ids this iterator produces in total, used to
+     * decide which iterators to walk and which to skip through.
+     */
+    int cost();
+}
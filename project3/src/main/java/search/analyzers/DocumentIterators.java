@@ -0,0 +1,281 @@
+package search.analyzers;
+
+import java.util.Arrays;
+
+/**
+ * Ways of building and combining DocumentIterators.
+ *
+ * Intersections leapfrog: the cheapest iterator proposes a document and every other
+ * iterator jumps straight to it using advance(...), which skips whole blocks of a
+ * posting list at a time. An intersection therefore costs time proportional to its
+ * shortest input rather than to the size of the corpus.
+ */
+public class DocumentIterators {
+    private DocumentIterators() {
+    }
+
+    /**
+     * Returns an iterator over the given sorted, duplicate-free array of ids.
+     */
+    public static DocumentIterator fromArray(int[] documents) {
+        return new ArrayIterator(documents);
+    }
+
+    /**
+     * Returns an iterator over every id from 0 up to (but not including) numDocuments.
+     */
+    public static DocumentIterator all(int numDocuments) {
+        return new RangeIterator(numDocuments);
+    }
+
+    /**
+     * Returns an iterator over the ids found in every one of the required iterators but
+     * in none of the excluded ones. If there are no required iterators, the result is
+     * every id below numDocuments that isn't excluded.
+     */
+    public static DocumentIterator intersect(DocumentIterator[] required, DocumentIterator[] excluded,
+                                             int numDocuments) {
+        if (required.length == 0) {
+            required = new DocumentIterator[] {all(numDocuments)};
+        }
+        if (required.length == 1 && excluded.length == 0) {
+            return required[0];
+        }
+        return new Intersection(required, excluded);
+    }
+
+    /**
+     * Returns an iterator over the ids found in at least one of the given iterators.
+     */
+    public static DocumentIterator union(DocumentIterator[] iterators) {
+        if (iterators.length == 1) {
+            return iterators[0];
+        }
+        return new Union(iterators);
+    }
+
+    /**
+     * Runs the iterator to the end, returning every id it produces.
+     */
+    public static int[] toArray(DocumentIterator iterator) {
+        int[] output = new int[Math.max(16, Math.min(iterator.cost(), 1 << 20))];
+        int size = 0;
+        for (int document = iterator.document();
+                document != PostingList.NO_MORE_DOCUMENTS;
+                document = iterator.document()) {
+            if (size == output.length) {
+                output = Arrays.copyOf(output, 2 * size);
+            }
+            output[size++] = document;
+            iterator.next();
+        }
+        return Arrays.copyOf(output, size);
+    }
+
+    private static class ArrayIterator implements DocumentIterator {
+        private final int[] documents;
+        private int index;
+
+        public ArrayIterator(int[] documents) {
+            this.documents = documents;
+            this.index = 0;
+        }
+
+        @Override
+        public int document() {
+            return this.index < this.documents.length ? this.documents[this.index] : PostingList.NO_MORE_DOCUMENTS;
+        }
+
+        @Override
+        public void next() {
+            this.index++;
+        }
+
+        @Override
+        public void advance(int target) {
+            // Gallop forwards, then binary search within the last step.
+            int step = 1;
+            int low = this.index;
+            int high = this.index;
+            while (high < this.documents.length && this.documents[high] < target) {
+                low = high + 1;
+                high += step;
+                step *= 2;
+            }
+            high = Math.min(high, this.documents.length);
+            while (low < high) {
+                int middle = (low + high) >>> 1;
+                if (this.documents[middle] < target) {
+                    low = middle + 1;
+                } else {
+                    high = middle;
+                }
+            }
+            this.index = low;
+        }
+
+        @Override
+        public int cost() {
+            return this.documents.length;
+        }
+    }
+
+    private static class RangeIterator implements DocumentIterator {
+        private final int end;
+        private int document;
+
+        public RangeIterator(int end) {
+            this.end = end;
+            this.document = 0;
+        }
+
+        @Override
+        public int document() {
+            return this.document < this.end ? this.document : PostingList.NO_MORE_DOCUMENTS;
+        }
+
+        @Override
+        public void next() {
+            this.document++;
+        }
+
+        @Override
+        public void advance(int target) {
+            this.document = Math.max(this.document, target);
+        }
+
+        @Override
+        public int cost() {
+            return this.end;
+        }
+    }
+
+    private static class Intersection implements DocumentIterator {
+        private final DocumentIterator[] required;
+        private final DocumentIterator[] excluded;
+        private int document;
+
+        public Intersection(DocumentIterator[] required, DocumentIterator[] excluded) {
+            // Let the cheapest iterator lead.
+            this.required = required.clone();
+            Arrays.sort(this.required, (a, b) -> Integer.compare(a.cost(), b.cost()));
+            this.excluded = excluded;
+            this.document = this.align(this.required[0].document());
+        }
+
+        @Override
+        public int document() {
+            return this.document;
+        }
+
+        @Override
+        public void next() {
+            this.required[0].next();
+            this.document = this.align(this.required[0].document());
+        }
+
+        @Override
+        public void advance(int target) {
+            if (this.document >= target) {
+                return;
+            }
+            this.required[0].advance(target);
+            this.document = this.align(this.required[0].document());
+        }
+
+        @Override
+        public int cost() {
+            return this.required[0].cost();
+        }
+
+        /**
+         * Starting from the candidate the leading iterator is on, finds the first id
+         * every required iterator agrees on and no excluded iterator contains.
+         */
+        private int align(int candidate) {
+            DocumentIterator lead = this.required[0];
+            while (candidate != PostingList.NO_MORE_DOCUMENTS) {
+                boolean agreed = true;
+                for (int i = 1; i < this.required.length; i++) {
+                    this.required[i].advance(candidate);
+                    int other = this.required[i].document();
+                    if (other != candidate) {
+                        lead.advance(other);
+                        candidate = lead.document();
+                        agreed = false;
+                        break;
+                    }
+                }
+                if (!agreed) {
+                    continue;
+                }
+                for (DocumentIterator iterator : this.excluded) {
+                    iterator.advance(candidate);
+                    if (iterator.document() == candidate) {
+                        agreed = false;
+                        break;
+                    }
+                }
+                if (agreed) {
+                    return candidate;
+                }
+                lead.next();
+                candidate = lead.document();
+            }
+            return PostingList.NO_MORE_DOCUMENTS;
+        }
+    }
+
+    private static class Union implements DocumentIterator {
+        private final DocumentIterator[] iterators;
+        private int document;
+
+        public Union(DocumentIterator[] iterators) {
+            this.iterators = iterators;
+            this.document = this.findMin();
+        }
+
+        @Override
+        public int document() {
+            return this.document;
+        }
+
+        @Override
+        public void next() {
+            for (DocumentIterator iterator : this.iterators) {
+                if (iterator.document() == this.document) {
+                    iterator.next();
+                }
+            }
+            this.document = this.findMin();
+        }
+
+        @Override
+        public void advance(int target) {
+            if (this.document >= target) {
+                return;
+            }
+            for (DocumentIterator iterator : this.iterators) {
+                iterator.advance(target);
+            }
+            this.document = this.findMin();
+        }
+
+        @Override
+        public int cost() {
+            long total = 0;
+            for (DocumentIterator iterator : this.iterators) {
+                total += iterator.cost();
+            }
+            return (int) Math.min(Integer.MAX_VALUE, total);
+        }
+
+        private int findMin() {
+            int min = PostingList.NO_MORE_DOCUMENTS;
+            for (DocumentIterator iterator : this.iterators) {
+                min = Math.min(min, iterator.document());
+            }
+            return min;
+        }
+    }
+}
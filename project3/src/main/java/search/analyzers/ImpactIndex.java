@@ -0,0 +1,259 @@
+package search.analyzers;
+
+import java.net.URI;
+import java.util.Arrays;
+
+/**
+ * This class finds the top k pages for a query without scoring every page that
+ * contains one of the query words.
+ *
+ * A page's final score is its cosine similarity with the query, multiplied by the
+ * square root of its page rank. That product can be split up word by word:
+ *
+ *     score(q, d) = sum over words t of (q_t / |q|) * (d_t / |d| * sqrt(pageRank(d)))
+ *
+ * The right-hand factor depends only on the page, so we compute it ahead of time for
+ * every entry of every posting list (the entry's "impact"), and remember the largest
+ * impact in each list. Multiplying that by the query's weight for the word gives an
+ * upper bound on how much the word can ever add to a page's score.
+ *
+ * To save memory, each impact is quantized to a single byte, always rounding up. The
+ * quantized impacts are therefore only used to bound a page's score from above: pages
+ * that make it past the bound are scored exactly, so the final scores are the same
+ * as the ones computed by SearchEngine.computeScore.
+ *
+ * The search itself uses the MaxScore algorithm. Once we have k results, any word
+ * whose upper bound (plus the upper bounds of every weaker word) cannot beat the
+ * current k-th best score can't produce a new result on its own. We stop walking that
+ * word's posting list and only look pages up in it when a stronger word finds them.
+ */
+public class ImpactIndex {
+    // Impacts are quantized to this many levels above zero.
+    private static final int LEVELS = 255;
+
+    // Makes the quantization step very slightly larger than it needs to be, so that
+    // floating point rounding can never make a quantized impact smaller than the real one.
+    private static final double ROUNDING_SLACK = 1.0 + 1e-9;
+
+    private static final int[] NO_DOCUMENTS = new int[0];
+
+    private InvertedIndex index;
+
+    // Maps each word id to the quantized impact of every entry in its posting list.
+    private byte[][] impacts;
+
+    // Maps each word id to the amount one quantization level of its impacts is worth.
+    private double[] steps;
+
+    // Maps each word id to the largest impact in its posting list.
+    private double[] maxImpacts;
+
+    // Maps each document id to the square root of its page rank.
+    private double[] pageRankFactors;
+
+    /**
+     * Computes the impacts of every posting in the given index.
+     *
+     * @throws IllegalStateException  if some page has a page rank that isn't positive
+     */
+    public ImpactIndex(InvertedIndex index, TfIdfAnalyzer tfIdf, PageRankAnalyzer pageRank) {
+        this.index = index;
+        int numTerms = tfIdf.getTerms().size();
+        int numDocuments = tfIdf.numDocuments();
+
+        this.pageRankFactors = new double[numDocuments];
+        double[] scales = new double[numDocuments];
+        for (int id = 0; id < numDocuments; id++) {
+            URI uri = tfIdf.getUri(id);
+            double rank = pageRank.computePageRank(uri);
+            if (rank <= 0.0) {
+                throw new IllegalStateException(String.format(
+                        "Page '%s' had a page rank of '%f'; all page ranks should be positive and non-zero.",
+                        uri, rank));
+            }
+            this.pageRankFactors[id] = Math.sqrt(rank);
+            double norm = tfIdf.getNorm(id);
+            scales[id] = norm == 0.0 ? 0.0 : this.pageRankFactors[id] / norm;
+        }
+
+        // Pass 1: find the largest impact of each word, which sets its quantization step.
+        this.maxImpacts = new double[numTerms];
+        for (int id = 0; id < numDocuments; id++) {
+            SparseVector vector = tfIdf.getDocumentVector(id);
+            for (int i = 0; i < vector.size(); i++) {
+                int term = vector.getTerm(i);
+                this.maxImpacts[term] = Math.max(this.maxImpacts[term], vector.getWeight(i) * scales[id]);
+            }
+        }
+        this.steps = new double[numTerms];
+        this.impacts = new byte[numTerms][];
+        for (int term = 0; term < numTerms; term++) {
+            this.steps[term] = this.maxImpacts[term] / LEVELS * ROUNDING_SLACK;
+            this.impacts[term] = new byte[index.getPostingList(term).size()];
+        }
+
+        // Pass 2: quantize. Documents are visited in increasing id order, which is
+        // also the order they appear in every posting list.
+        int[] filled = new int[numTerms];
+        for (int id = 0; id < numDocuments; id++) {
+            SparseVector vector = tfIdf.getDocumentVector(id);
+            for (int i = 0; i < vector.size(); i++) {
+                int term = vector.getTerm(i);
+                double impact = vector.getWeight(i) * scales[id];
+                int level = 0;
+                if (impact > 0.0) {
+                    level = (int) Math.min(LEVELS, Math.ceil(impact / this.steps[term]));
+                }
+                this.impacts[term][filled[term]] = (byte) level;
+                filled[term]++;
+            }
+        }
+    }
+
+    /**
+     * Returns the largest amount the word with the given id can add to any page's
+     * score, per unit of query weight.
+     */
+    public double getMaxImpact(int term) {
+        return this.maxImpacts[term];
+    }
+
+    /**
+     * Returns the square root of the page rank of the document with the given id, which
+     * every relevance score is multiplied by.
+     */
+    public double getPageRankFactor(int documentId) {
+        return this.pageRankFactors[documentId];
+    }
+
+    /**
+     * Returns an upper bound on the impact of the given entry of the given word's
+     * posting list.
+     */
+    public double getImpactBound(int term, int position) {
+        return (this.impacts[term][position] & 0xFF) * this.steps[term];
+    }
+
+    /**
+     * Passes the highest scoring documents for the given query to the collector, until
+     * it holds the top k, where k is the collector's capacity.
+     *
+     * Documents that could not make it into the top k are skipped without being fully
+     * scored, so only documents with a non-zero score are ever collected.
+     */
+    public void findTopK(TfIdfAnalyzer.PreparedQuery query, TopKCollector collector) {
+        this.findTopK(query, collector, NO_DOCUMENTS);
+    }
+
+    /**
+     * Like findTopK(query, collector), but never collects any of the given documents.
+     *
+     * The caller may have already scored some documents its own way, and passed them
+     * to the collector: those documents are skipped here. If they already fill the
+     * collector with high enough scores, the search ends without walking the posting
+     * lists at all.
+     *
+     * @param skip  Document ids, in increasing order.
+     */
+    public void findTopK(TfIdfAnalyzer.PreparedQuery query, TopKCollector collector, int[] skip) {
+        SparseVector vector = query.getVector();
+        if (collector.capacity() == 0 || vector.size() == 0) {
+            return;
+        }
+
+        // Sort the query's words from the weakest upper bound to the strongest.
+        int count = vector.size();
+        Integer[] order = new Integer[count];
+        double[] bounds = new double[count];
+        for (int i = 0; i < count; i++) {
+            order[i] = i;
+            bounds[i] = vector.getWeight(i) / query.getNorm() * this.maxImpacts[vector.getTerm(i)];
+        }
+        Arrays.sort(order, (a, b) -> Double.compare(bounds[a], bounds[b]));
+
+        PostingList.Cursor[] cursors = new PostingList.Cursor[count];
+        byte[][] impacts = new byte[count][];
+        double[] weights = new double[count];
+        double[] cumulativeBounds = new double[count];
+        for (int i = 0; i < count; i++) {
+            int term = vector.getTerm(order[i]);
+            cursors[i] = this.index.getPostingList(term).cursor();
+            impacts[i] = this.impacts[term];
+            // Folding the quantization step into the query weight saves a multiply per posting.
+            weights[i] = vector.getWeight(order[i]) / query.getNorm() * this.steps[term];
+            cumulativeBounds[i] = bounds[order[i]] + (i > 0 ? cumulativeBounds[i - 1] : 0.0);
+        }
+
+        double threshold = collector.getThreshold();
+        // Words [0, firstEssential) can't produce a new result on their own.
+        int firstEssential = 0;
+        while (firstEssential < count && cumulativeBounds[firstEssential] <= threshold) {
+            firstEssential++;
+        }
+        int nextSkip = 0;
+
+        while (firstEssential < count) {
+            int document = PostingList.NO_MORE_DOCUMENTS;
+            for (int i = firstEssential; i < count; i++) {
+                document = Math.min(document, cursors[i].document());
+            }
+            if (document == PostingList.NO_MORE_DOCUMENTS) {
+                break;
+            }
+            while (nextSkip < skip.length && skip[nextSkip] < document) {
+                nextSkip++;
+            }
+            if (nextSkip < skip.length && skip[nextSkip] == document) {
+                for (int i = firstEssential; i < count; i++) {
+                    if (cursors[i].document() == document) {
+                        cursors[i].next();
+                    }
+                }
+                continue;
+            }
+
+            // Add up an upper bound on the document's score, giving up as soon as the
+            // remaining words can't lift it past the threshold.
+            double bound = 0.0;
+            for (int i = firstEssential; i < count; i++) {
+                PostingList.Cursor cursor = cursors[i];
+                if (cursor.document() == document) {
+                    bound += weights[i] * (impacts[i][cursor.position()] & 0xFF);
+                    cursor.next();
+                }
+            }
+            for (int i = firstEssential - 1; i >= 0; i--) {
+                if (bound + cumulativeBounds[i] <= threshold) {
+                    break;
+                }
+                PostingList.Cursor cursor = cursors[i];
+                cursor.advance(document);
+                if (cursor.document() == document) {
+                    bound += weights[i] * (impacts[i][cursor.position()] & 0xFF);
+                }
+            }
+            if (bound <= threshold) {
+                continue;
+            }
+
+            double score = query.computeRelevance(document) * this.pageRankFactors[document];
+            if (score > threshold && collector.collect(document, score)) {
+                threshold = collector.getThreshold();
+                while (firstEssential < count && cumulativeBounds[firstEssential] <= threshold) {
+                    firstEssential++;
+                }
+            }
+        }
+    }
+
+    /**
+     * Scores each of the given documents for the query, and passes them all to the
+     * collector. Use this when some other filter has already narrowed the candidates
+     * down to a handful of documents.
+     */
+    public void scoreDocuments(TfIdfAnalyzer.PreparedQuery query, int[] documents, TopKCollector collector) {
+        for (int document : documents) {
+            collector.collect(document, query.computeRelevance(document) * this.pageRankFactors[document]);
+        }
+    }
+}
@@ -0,0 +1,181 @@
+package search.analyzers;
+
+import datastructures.interfaces.IList;
+
+import java.net.URI;
+
+/**
+ * This class maps every word to the list of documents (its "posting list")
+ * that contain that word at least once.
+ *
+ * The index is built by transposing the document vectors of a TfIdfAnalyzer, so it
+ * shares that analyzer's word ids and document ids. Every posting list is stored
+ * as a compressed, sorted list of document ids (see PostingList). This lets the
+ * search engine find the handful of pages that could possibly match a query without
+ * looking at every page.
+ */
+public class InvertedIndex {
+    private static final int[] EMPTY_POSTINGS = new int[0];
+
+    private TfIdfAnalyzer analyzer;
+
+    // Maps each word id to the sorted ids of every document containing it.
+    private PostingList[] postings;
+
+    public InvertedIndex(TfIdfAnalyzer analyzer) {
+        this.analyzer = analyzer;
+        TermDictionary terms = analyzer.getTerms();
+
+        // Pass 1: count how many documents contain each word.
+        int[] counts = new int[terms.size()];
+        for (int id = 0; id < analyzer.numDocuments(); id++) {
+            SparseVector vector = analyzer.getDocumentVector(id);
+            for (int i = 0; i < vector.size(); i++) {
+                counts[vector.getTerm(i)]++;
+            }
+        }
+
+        // Pass 2: fill in the posting lists. Documents are visited in increasing id
+        // order, so every posting list stays sorted without any extra work.
+        int[][] uncompressed = new int[terms.size()][];
+        for (int term = 0; term < uncompressed.length; term++) {
+            uncompressed[term] = new int[counts[term]];
+            counts[term] = 0;
+        }
+        for (int id = 0; id < analyzer.numDocuments(); id++) {
+            SparseVector vector = analyzer.getDocumentVector(id);
+            for (int i = 0; i < vector.size(); i++) {
+                int term = vector.getTerm(i);
+                uncompressed[term][counts[term]] = id;
+                counts[term]++;
+            }
+        }
+
+        // Pass 3: compress each list, letting go of the uncompressed copy as we go.
+        this.postings = new PostingList[uncompressed.length];
+        for (int term = 0; term < uncompressed.length; term++) {
+            this.postings[term] = new PostingList(uncompressed[term]);
+            uncompressed[term] = null;
+        }
+    }
+
+    /**
+     * Returns the number of documents in this index.
+     */
+    public int size() {
+        return this.analyzer.numDocuments();
+    }
+
+    /**
+     * Returns the URI of the document with the given id.
+     */
+    public URI getUri(int documentId) {
+        return this.analyzer.getUri(documentId);
+    }
+
+    /**
+     * Returns the id assigned to the given page.
+     *
+     * @throws misc.exceptions.NoSuchKeyException  if the page is not in this index
+     */
+    public int getDocumentId(URI pageUri) {
+        return this.analyzer.getDocumentId(pageUri);
+    }
+
+    /**
+     * Returns the id of the given word, or TermDictionary.NOT_FOUND if no document
+     * contains it.
+     */
+    public int getTermId(String word) {
+        return this.analyzer.getTerms().getId(word);
+    }
+
+    /**
+     * Returns the sorted ids of every document containing the given word.
+     */
+    public int[] getPostings(String word) {
+        int term = this.analyzer.getTerms().getId(word);
+        if (term == TermDictionary.NOT_FOUND) {
+            return EMPTY_POSTINGS;
+        }
+        return this.postings[term].toArray();
+    }
+
+    /**
+     * Returns the sorted ids of every document containing the word with the given id.
+     */
+    public int[] getPostings(int term) {
+        return this.postings[term].toArray();
+    }
+
+    /**
+     * Returns the number of documents containing the word with the given id.
+     */
+    public int getDocumentFrequency(int term) {
+        return this.postings[term].size();
+    }
+
+    /**
+     * Returns the compressed posting list of the word with the given id.
+     */
+    public PostingList getPostingList(int term) {
+        return this.postings[term];
+    }
+
+    /**
+     * Returns the approximate number of bytes used by every posting list together.
+     */
+    public long getCompressedBytes() {
+        long total = 0;
+        for (PostingList list : this.postings) {
+            total += list.getCompressedBytes();
+        }
+        return total;
+    }
+
+    /**
+     * Returns the sorted ids of every document containing at least one of the
+     * words in the query. Only these documents can have a non-zero relevance.
+     */
+    public int[] findCandidates(IList<String> query) {
+        int[] candidates = EMPTY_POSTINGS;
+        for (String word : query) {
+            candidates = union(candidates, this.getPostings(word));
+        }
+        return candidates;
+    }
+
+    /**
+     * Merges two sorted id arrays into a single sorted array without duplicates.
+     */
+    private static int[] union(int[] a, int[] b) {
+        if (a.length == 0) {
+            return b;
+        } else if (b.length == 0 || a == b) {
+            return a;
+        }
+        int[] out = new int[a.length + b.length];
+        int i = 0;
+        int j = 0;
+        int size = 0;
+        while (i < a.length && j < b.length) {
+            if (a[i] < b[j]) {
+                out[size++] = a[i++];
+            } else if (a[i] > b[j]) {
+                out[size++] = b[j++];
+            } else {
+                out[size++] = a[i++];
+                j++;
+            }
+        }
+        while (i < a.length) {
+            out[size++] = a[i++];
+        }
+        while (j < b.length) {
+            out[size++] = b[j++];
+        }
+        int[] trimmed = new int[size];
+        System.arraycopy(out, 0, trimmed, 0, size);
+        return trimmed;
+    }
+}
@@ -0,0 +1,146 @@
+package search.analyzers;
+
+import datastructures.concrete.dictionaries.ChainedHashDictionary;
+import datastructures.interfaces.IDictionary;
+import datastructures.interfaces.ISet;
+import search.models.Webpage;
+
+import java.net.URI;
+import java.util.Arrays;
+
+/**
+ * An unweighted, directed graph of webpages stored in compressed sparse row form.
+ *
+ * Every page is given a dense integer id from 0 to size() - 1. Instead of keeping a
+ * set of URIs per page, the graph keeps every page's incoming links in one shared
+ * int array: the in-links of page 'v' are the entries of getInLinkSources() between
+ * getInLinkOffsets()[v] (inclusive) and getInLinkOffsets()[v + 1] (exclusive).
+ *
+ * Like before, links to pages outside the given set, self-links and duplicate links
+ * are omitted, so the graph is entirely "self-contained".
+ */
+public class LinkGraph {
+    private URI[] uris;
+    private IDictionary<URI, Integer> ids;
+
+    private int[] outDegrees;
+    private int[] inLinkOffsets;
+    private int[] inLinkSources;
+
+    public LinkGraph(ISet<Webpage> webpages) {
+        int n = webpages.size();
+        this.uris = new URI[n];
+        this.ids = new ChainedHashDictionary<>();
+        int nextId = 0;
+        for (Webpage page : webpages) {
+            this.uris[nextId] = page.getUri();
+            this.ids.put(page.getUri(), nextId);
+            nextId++;
+        }
+
+        // Pass 1: collect every edge as a (source, destination) pair.
+        this.outDegrees = new int[n];
+        int[] sources = new int[Math.max(n, 16)];
+        int[] destinations = new int[sources.length];
+        int numEdges = 0;
+        int[] scratch = new int[16];
+        for (Webpage page : webpages) {
+            int source = this.ids.get(page.getUri());
+            int count = 0;
+            for (URI link : page.getLinks()) {
+                Integer destination = this.ids.getOrDefault(link, null);
+                if (destination != null && destination != source) {
+                    if (count == scratch.length) {
+                        scratch = Arrays.copyOf(scratch, count * 2);
+                    }
+                    scratch[count] = destination;
+                    count++;
+                }
+            }
+
+            // Sort so duplicate links to the same page end up next to each other.
+            Arrays.sort(scratch, 0, count);
+            for (int i = 0; i < count; i++) {
+                if (i > 0 && scratch[i] == scratch[i - 1]) {
+                    continue;
+                }
+                if (numEdges == sources.length) {
+                    sources = Arrays.copyOf(sources, numEdges * 2);
+                    destinations = Arrays.copyOf(destinations, numEdges * 2);
+                }
+                sources[numEdges] = source;
+                destinations[numEdges] = scratch[i];
+                numEdges++;
+                this.outDegrees[source]++;
+            }
+        }
+
+        // Pass 2: bucket the edges by destination (a counting sort).
+        this.inLinkOffsets = new int[n + 1];
+        for (int i = 0; i < numEdges; i++) {
+            this.inLinkOffsets[destinations[i] + 1]++;
+        }
+        for (int v = 0; v < n; v++) {
+            this.inLinkOffsets[v + 1] += this.inLinkOffsets[v];
+        }
+        this.inLinkSources = new int[numEdges];
+        int[] next = Arrays.copyOf(this.inLinkOffsets, n);
+        for (int i = 0; i < numEdges; i++) {
+            this.inLinkSources[next[destinations[i]]] = sources[i];
+            next[destinations[i]]++;
+        }
+    }
+
+    /**
+     * Returns the number of pages in this graph.
+     */
+    public int size() {
+        return this.uris.length;
+    }
+
+    /**
+     * Returns the number of links stored in this graph.
+     */
+    public int numEdges() {
+        return this.inLinkSources.length;
+    }
+
+    /**
+     * Returns the URI of the page with the given id.
+     */
+    public URI getUri(int id) {
+        return this.uris[id];
+    }
+
+    /**
+     * Returns a dictionary mapping every page's URI to its id.
+     */
+    public IDictionary<URI, Integer> getIds() {
+        return this.ids;
+    }
+
+    /**
+     * Returns the number of out-links of every page, indexed by page id.
+     * The returned array must not be modified.
+     */
+    public int[] getOutDegrees() {
+        return this.outDegrees;
+    }
+
+    /**
+     * Returns the start offset of every page's in-links within getInLinkSources(),
+     * followed by one final entry equal to numEdges(). The returned array must not
+     * be modified.
+     */
+    public int[] getInLinkOffsets() {
+        return this.inLinkOffsets;
+    }
+
+    /**
+     * Returns the ids of the source pages of every link, grouped by destination page.
+     * The returned array must not be modified.
+     */
+    public int[] getInLinkSources() {
+        return this.inLinkSources;
+    }
+}
@@ -1,13 +1,20 @@
 package search.analyzers;
 
-import datastructures.concrete.ChainedHashSet;
 import datastructures.concrete.KVPair;
 import datastructures.concrete.dictionaries.ChainedHashDictionary;
 import datastructures.interfaces.IDictionary;
+import datastructures.interfaces.IList;
 import datastructures.interfaces.ISet;
+import search.misc.SnapshotIO;
 import search.models.Webpage;
 
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
 import java.net.URI;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
 
 
 /**
@@ -16,7 +23,12 @@ import java.net.URI;
  * See the spec for more details.
  */
 public class PageRankAnalyzer {
-    private IDictionary<URI, Double> pageRanks;
+    // In parallel mode, each fork-join task handles at most this many pages.
+    private static final int PAGES_PER_TASK = 4096;
+
+    // Maps each page's URI to the index of its rank within 'pageRanks'.
+    private IDictionary<URI, Integer> pageIds;
+    private double[] pageRanks;
 
     /**
      * Computes a graph representing the internet and computes the page rank of all
@@ -31,6 +43,26 @@ public class PageRankAnalyzer {
      *                  page rank never converges.
      */
     public PageRankAnalyzer(ISet<Webpage> webpages, double decay, double epsilon, int limit) {
+        this(webpages, decay, epsilon, limit, 1);
+    }
+
+    /**
+     * Computes the page rank of all available webpages, splitting the work of each
+     * iteration across the given number of threads.
+     *
+     * The ranks match the single-threaded constructor to within epsilon: only the
+     * order in which floating point numbers are added together differs.
+     *
+     * @param parallelism  The number of threads to use. If this is 1, every iteration
+     *                     runs on the calling thread.
+     * @throws IllegalArgumentException  if parallelism is less than 1
+     */
+    public PageRankAnalyzer(ISet<Webpage> webpages, double decay, double epsilon, int limit,
+                            int parallelism) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("parallelism must be at least 1");
+        }
+
         // Implementation note: We have commented these method calls out so your
         // search engine doesn't immediately crash when you try running it for the
         // first time.
@@ -39,51 +71,88 @@ public class PageRankAnalyzer {
         // on this class.
 
         // Step 1: Make a graph representing the 'internet'
-        IDictionary<URI, ISet<URI>> graph = this.makeGraph(webpages);
+        LinkGraph graph = this.makeGraph(webpages);
 
         // Step 2: Use this graph to compute the page rank for each webpage
-        this.pageRanks = this.makePageRanks(graph, decay, limit, epsilon);
+        this.pageIds = graph.getIds();
+        if (parallelism == 1) {
+            this.pageRanks = this.makePageRanks(graph, decay, limit, epsilon, null);
+        } else {
+            ForkJoinPool pool = new ForkJoinPool(parallelism);
+            try {
+                this.pageRanks = this.makePageRanks(graph, decay, limit, epsilon, pool);
+            } finally {
+                pool.shutdown();
+            }
+        }
 
         // Note: we don't store the graph as a field: once we've computed the
         // page ranks, we no longer need it!
     }
 
+    private PageRankAnalyzer() {
+    }
+
+    /**
+     * Writes the computed page ranks to the given stream. See load(...).
+     */
+    public void save(DataOutputStream out) throws IOException {
+        out.writeInt(this.pageIds.size());
+        for (KVPair<URI, Integer> pair : this.pageIds) {
+            SnapshotIO.writeUri(out, pair.getKey());
+            out.writeDouble(this.pageRanks[pair.getValue()]);
+        }
+    }
+
+    /**
+     * Writes the page ranks of only the given pages to the given stream, in the same
+     * format as save(out). Reading them back gives an analyzer that only knows about
+     * those pages.
+     */
+    public void save(DataOutputStream out, IList<URI> pages) throws IOException {
+        out.writeInt(pages.size());
+        for (URI uri : pages) {
+            SnapshotIO.writeUri(out, uri);
+            out.writeDouble(this.computePageRank(uri));
+        }
+    }
+
+    /**
+     * Reads back page ranks previously written using save(...).
+     */
+    public static PageRankAnalyzer load(DataInputStream in) throws IOException {
+        PageRankAnalyzer analyzer = new PageRankAnalyzer();
+        analyzer.pageIds = new ChainedHashDictionary<>();
+        int numPages = SnapshotIO.readLength(in);
+        analyzer.pageRanks = new double[SnapshotIO.initialCapacity(numPages)];
+        for (int id = 0; id < numPages; id++) {
+            if (id == analyzer.pageRanks.length) {
+                analyzer.pageRanks = Arrays.copyOf(
+                        analyzer.pageRanks, SnapshotIO.grow(analyzer.pageRanks.length, numPages));
+            }
+            analyzer.pageIds.put(SnapshotIO.readUri(in), id);
+            analyzer.pageRanks[id] = in.readDouble();
+        }
+        return analyzer;
+    }
+
     /**
      * This method converts a set of webpages into an unweighted, directed graph,
-     * in adjacency list form.
+     * in compressed sparse row form. See LinkGraph for details.
      *
      * You may assume that each webpage can be uniquely identified by its URI.
      *
      * Note that a webpage may contain links to other webpages that are *not*
-     * included within set of webpages you were given. You should omit these
-     * links from your graph: we want the final graph we build to be
-     * entirely "self-contained".
+     * included within set of webpages you were given. These links are omitted
+     * from the graph: we want the final graph we build to be entirely
+     * "self-contained".
      */
-    private IDictionary<URI, ISet<URI>> makeGraph(ISet<Webpage> webpages) {
-        IDictionary<URI, ISet<URI>> linkGraph = new ChainedHashDictionary<URI, ISet<URI>>();
-        ISet<URI> allLinks = new ChainedHashSet<URI>();
-        for (Webpage page:webpages) {
-            // create a set of links first
-            allLinks.add(page.getUri());
-        }
-        for (Webpage page:webpages) {
-            ISet<URI> links = new ChainedHashSet<URI>();
-            for (URI link:page.getLinks()) {  // process all this page's out-links
-                if (allLinks.contains(link)) {  // external links are omitted
-                    if (!page.getUri().equals(link)) {  // omit self-links
-                        links.add(link);
-                    }
-                }
-            }
-            linkGraph.put(page.getUri(), links);
-        }
-        return linkGraph;
+    private LinkGraph makeGraph(ISet<Webpage> webpages) {
+        return new LinkGraph(webpages);
     }
 
     /**
-     * Computes the page ranks for all webpages in the graph.
-     *
-     * Precondition: assumes 'this.graphs' has previously been initialized.
+     * Computes the page ranks for all webpages in the graph, indexed by page id.
      *
      * @param decay     Represents the "decay" factor when computing page rank (see spec).
      * @param epsilon   When the difference in page ranks is less then or equal to this number,
@@ -91,62 +160,179 @@ public class PageRankAnalyzer {
      * @param limit     The maximum number of iterations we spend computing page rank. This value
      *                  is meant as a safety valve to prevent us from infinite looping in case our
      *                  page rank never converges.
+     * @param pool      The pool to run each iteration on, or null to run on the calling thread.
      */
-    private IDictionary<URI, Double> makePageRanks(IDictionary<URI, ISet<URI>> graph,
-                                                   double decay,
-                                                   int limit,
-                                                   double epsilon) {
+    private double[] makePageRanks(LinkGraph graph,
+                                   double decay,
+                                   int limit,
+                                   double epsilon,
+                                   ForkJoinPool pool) {
+        int n = graph.size();
+
         // Step 1: The initialize step should go here
-        IDictionary<URI, Double> pageRankScore = new ChainedHashDictionary<URI, Double>();
-        Integer n = graph.size();
-        for (KVPair<URI, ISet<URI>> pair:graph) {  // initialize pagerank score
-            pageRankScore.put(pair.getKey(), 1.0/n);
+        PowerIteration state = new PowerIteration(graph, decay);
+        for (int v = 0; v < n; v++) {
+            state.ranks[v] = 1.0 / n;
         }
-        Double complementFactor = (1 - decay)/n;
-        for (int i = 0; i < limit; i++) {  
+        double complementFactor = (1 - decay) / n;
+
+        for (int i = 0; i < limit; i++) {
             // Step 2: The update step should go here
-            IDictionary<URI, Double> newPagerank = new ChainedHashDictionary<URI, Double>();
-            for (KVPair<URI, Double> pair:pageRankScore) {
-                // initialize new pagerank dictionary with 0
-                newPagerank.put(pair.getKey(), 0.0);
+            // Pages with no out-links spread their rank evenly across every page,
+            // so we add up all of the dangling rank and apply it as one uniform term.
+            double danglingRank;
+            if (pool == null) {
+                danglingRank = state.spread(0, n);
+            } else {
+                danglingRank = pool.invoke(new SpreadTask(state, 0, n));
             }
-            for (KVPair<URI, ISet<URI>> pair:graph) { 
-                // iterate through the graph: update pagerank score for out-linked node
-                Double newCurScore = newPagerank.get(pair.getKey()) + complementFactor;
-                newPagerank.put(pair.getKey(), newCurScore);
-                URI curURI = pair.getKey();
-                ISet<URI> curOutLinks = pair.getValue();            
-                if (curOutLinks.size() == 0) {
-                    // no out-links, jump to a random page
-                    Double contribution = (decay * pageRankScore.get(curURI))/n;
-                    for (KVPair<URI, Double> uriScorePair:newPagerank) {
-                        newPagerank.put(uriScorePair.getKey(), uriScorePair.getValue()+contribution);
-                    }
-                }
-                else {
-                    Double contribution = (decay*pageRankScore.get(curURI))/curOutLinks.size();                    
-                    for (URI outLink:curOutLinks) {
-                        // add current URI's contribution to all out-links
-                        Double newScore = newPagerank.get(outLink)+contribution;                      
-                        newPagerank.put(outLink, newScore);
-                    }
-                }   
-            }          
+            double baseScore = complementFactor + (decay * danglingRank) / n;
+
             // Step 3: the convergence step should go here.
-            boolean isConverge = true;
-            for (KVPair<URI, Double> pair:pageRankScore) {
-                if (Math.abs(pair.getValue() - newPagerank.get(pair.getKey())) > epsilon) {    
-                    isConverge = false;
-                    break;
-                }
+            double delta;
+            if (pool == null) {
+                delta = state.pull(0, n, baseScore);
+            } else {
+                delta = pool.invoke(new PullTask(state, 0, n, baseScore));
             }
-            pageRankScore = newPagerank;
+            state.swap();
             // Return early if we've converged.
-            if (isConverge) {           
+            if (delta <= epsilon) {
                 break;
-            }           
+            }
+        }
+        return state.ranks;
+    }
+
+    /**
+     * Holds the arrays used while iterating. Both steps of an iteration work on
+     * independent ranges of page ids, so different ranges can run on different threads.
+     */
+    private static class PowerIteration {
+        private final double decay;
+        private final int[] outDegrees;
+        private final int[] offsets;
+        private final int[] sources;
+
+        private double[] ranks;
+        private double[] newRanks;
+
+        // contribution[u] is the rank page 'u' gives to each of its out-links.
+        private final double[] contribution;
+
+        public PowerIteration(LinkGraph graph, double decay) {
+            this.decay = decay;
+            this.outDegrees = graph.getOutDegrees();
+            this.offsets = graph.getInLinkOffsets();
+            this.sources = graph.getInLinkSources();
+            this.ranks = new double[graph.size()];
+            this.newRanks = new double[graph.size()];
+            this.contribution = new double[graph.size()];
+        }
+
+        /**
+         * Computes the contribution of every page in [lo, hi) and returns the total rank
+         * of the dangling pages in that range.
+         */
+        public double spread(int lo, int hi) {
+            double danglingRank = 0.0;
+            for (int u = lo; u < hi; u++) {
+                if (this.outDegrees[u] == 0) {
+                    danglingRank += this.ranks[u];
+                    this.contribution[u] = 0.0;
+                } else {
+                    this.contribution[u] = this.decay * this.ranks[u] / this.outDegrees[u];
+                }
+            }
+            return danglingRank;
+        }
+
+        /**
+         * Computes the new rank of every page in [lo, hi) by pulling rank from the pages
+         * linking to it, and returns the largest change in rank within that range.
+         */
+        public double pull(int lo, int hi, double baseScore) {
+            double delta = 0.0;
+            for (int v = lo; v < hi; v++) {
+                double score = baseScore;
+                for (int e = this.offsets[v]; e < this.offsets[v + 1]; e++) {
+                    score += this.contribution[this.sources[e]];
+                }
+                this.newRanks[v] = score;
+                delta = Math.max(delta, Math.abs(score - this.ranks[v]));
+            }
+            return delta;
+        }
+
+        /**
+         * Makes the ranks computed by the last pull the current ranks.
+         */
+        public void swap() {
+            double[] tmp = this.ranks;
+            this.ranks = this.newRanks;
+            this.newRanks = tmp;
+        }
+    }
+
+    /**
+     * Runs PowerIteration.spread over a range of pages, summing the dangling rank.
+     */
+    private static class SpreadTask extends RecursiveTask<Double> {
+        private static final long serialVersionUID = 1L;
+
+        private final PowerIteration state;
+        private final int lo;
+        private final int hi;
+
+        public SpreadTask(PowerIteration state, int lo, int hi) {
+            this.state = state;
+            this.lo = lo;
+            this.hi = hi;
+        }
+
+        @Override
+        protected Double compute() {
+            if (this.hi - this.lo <= PAGES_PER_TASK) {
+                return this.state.spread(this.lo, this.hi);
+            }
+            int mid = (this.lo + this.hi) >>> 1;
+            SpreadTask left = new SpreadTask(this.state, this.lo, mid);
+            left.fork();
+            double right = new SpreadTask(this.state, mid, this.hi).compute();
+            return left.join() + right;
+        }
+    }
+
+    /**
+     * Runs PowerIteration.pull over a range of destination pages, taking the largest
+     * change in rank.
+     */
+    private static class PullTask extends RecursiveTask<Double> {
+        private static final long serialVersionUID = 1L;
+
+        private final PowerIteration state;
+        private final int lo;
+        private final int hi;
+        private final double baseScore;
+
+        public PullTask(PowerIteration state, int lo, int hi, double baseScore) {
+            this.state = state;
+            this.lo = lo;
+            this.hi = hi;
+            this.baseScore = baseScore;
+        }
+
+        @Override
+        protected Double compute() {
+            if (this.hi - this.lo <= PAGES_PER_TASK) {
+                return this.state.pull(this.lo, this.hi, this.baseScore);
+            }
+            int mid = (this.lo + this.hi) >>> 1;
+            PullTask left = new PullTask(this.state, this.lo, mid, this.baseScore);
+            left.fork();
+            double right = new PullTask(this.state, mid, this.hi, this.baseScore).compute();
+            return Math.max(left.join(), right);
         }
-        return pageRankScore;
     }
 
     /**
@@ -157,6 +343,6 @@ public class PageRankAnalyzer {
      */
     public double computePageRank(URI pageUri) {
         // Implementation note: this method should be very simple: just one line! po
-        return pageRanks.get(pageUri);
+        return this.pageRanks[this.pageIds.get(pageUri)];
     }
 }
@@ -0,0 +1,331 @@
+package search.analyzers;
+
+import datastructures.interfaces.IList;
+import datastructures.interfaces.ISet;
+import search.misc.SnapshotIO;
+import search.models.Webpage;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * This class records where in each page every word appears, so we can find pages
+ * containing an exact phrase like "seattle times".
+ *
+ * For every entry of a word's posting list, we store the sorted positions of that
+ * word within the page, gap-encoded in variable-byte form like the posting lists
+ * themselves. Positions are laid out in the same order as the inverted index's
+ * posting lists, so a cursor's position in a posting list tells us exactly where to
+ * find the word's positions in that page.
+ *
+ * Finding a phrase never touches the text of a page: we intersect the posting lists
+ * of the phrase's words to find pages containing all of them, then intersect their
+ * position lists to check the words appear next to each other.
+ */
+public class PositionalIndex {
+    private static final int[] NO_DOCUMENTS = new int[0];
+
+    private InvertedIndex index;
+    private TermDictionary terms;
+
+    // Maps each word id to the encoded positions of that word in every page containing it.
+    private byte[][] positions;
+
+    // Maps each word id to where each page's positions start within 'positions', plus
+    // one extra entry marking the end of the last page.
+    private int[][] offsets;
+
+    /**
+     * Records the position of every word in the given webpages.
+     *
+     * @param index  An inverted index built from the same pages as 'tfIdf'.
+     */
+    public PositionalIndex(ISet<Webpage> webpages, InvertedIndex index, TfIdfAnalyzer tfIdf) {
+        this.index = index;
+        this.terms = tfIdf.getTerms();
+        int numTerms = this.terms.size();
+
+        // Visit the pages in id order, so positions line up with the posting lists.
+        Webpage[] pages = new Webpage[tfIdf.numDocuments()];
+        for (Webpage page : webpages) {
+            pages[tfIdf.getDocumentId(page.getUri())] = page;
+        }
+
+        this.positions = new byte[numTerms][];
+        this.offsets = new int[numTerms][];
+        int[] lengths = new int[numTerms];
+        int[] filled = new int[numTerms];
+        for (int term = 0; term < numTerms; term++) {
+            this.positions[term] = new byte[VarByte.MAX_BYTES * 4];
+            this.offsets[term] = new int[index.getPostingList(term).size() + 1];
+        }
+
+        for (Webpage page : pages) {
+            // Sort the page's (word, position) pairs so each word's positions are together.
+            IList<String> words = page.getWords();
+            long[] pairs = new long[words.size()];
+            int position = 0;
+            for (String word : words) {
+                pairs[position] = ((long) this.terms.getId(word) << 32) | position;
+                position++;
+            }
+            Arrays.sort(pairs);
+
+            int i = 0;
+            while (i < pairs.length) {
+                int term = (int) (pairs[i] >>> 32);
+                this.offsets[term][filled[term]] = lengths[term];
+                filled[term]++;
+
+                int previous = -1;
+                for (; i < pairs.length && (int) (pairs[i] >>> 32) == term; i++) {
+                    if (this.positions[term].length - lengths[term] < VarByte.MAX_BYTES) {
+                        this.positions[term] = Arrays.copyOf(this.positions[term], 2 * this.positions[term].length);
+                    }
+                    int current = (int) pairs[i];
+                    lengths[term] = VarByte.write(this.positions[term], lengths[term], current - previous - 1);
+                    previous = current;
+                }
+            }
+        }
+
+        for (int term = 0; term < numTerms; term++) {
+            this.offsets[term][filled[term]] = lengths[term];
+            this.positions[term] = Arrays.copyOf(this.positions[term], lengths[term]);
+        }
+    }
+
+    private PositionalIndex() {
+    }
+
+    /**
+     * Writes the positions of every word to the given stream. See load(...).
+     */
+    public void save(DataOutputStream out) throws IOException {
+        out.writeInt(this.positions.length);
+        for (int term = 0; term < this.positions.length; term++) {
+            SnapshotIO.writeByteArray(out, this.positions[term]);
+            SnapshotIO.writeIntArray(out, this.offsets[term]);
+        }
+    }
+
+    /**
+     * Reads back positions previously written using save(...).
+     *
+     * @param index  The inverted index the positions were originally built against.
+     */
+    public static PositionalIndex load(DataInputStream in, InvertedIndex index, TfIdfAnalyzer tfIdf)
+            throws IOException {
+        PositionalIndex output = new PositionalIndex();
+        output.index = index;
+        output.terms = tfIdf.getTerms();
+        int numTerms = SnapshotIO.readLength(in);
+        int capacity = SnapshotIO.initialCapacity(numTerms);
+        output.positions = new byte[capacity][];
+        output.offsets = new int[capacity][];
+        for (int term = 0; term < numTerms; term++) {
+            if (term == capacity) {
+                capacity = SnapshotIO.grow(capacity, numTerms);
+                output.positions = Arrays.copyOf(output.positions, capacity);
+                output.offsets = Arrays.copyOf(output.offsets, capacity);
+            }
+            output.positions[term] = SnapshotIO.readByteArray(in);
+            output.offsets[term] = SnapshotIO.readIntArray(in);
+        }
+        return output;
+    }
+
+    /**
+     * Returns how many times the word with the given id appears in the page at the
+     * given position of its posting list.
+     */
+    public int countPositions(int term, int posting) {
+        // Every position ends with exactly one byte whose high bit is clear.
+        byte[] data = this.positions[term];
+        int count = 0;
+        for (int i = this.offsets[term][posting]; i < this.offsets[term][posting + 1]; i++) {
+            if (data[i] >= 0) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Returns the sorted ids of every document containing all of the given phrases,
+     * where each phrase is a list of words that must appear next to each other, in order.
+     */
+    public int[] findPhrases(IList<IList<String>> phrases) {
+        // Turn every phrase into word ids. A word that appears nowhere means nothing matches.
+        int[][] phraseTerms = new int[phrases.size()][];
+        int numWords = 0;
+        int p = 0;
+        for (IList<String> phrase : phrases) {
+            phraseTerms[p] = new int[phrase.size()];
+            int i = 0;
+            for (String word : phrase) {
+                int term = this.terms.getId(word);
+                if (term == TermDictionary.NOT_FOUND) {
+                    return NO_DOCUMENTS;
+                }
+                phraseTerms[p][i] = term;
+                i++;
+            }
+            numWords += phrase.size();
+            p++;
+        }
+
+        // Each distinct word gets a cursor, shortest posting list first.
+        int[] distinct = new int[numWords];
+        int numDistinct = 0;
+        for (int[] phrase : phraseTerms) {
+            for (int term : phrase) {
+                distinct[numDistinct++] = term;
+            }
+        }
+        Arrays.sort(distinct, 0, numDistinct);
+        int unique = 0;
+        for (int i = 0; i < numDistinct; i++) {
+            if (unique == 0 || distinct[unique - 1] != distinct[i]) {
+                distinct[unique++] = distinct[i];
+            }
+        }
+        if (unique == 0) {
+            return NO_DOCUMENTS;
+        }
+        Integer[] order = new Integer[unique];
+        for (int i = 0; i < unique; i++) {
+            order[i] = distinct[i];
+        }
+        Arrays.sort(order, (a, b) -> Integer.compare(
+                this.index.getPostingList(a).size(), this.index.getPostingList(b).size()));
+
+        int[] cursorTerms = new int[unique];
+        PostingList.Cursor[] cursors = new PostingList.Cursor[unique];
+        for (int i = 0; i < unique; i++) {
+            cursorTerms[i] = order[i];
+            cursors[i] = this.index.getPostingList(order[i]).cursor();
+        }
+
+        // For each phrase word, which cursor holds its postings.
+        int[][] phraseCursors = new int[phraseTerms.length][];
+        for (int i = 0; i < phraseTerms.length; i++) {
+            phraseCursors[i] = new int[phraseTerms[i].length];
+            for (int j = 0; j < phraseTerms[i].length; j++) {
+                for (int c = 0; c < unique; c++) {
+                    if (cursorTerms[c] == phraseTerms[i][j]) {
+                        phraseCursors[i][j] = c;
+                    }
+                }
+            }
+        }
+
+        int[] matches = new int[this.index.getPostingList(cursorTerms[0]).size()];
+        int numMatches = 0;
+        PositionBuffers buffers = new PositionBuffers(unique);
+        int document = cursors[0].document();
+        while (document != PostingList.NO_MORE_DOCUMENTS) {
+            // Leapfrog: move every other cursor up to the candidate, restarting from
+            // the shortest list whenever one of them overshoots.
+            boolean found = true;
+            for (int c = 1; c < unique; c++) {
+                cursors[c].advance(document);
+                if (cursors[c].document() != document) {
+                    found = false;
+                    document = cursors[c].document();
+                    break;
+                }
+            }
+            if (!found) {
+                cursors[0].advance(document);
+                document = cursors[0].document();
+                continue;
+            }
+
+            buffers.clear();
+            boolean allPhrases = true;
+            for (int i = 0; i < phraseTerms.length && allPhrases; i++) {
+                allPhrases = this.containsPhrase(phraseTerms[i], phraseCursors[i], cursors, buffers);
+            }
+            if (allPhrases) {
+                matches[numMatches++] = document;
+            }
+            cursors[0].next();
+            document = cursors[0].document();
+        }
+        return Arrays.copyOf(matches, numMatches);
+    }
+
+    /**
+     * Returns true if the words of the phrase appear next to each other, in order, in
+     * the document every cursor is currently on.
+     */
+    private boolean containsPhrase(int[] phrase, int[] phraseCursors, PostingList.Cursor[] cursors,
+                                   PositionBuffers buffers) {
+        // 'starts' holds every position where the phrase could still begin.
+        int[] first = buffers.get(phraseCursors[0], phrase[0], cursors[phraseCursors[0]].position());
+        int[] starts = Arrays.copyOf(first, buffers.length(phraseCursors[0]));
+        int numStarts = starts.length;
+
+        for (int j = 1; j < phrase.length && numStarts > 0; j++) {
+            int c = phraseCursors[j];
+            int[] next = buffers.get(c, phrase[j], cursors[c].position());
+            int nextLength = buffers.length(c);
+
+            // Keep the starts s where s + j is one of this word's positions.
+            int kept = 0;
+            int k = 0;
+            for (int i = 0; i < numStarts; i++) {
+                int wanted = starts[i] + j;
+                while (k < nextLength && next[k] < wanted) {
+                    k++;
+                }
+                if (k < nextLength && next[k] == wanted) {
+                    starts[kept++] = starts[i];
+                }
+            }
+            numStarts = kept;
+        }
+        return numStarts > 0;
+    }
+
+    /**
+     * Decodes the positions of each cursor's word in the current document at most once,
+     * reusing the same arrays for every document.
+     */
+    private class PositionBuffers {
+        private int[][] buffers;
+        private int[] lengths;
+        private boolean[] loaded;
+
+        public PositionBuffers(int numCursors) {
+            this.buffers = new int[numCursors][16];
+            this.lengths = new int[numCursors];
+            this.loaded = new boolean[numCursors];
+        }
+
+        public void clear() {
+            Arrays.fill(this.loaded, false);
+        }
+
+        public int[] get(int cursor, int term, int posting) {
+            if (!this.loaded[cursor]) {
+                int from = offsets[term][posting];
+                int to = offsets[term][posting + 1];
+                // Every position takes at least one byte, so this is always big enough.
+                if (this.buffers[cursor].length < to - from) {
+                    this.buffers[cursor] = new int[to - from];
+                }
+                this.lengths[cursor] = VarByte.readGaps(positions[term], from, to, -1, this.buffers[cursor]);
+                this.loaded[cursor] = true;
+            }
+            return this.buffers[cursor];
+        }
+
+        public int length(int cursor) {
+            return this.lengths[cursor];
+        }
+    }
+}
@@ -0,0 +1,213 @@
+package search.analyzers;
+
+/**
+ * A compressed, sorted list of document ids.
+ *
+ * The ids are split into blocks of BLOCK_SIZE. Within each block, every id is stored
+ * as the gap from the id before it, and each gap is written in variable-byte form:
+ * seven bits per byte, with the high bit set on every byte except the last. Since the
+ * gaps in a long posting list are small, most ids take up a single byte instead of four.
+ *
+ * Alongside the compressed bytes we keep a small skip table holding the last id in
+ * each block and where that block starts. A cursor that needs to jump ahead can use
+ * the table to skip whole blocks without decoding them.
+ */
+public class PostingList {
+    public static final int BLOCK_SIZE = 128;
+
+    // Returned by Cursor.document() once the cursor has moved past the last id.
+    public static final int NO_MORE_DOCUMENTS = Integer.MAX_VALUE;
+
+    private final int size;
+    private final byte[] data;
+
+    // The skip table: the last id in each block, and the offset of each block in 'data'.
+    private final int[] lastDocuments;
+    private final int[] offsets;
+
+    /**
+     * Compresses the given ids, which must be strictly increasing and non-negative.
+     *
+     * @throws IllegalArgumentException  if the ids are not strictly increasing
+     */
+    public PostingList(int[] documentIds) {
+        this.size = documentIds.length;
+        int numBlocks = (this.size + BLOCK_SIZE - 1) / BLOCK_SIZE;
+        this.lastDocuments = new int[numBlocks];
+        this.offsets = new int[numBlocks];
+
+        // The array is trimmed down to size at the end.
+        byte[] buffer = new byte[VarByte.MAX_BYTES * this.size];
+        int length = 0;
+        int previous = -1;
+        for (int i = 0; i < this.size; i++) {
+            int id = documentIds[i];
+            if (id <= previous) {
+                throw new IllegalArgumentException("Document ids must be strictly increasing");
+            }
+            if (i % BLOCK_SIZE == 0) {
+                this.offsets[i / BLOCK_SIZE] = length;
+            }
+            // Gaps are at least 1, except possibly for the very first id.
+            length = VarByte.write(buffer, length, id - previous - 1);
+            previous = id;
+            if (i % BLOCK_SIZE == BLOCK_SIZE - 1 || i == this.size - 1) {
+                this.lastDocuments[i / BLOCK_SIZE] = id;
+            }
+        }
+        this.data = new byte[length];
+        System.arraycopy(buffer, 0, this.data, 0, length);
+    }
+
+    /**
+     * Returns the number of ids in this list.
+     */
+    public int size() {
+        return this.size;
+    }
+
+    /**
+     * Returns the approximate number of bytes used to store this list.
+     */
+    public long getCompressedBytes() {
+        return this.data.length + 8L * this.lastDocuments.length;
+    }
+
+    /**
+     * Decompresses every id in this list into a new array.
+     */
+    public int[] toArray() {
+        int[] output = new int[this.size];
+        Cursor cursor = this.cursor();
+        for (int i = 0; i < this.size; i++) {
+            output[i] = cursor.document();
+            cursor.next();
+        }
+        return output;
+    }
+
+    /**
+     * Returns a new cursor positioned at the first id in this list.
+     */
+    public Cursor cursor() {
+        return new Cursor();
+    }
+
+    /**
+     * Walks forwards through the ids of a posting list, decoding one block at a time.
+     */
+    public class Cursor implements DocumentIterator {
+        private final int[] block;
+        private int blockIndex;
+        private int blockLength;
+        private int index;
+
+        private Cursor() {
+            this.block = new int[BLOCK_SIZE];
+            this.blockIndex = -1;
+            this.loadBlock(0);
+        }
+
+        /**
+         * Returns the id the cursor is on, or NO_MORE_DOCUMENTS if it has run off the
+         * end of the list.
+         */
+        @Override
+        public int document() {
+            if (this.index < this.blockLength) {
+                return this.block[this.index];
+            }
+            return NO_MORE_DOCUMENTS;
+        }
+
+        /**
+         * Returns the number of ids in the list.
+         */
+        @Override
+        public int cost() {
+            return size;
+        }
+
+        /**
+         * Returns how many ids in the list come before the one the cursor is on.
+         */
+        public int position() {
+            return this.blockIndex * BLOCK_SIZE + this.index;
+        }
+
+        /**
+         * Moves to the next id.
+         */
+        @Override
+        public void next() {
+            this.index++;
+            if (this.index == this.blockLength && this.index == BLOCK_SIZE) {
+                this.loadBlock(this.blockIndex + 1);
+            }
+        }
+
+        /**
+         * Moves forwards to the first id greater than or equal to the target. Does
+         * nothing if the cursor is already there.
+         *
+         * Whole blocks whose ids are all too small are skipped using the skip table.
+         * Within the right block, we gallop forwards in steps that double in size and
+         * then binary search within the last step.
+         */
+        @Override
+        public void advance(int target) {
+            if (this.document() >= target) {
+                return;
+            }
+            int numBlocks = lastDocuments.length;
+            if (lastDocuments[this.blockIndex] < target) {
+                int next = this.blockIndex + 1;
+                while (next < numBlocks && lastDocuments[next] < target) {
+                    next++;
+                }
+                if (next == numBlocks) {
+                    this.blockIndex = numBlocks - 1;
+                    this.blockLength = 0;
+                    this.index = 0;
+                    return;
+                }
+                this.loadBlock(next);
+            }
+
+            int step = 1;
+            int low = this.index;
+            int high = this.index;
+            while (high < this.blockLength && this.block[high] < target) {
+                low = high + 1;
+                high += step;
+                step *= 2;
+            }
+            high = Math.min(high, this.blockLength);
+            while (low < high) {
+                int middle = (low + high) >>> 1;
+                if (this.block[middle] < target) {
+                    low = middle + 1;
+                } else {
+                    high = middle;
+                }
+            }
+            this.index = low;
+        }
+
+        private void loadBlock(int blockIndex) {
+            this.index = 0;
+            if (blockIndex >= lastDocuments.length) {
+                // Ran off the end: stay on the last block, but with nothing left in it.
+                this.blockLength = 0;
+                return;
+            }
+            this.blockIndex = blockIndex;
+            this.blockLength = Math.min(BLOCK_SIZE, size - blockIndex * BLOCK_SIZE);
+
+            int from = offsets[blockIndex];
+            int to = blockIndex + 1 < offsets.length ? offsets[blockIndex + 1] : data.length;
+            int previous = blockIndex == 0 ? -1 : lastDocuments[blockIndex - 1];
+            VarByte.readGaps(data, from, to, previous, this.block);
+        }
+    }
+}
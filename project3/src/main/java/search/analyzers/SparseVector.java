@@ -0,0 +1,104 @@
+package search.analyzers;
+
+import search.misc.SnapshotIO;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+/**
+ * A vector that is zero almost everywhere, stored as a sorted array of the term ids
+ * it is non-zero at (or may be non-zero at), alongside a parallel array of weights.
+ *
+ * Because both vectors keep their term ids sorted, the dot product of two vectors is
+ * a single merge over the two arrays, with no hashing at all.
+ */
+public class SparseVector {
+    private int[] terms;
+    private double[] weights;
+
+    /**
+     * Creates a new vector. The term ids must be strictly increasing, and the arrays are
+     * used directly rather than copied.
+     *
+     * @throws IllegalArgumentException  if the two arrays differ in length
+     */
+    public SparseVector(int[] terms, double[] weights) {
+        if (terms.length != weights.length) {
+            throw new IllegalArgumentException("Term and weight arrays differ in length");
+        }
+        this.terms = terms;
+        this.weights = weights;
+    }
+
+    /**
+     * Returns the number of entries stored in this vector.
+     */
+    public int size() {
+        return this.terms.length;
+    }
+
+    /**
+     * Returns the term id of the i-th entry.
+     */
+    public int getTerm(int i) {
+        return this.terms[i];
+    }
+
+    /**
+     * Returns the weight of the i-th entry.
+     */
+    public double getWeight(int i) {
+        return this.weights[i];
+    }
+
+    /**
+     * Returns the Euclidean length of this vector.
+     */
+    public double norm() {
+        double total = 0.0;
+        for (double weight : this.weights) {
+            total += weight * weight;
+        }
+        return Math.sqrt(total);
+    }
+
+    /**
+     * Returns the dot product of this vector and the other one.
+     */
+    public double dot(SparseVector other) {
+        int[] a = this.terms;
+        int[] b = other.terms;
+        int i = 0;
+        int j = 0;
+        double total = 0.0;
+        while (i < a.length && j < b.length) {
+            if (a[i] < b[j]) {
+                i++;
+            } else if (a[i] > b[j]) {
+                j++;
+            } else {
+                total += this.weights[i] * other.weights[j];
+                i++;
+                j++;
+            }
+        }
+        return total;
+    }
+
+    public void save(DataOutputStream out) throws IOException {
+        SnapshotIO.writeIntArray(out, this.terms);
+        for (double weight : this.weights) {
+            out.writeDouble(weight);
+        }
+    }
+
+    public static SparseVector load(DataInputStream in) throws IOException {
+        int[] terms = SnapshotIO.readIntArray(in);
+        double[] weights = new double[terms.length];
+        for (int i = 0; i < weights.length; i++) {
+            weights[i] = in.readDouble();
+        }
+        return new SparseVector(terms, weights);
+    }
+}
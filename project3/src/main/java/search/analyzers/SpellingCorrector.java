@@ -0,0 +1,215 @@
+package search.analyzers;
+
+import java.util.Arrays;
+
+/**
+ * Suggests the word the user most likely meant when they type a word that appears
+ * nowhere in the corpus.
+ *
+ * Rather than measuring the edit distance from the misspelled word to every word in
+ * the corpus, we use symmetric deletion (as in SymSpell): two words are at most
+ * MAX_EDIT_DISTANCE edits apart only if deleting at most that many characters from
+ * each of them produces the same string. So, at build time, we record every string
+ * that can be made by deleting up to MAX_EDIT_DISTANCE characters from each word;
+ * looking up a misspelled word then only needs its own deletions, and the edit
+ * distance is computed only for the handful of words sharing one of them.
+ *
+ * Only the first PREFIX_LENGTH characters of each word are used for deletions, which
+ * keeps long words from producing hundreds of entries. Deleted strings are stored as
+ * their hash codes, not as strings: a collision merely adds a candidate that the
+ * final edit distance check throws away.
+ */
+public class SpellingCorrector {
+    // The most edits (insertions, deletions, substitutions or swaps of two adjacent
+    // characters) a correction may be away from the original word.
+    public static final int MAX_EDIT_DISTANCE = 2;
+
+    // How many characters at the start of each word are used to find candidates.
+    private static final int PREFIX_LENGTH = 7;
+
+    private TermDictionary terms;
+    private InvertedIndex index;
+
+    // The sorted, distinct hash codes of every deleted string, and for each one, the
+    // range of 'candidates' holding the ids of the words it was made from.
+    private int[] hashes;
+    private int[] offsets;
+    private int[] candidates;
+
+    /**
+     * Records the deletions of every word in the given index.
+     */
+    public SpellingCorrector(TermDictionary terms, InvertedIndex index) {
+        this.terms = terms;
+        this.index = index;
+
+        // Collect (hash, word id) pairs, then sort them so each hash's words are together.
+        long[] pairs = new long[64];
+        int numPairs = 0;
+        int[] deletions = new int[maxDeletions(PREFIX_LENGTH)];
+        for (int term = 0; term < terms.size(); term++) {
+            int count = computeDeletions(terms.getTerm(term), deletions);
+            if (pairs.length - numPairs < count) {
+                pairs = Arrays.copyOf(pairs, Math.max(2 * pairs.length, numPairs + count));
+            }
+            for (int i = 0; i < count; i++) {
+                pairs[numPairs++] = ((long) deletions[i] << 32) | term;
+            }
+        }
+        Arrays.sort(pairs, 0, numPairs);
+
+        this.hashes = new int[numPairs];
+        this.offsets = new int[numPairs + 1];
+        this.candidates = new int[numPairs];
+        int numHashes = 0;
+        int numCandidates = 0;
+        for (int i = 0; i < numPairs; i++) {
+            if (i > 0 && pairs[i] == pairs[i - 1]) {
+                // The same word can produce the same deletion more than once, as in "aab".
+                continue;
+            }
+            int hash = (int) (pairs[i] >>> 32);
+            if (numHashes == 0 || this.hashes[numHashes - 1] != hash) {
+                this.hashes[numHashes] = hash;
+                this.offsets[numHashes] = numCandidates;
+                numHashes++;
+            }
+            this.candidates[numCandidates++] = (int) pairs[i];
+        }
+        this.offsets[numHashes] = numCandidates;
+        this.hashes = Arrays.copyOf(this.hashes, numHashes);
+        this.offsets = Arrays.copyOf(this.offsets, numHashes + 1);
+        this.candidates = Arrays.copyOf(this.candidates, numCandidates);
+    }
+
+    /**
+     * Returns the word in the corpus closest to the given one, or null if there is none
+     * within MAX_EDIT_DISTANCE edits. Among equally close words, the one found in the
+     * most documents wins, then the alphabetically first.
+     *
+     * A word that appears in the corpus is returned unchanged.
+     */
+    public String correct(String word) {
+        if (this.terms.getId(word) != TermDictionary.NOT_FOUND) {
+            return word;
+        }
+        int[] deletions = new int[maxDeletions(PREFIX_LENGTH)];
+        int count = computeDeletions(word, deletions);
+
+        int best = TermDictionary.NOT_FOUND;
+        int bestDistance = MAX_EDIT_DISTANCE + 1;
+        int bestFrequency = 0;
+        for (int i = 0; i < count; i++) {
+            int found = Arrays.binarySearch(this.hashes, deletions[i]);
+            if (found < 0) {
+                continue;
+            }
+            for (int j = this.offsets[found]; j < this.offsets[found + 1]; j++) {
+                int term = this.candidates[j];
+                String candidate = this.terms.getTerm(term);
+                if (Math.abs(candidate.length() - word.length()) > MAX_EDIT_DISTANCE) {
+                    continue;
+                }
+                int distance = editDistance(word, candidate, bestDistance);
+                if (distance > bestDistance || distance > MAX_EDIT_DISTANCE) {
+                    continue;
+                }
+                int frequency = this.index.getDocumentFrequency(term);
+                if (distance < bestDistance
+                        || frequency > bestFrequency
+                        || (frequency == bestFrequency
+                            && candidate.compareTo(this.terms.getTerm(best)) < 0)) {
+                    best = term;
+                    bestDistance = distance;
+                    bestFrequency = frequency;
+                }
+            }
+        }
+        return best == TermDictionary.NOT_FOUND ? null : this.terms.getTerm(best);
+    }
+
+    /**
+     * Returns the number of distinct hashes stored, mainly to gauge memory use.
+     */
+    public int size() {
+        return this.hashes.length;
+    }
+
+    private static int maxDeletions(int length) {
+        // The word itself, every single deletion, and every pair of deletions.
+        return 1 + length + length * (length - 1) / 2;
+    }
+
+    /**
+     * Fills 'output' with the hash code of every string made by deleting up to
+     * MAX_EDIT_DISTANCE characters from the start of the word, and returns how many
+     * there are. Some of them may be duplicates.
+     */
+    private static int computeDeletions(String word, int[] output) {
+        int length = Math.min(word.length(), PREFIX_LENGTH);
+        int count = 0;
+        output[count++] = hashWithout(word, length, -1, -1);
+        for (int i = 0; i < length; i++) {
+            output[count++] = hashWithout(word, length, i, -1);
+        }
+        for (int i = 0; i < length; i++) {
+            for (int j = i + 1; j < length; j++) {
+                output[count++] = hashWithout(word, length, i, j);
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Returns the same hash code as word.substring(0, length) with the characters at
+     * 'skip1' and 'skip2' removed would have, without building that string.
+     */
+    private static int hashWithout(String word, int length, int skip1, int skip2) {
+        int hash = 0;
+        for (int i = 0; i < length; i++) {
+            if (i != skip1 && i != skip2) {
+                hash = 31 * hash + word.charAt(i);
+            }
+        }
+        return hash;
+    }
+
+    /**
+     * Returns the number of insertions, deletions, substitutions and swaps of adjacent
+     * characters needed to turn 'a' into 'b', or any number greater than 'limit' if
+     * that is more than 'limit'.
+     */
+    static int editDistance(String a, String b, int limit) {
+        int n = a.length();
+        int m = b.length();
+        // Three rows of the usual dynamic programming table: two rows back are needed
+        // to handle swaps.
+        int[] previous2 = new int[m + 1];
+        int[] previous = new int[m + 1];
+        int[] current = new int[m + 1];
+        for (int j = 0; j <= m; j++) {
+            previous[j] = j;
+        }
+        for (int i = 1; i <= n; i++) {
+            current[0] = i;
+            int rowMin = current[0];
+            for (int j = 1; j <= m; j++) {
+                int cost = a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1;
+                int value = Math.min(Math.min(previous[j] + 1, current[j - 1] + 1), previous[j - 1] + cost);
+                if (i > 1 && j > 1 && a.charAt(i - 1) == b.charAt(j - 2) && a.charAt(i - 2) == b.charAt(j - 1)) {
+                    value = Math.min(value, previous2[j - 2] + 1);
+                }
+                current[j] = value;
+                rowMin = Math.min(rowMin, value);
+            }
+            if (rowMin > limit) {
+                return limit + 1;
+            }
+            int[] temp = previous2;
+            previous2 = previous;
+            previous = current;
+            current = temp;
+        }
+        return previous[m];
+    }
+}
@@ -0,0 +1,274 @@
+package search.analyzers;
+
+import datastructures.concrete.DoubleLinkedList;
+import datastructures.interfaces.IList;
+
+import java.util.Arrays;
+
+/**
+ * Suggests the most common words starting with a given prefix, for autocompletion.
+ *
+ * Every word in the corpus is stored in a trie whose nodes live in a handful of
+ * parallel arrays rather than in separate objects. Since the words are sorted before
+ * building the trie, the words below any node form a contiguous range of the sorted
+ * array, and every node's children are stored next to each other in label order, so
+ * following a prefix costs one binary search per character. A node with a single word
+ * below it has no children at all: the rest of the prefix is checked against that word.
+ *
+ * Each node whose range holds more than MAX_SUGGESTIONS words also stores its best
+ * MAX_SUGGESTIONS words, ordered by how many documents contain them. Looking up a
+ * prefix therefore never visits more than MAX_SUGGESTIONS words, no matter how many
+ * words start with it.
+ */
+public class SuggestionTrie {
+    // The most suggestions a single lookup can return.
+    public static final int MAX_SUGGESTIONS = 10;
+
+    private static final int NO_SUGGESTIONS = -1;
+
+    // Every word, sorted, along with the number of documents containing it.
+    private String[] words;
+    private int[] documentFrequencies;
+
+    // For each node: its label, where its children start and how many there are, the
+    // range of words below it, and where its precomputed suggestions start within
+    // 'suggestions' (or NO_SUGGESTIONS if its range is small enough to sort directly).
+    private char[] labels;
+    private int[] firstChild;
+    private int[] numChildren;
+    private int[] rangeStart;
+    private int[] rangeEnd;
+    private int[] suggestionOffsets;
+
+    // The precomputed suggestions of every large node, as indices into 'words'.
+    private int[] suggestions;
+
+    // The number of nodes and precomputed suggestions filled in so far, while building.
+    private int numNodes;
+    private int numSuggestions;
+
+    /**
+     * Builds a trie holding every word in the given index.
+     */
+    public SuggestionTrie(TermDictionary terms, InvertedIndex index) {
+        Integer[] order = new Integer[terms.size()];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> terms.getTerm(a).compareTo(terms.getTerm(b)));
+        this.words = new String[order.length];
+        this.documentFrequencies = new int[order.length];
+        for (int i = 0; i < order.length; i++) {
+            this.words[i] = terms.getTerm(order[i]);
+            this.documentFrequencies[i] = index.getDocumentFrequency(order[i]);
+        }
+
+        this.numNodes = 1;
+        this.resize(Math.max(16, this.words.length));
+        this.suggestions = new int[MAX_SUGGESTIONS];
+        this.build(0, 0, this.words.length, 0);
+
+        this.resize(this.numNodes);
+        this.suggestions = Arrays.copyOf(this.suggestions, this.numSuggestions);
+    }
+
+    /**
+     * Returns the number of nodes in this trie.
+     */
+    public int size() {
+        return this.numNodes;
+    }
+
+    /**
+     * Returns up to 'limit' words starting with the given prefix, the ones found in the
+     * most documents first. Words found in the same number of documents are returned
+     * in alphabetical order.
+     *
+     * @throws IllegalArgumentException  if limit is negative or greater than MAX_SUGGESTIONS
+     */
+    public IList<String> suggest(String prefix, int limit) {
+        if (limit < 0 || limit > MAX_SUGGESTIONS) {
+            throw new IllegalArgumentException("limit must be between 0 and " + MAX_SUGGESTIONS);
+        }
+        IList<String> output = new DoubleLinkedList<>();
+        int node = 0;
+        int i = 0;
+        while (i < prefix.length() && this.numChildren[node] > 0) {
+            node = this.findChild(node, prefix.charAt(i));
+            if (node == -1) {
+                return output;
+            }
+            i++;
+        }
+        if (i < prefix.length()) {
+            // We've reached a node with at most one word below it.
+            int start = this.rangeStart[node];
+            if (start == this.rangeEnd[node] || !this.words[start].startsWith(prefix)) {
+                return output;
+            }
+        }
+        if (limit == 0) {
+            return output;
+        }
+
+        int offset = this.suggestionOffsets[node];
+        if (offset != NO_SUGGESTIONS) {
+            for (int n = 0; n < limit; n++) {
+                output.add(this.words[this.suggestions[offset + n]]);
+            }
+        } else {
+            int[] best = this.rankRange(this.rangeStart[node], this.rangeEnd[node]);
+            for (int n = 0; n < best.length && n < limit; n++) {
+                output.add(this.words[best[n]]);
+            }
+        }
+        return output;
+    }
+
+    /**
+     * Fills in the node covering words[start, end), all of which share their first
+     * 'depth' characters, along with everything below it. Returns the node's best
+     * words, as indices into 'words'.
+     */
+    private int[] build(int node, int start, int end, int depth) {
+        this.rangeStart[node] = start;
+        this.rangeEnd[node] = end;
+        this.suggestionOffsets[node] = NO_SUGGESTIONS;
+        if (end - start <= 1) {
+            this.numChildren[node] = 0;
+            return end > start ? new int[] {start} : new int[0];
+        }
+
+        // The word ending exactly at this node, if any, sorts before all the others.
+        int childrenStart = start;
+        if (childrenStart < end && this.words[childrenStart].length() == depth) {
+            childrenStart++;
+        }
+
+        // Reserve space for the children first, so they sit next to each other.
+        int count = 0;
+        for (int i = childrenStart; i < end; i = this.endOfGroup(i, end, depth)) {
+            count++;
+        }
+        this.firstChild[node] = this.numNodes;
+        this.numChildren[node] = count;
+        this.numNodes += count;
+        if (this.numNodes > this.labels.length) {
+            this.resize(2 * this.numNodes);
+        }
+
+        int[] best = childrenStart > start ? new int[] {start} : new int[0];
+        int child = this.firstChild[node];
+        for (int i = childrenStart; i < end; child++) {
+            int groupEnd = this.endOfGroup(i, end, depth);
+            this.labels[child] = this.words[i].charAt(depth);
+            best = this.merge(best, this.build(child, i, groupEnd, depth + 1));
+            i = groupEnd;
+        }
+
+        if (end - start > MAX_SUGGESTIONS) {
+            if (this.numSuggestions + MAX_SUGGESTIONS > this.suggestions.length) {
+                this.suggestions = Arrays.copyOf(this.suggestions, 2 * this.suggestions.length);
+            }
+            this.suggestionOffsets[node] = this.numSuggestions;
+            System.arraycopy(best, 0, this.suggestions, this.numSuggestions, MAX_SUGGESTIONS);
+            this.numSuggestions += MAX_SUGGESTIONS;
+        }
+        return best;
+    }
+
+    private void resize(int capacity) {
+        if (this.labels == null) {
+            this.labels = new char[capacity];
+            this.firstChild = new int[capacity];
+            this.numChildren = new int[capacity];
+            this.rangeStart = new int[capacity];
+            this.rangeEnd = new int[capacity];
+            this.suggestionOffsets = new int[capacity];
+            return;
+        }
+        this.labels = Arrays.copyOf(this.labels, capacity);
+        this.firstChild = Arrays.copyOf(this.firstChild, capacity);
+        this.numChildren = Arrays.copyOf(this.numChildren, capacity);
+        this.rangeStart = Arrays.copyOf(this.rangeStart, capacity);
+        this.rangeEnd = Arrays.copyOf(this.rangeEnd, capacity);
+        this.suggestionOffsets = Arrays.copyOf(this.suggestionOffsets, capacity);
+    }
+
+    /**
+     * Returns the end of the run of words starting at 'start' that share the same
+     * character at position 'depth'.
+     */
+    private int endOfGroup(int start, int end, int depth) {
+        char label = this.words[start].charAt(depth);
+        int i = start + 1;
+        while (i < end && this.words[i].charAt(depth) == label) {
+            i++;
+        }
+        return i;
+    }
+
+    /**
+     * Merges two lists of word indices, each already in ranked order, keeping only the
+     * best MAX_SUGGESTIONS.
+     */
+    private int[] merge(int[] a, int[] b) {
+        int[] output = new int[Math.min(MAX_SUGGESTIONS, a.length + b.length)];
+        int i = 0;
+        int j = 0;
+        for (int n = 0; n < output.length; n++) {
+            if (j == b.length || (i < a.length && this.ranksBefore(a[i], b[j]))) {
+                output[n] = a[i++];
+            } else {
+                output[n] = b[j++];
+            }
+        }
+        return output;
+    }
+
+    /**
+     * Returns the indices of the words in words[start, end) in ranked order. Only
+     * called on ranges of at most MAX_SUGGESTIONS words.
+     */
+    private int[] rankRange(int start, int end) {
+        int[] output = new int[end - start];
+        for (int i = 0; i < output.length; i++) {
+            // Insertion sort: the range is tiny.
+            int word = start + i;
+            int j = i;
+            while (j > 0 && this.ranksBefore(word, output[j - 1])) {
+                output[j] = output[j - 1];
+                j--;
+            }
+            output[j] = word;
+        }
+        return output;
+    }
+
+    private boolean ranksBefore(int a, int b) {
+        if (this.documentFrequencies[a] != this.documentFrequencies[b]) {
+            return this.documentFrequencies[a] > this.documentFrequencies[b];
+        }
+        // The words are sorted, so a smaller index means alphabetically first.
+        return a < b;
+    }
+
+    /**
+     * Returns the child of the given node with the given label, or -1 if there is none.
+     */
+    private int findChild(int node, char label) {
+        int low = this.firstChild[node];
+        int high = low + this.numChildren[node];
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (this.labels[middle] < label) {
+                low = middle + 1;
+            } else if (this.labels[middle] > label) {
+                high = middle;
+            } else {
+                return middle;
+            }
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,99 @@
+package search.analyzers;
+
+import datastructures.concrete.dictionaries.ChainedHashDictionary;
+import datastructures.interfaces.IDictionary;
+import search.misc.SnapshotIO;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Assigns every distinct word in the corpus a dense integer id, starting at 0.
+ *
+ * The rest of the index refers to words only by these ids, so each word's string is
+ * hashed and stored exactly once no matter how many documents contain it.
+ */
+public class TermDictionary {
+    public static final int NOT_FOUND = -1;
+
+    private IDictionary<String, Integer> ids;
+    private String[] terms;
+    private int size;
+
+    /**
+     * Creates a new, empty dictionary.
+     */
+    public TermDictionary() {
+        this.ids = new ChainedHashDictionary<>();
+        this.terms = new String[16];
+        this.size = 0;
+    }
+
+    /**
+     * Returns the id of the given word, assigning it the next unused id if it
+     * doesn't have one yet.
+     */
+    public int add(String term) {
+        Integer id = this.ids.getOrDefault(term, null);
+        if (id != null) {
+            return id;
+        }
+        if (this.size == this.terms.length) {
+            this.terms = Arrays.copyOf(this.terms, this.size * 2);
+        }
+        this.terms[this.size] = term;
+        this.ids.put(term, this.size);
+        this.size++;
+        return this.size - 1;
+    }
+
+    /**
+     * Returns the id of the given word, or NOT_FOUND if the word is not in this dictionary.
+     */
+    public int getId(String term) {
+        return this.ids.getOrDefault(term, NOT_FOUND);
+    }
+
+    /**
+     * Returns the word with the given id.
+     *
+     * @throws IndexOutOfBoundsException  if no word has this id
+     */
+    public String getTerm(int id) {
+        if (id < 0 || id >= this.size) {
+            throw new IndexOutOfBoundsException("No term with id " + id);
+        }
+        return this.terms[id];
+    }
+
+    /**
+     * Returns the number of words in this dictionary.
+     */
+    public int size() {
+        return this.size;
+    }
+
+    /**
+     * Writes every word, in id order, to the given stream. See load(...).
+     */
+    public void save(DataOutputStream out) throws IOException {
+        out.writeInt(this.size);
+        for (int i = 0; i < this.size; i++) {
+            SnapshotIO.writeString(out, this.terms[i]);
+        }
+    }
+
+    /**
+     * Reads back a dictionary previously written using save(...).
+     */
+    public static TermDictionary load(DataInputStream in) throws IOException {
+        TermDictionary dictionary = new TermDictionary();
+        int size = SnapshotIO.readLength(in);
+        for (int i = 0; i < size; i++) {
+            dictionary.add(SnapshotIO.readString(in));
+        }
+        return dictionary;
+    }
+}
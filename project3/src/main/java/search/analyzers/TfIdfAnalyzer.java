@@ -1,14 +1,17 @@
 package search.analyzers;
 
-import datastructures.concrete.ChainedHashSet;
-import datastructures.concrete.KVPair;
 import datastructures.concrete.dictionaries.ChainedHashDictionary;
 import datastructures.interfaces.IDictionary;
 import datastructures.interfaces.IList;
 import datastructures.interfaces.ISet;
+import search.misc.SnapshotIO;
 import search.models.Webpage;
 
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
 import java.net.URI;
+import java.util.Arrays;
 
 /**
  * This class is responsible for computing how "relevant" any given document is
@@ -17,165 +20,302 @@ import java.net.URI;
  * See the spec for more details.
  */
 public class TfIdfAnalyzer {
+    // Every distinct word in the corpus, each given an integer id. All of the
+    // vectors below refer to words only by these ids.
+    private TermDictionary terms;
+
     // This field must contain the IDF score for every single word in all
-    // the documents.
-    private IDictionary<String, Double> idfScores;
+    // the documents, indexed by the word's id.
+    private double[] idfScores;
 
     // This field must contain the TF-IDF vector for each webpage you were given
-    // in the constructor.
+    // in the constructor, indexed by document id.
     //
-    // We will use each webpage's page URI as a unique key.
-    private IDictionary<URI, IDictionary<String, Double>> documentTfIdfVectors;
-    
-    // Feel free to add extra fields and helper methods.
-    private IDictionary<URI, Double> normVector;
-    
+    // Each webpage's page URI is mapped to a unique document id below.
+    private SparseVector[] documentTfIdfVectors;
+    private URI[] documents;
+    private IDictionary<URI, Integer> documentIds;
+
+    // The norm of each document's TF-IDF vector, indexed by document id.
+    private double[] normVector;
+
+    // The document frequencies of the whole corpus, if these webpages are only one
+    // shard of it; null if they are the whole corpus.
+    private CorpusStatistics statistics;
+
     public TfIdfAnalyzer(ISet<Webpage> webpages) {
-        // Implementation note: We have commented these method calls out so your
-        // search engine doesn't immediately crash when you try running it for the
-        // first time.
-        //
-        // You should uncomment these lines when you're ready to begin working
-        // on this class.
-        this.idfScores = this.computeIdfScores(webpages);
-        this.documentTfIdfVectors = this.computeAllDocumentTfIdfVectors(webpages);
-        this.normVector = this.computeDocumentNorm(webpages);
+        this(webpages, null);
+    }
+
+    /**
+     * Creates an analyzer for one shard of a larger corpus. IDF scores are taken from
+     * the statistics of the whole corpus rather than computed from these webpages, so
+     * every shard scores a page exactly as an analyzer over the whole corpus would.
+     *
+     * @param statistics  The document frequencies of the whole corpus, or null if the
+     *                    given webpages are the whole corpus.
+     */
+    public TfIdfAnalyzer(ISet<Webpage> webpages, CorpusStatistics statistics) {
+        this.statistics = statistics;
+        this.terms = new TermDictionary();
+        this.documents = new URI[webpages.size()];
+        this.documentIds = new ChainedHashDictionary<>();
+
+        SparseVector[] tfVectors = new SparseVector[webpages.size()];
+        int id = 0;
+        for (Webpage page : webpages) {
+            this.documents[id] = page.getUri();
+            this.documentIds.put(page.getUri(), id);
+            tfVectors[id] = this.computeTfScores(page.getWords(), true);
+            id++;
+        }
+
+        this.idfScores = this.computeIdfScores(tfVectors);
+        this.documentTfIdfVectors = this.computeAllDocumentTfIdfVectors(tfVectors);
+        this.normVector = this.computeDocumentNorm();
+    }
+
+    private TfIdfAnalyzer() {
+    }
+
+    /**
+     * Writes the term dictionary, IDF scores, document vectors and norms to the given
+     * stream. See load(...).
+     *
+     * The statistics of the whole corpus are not written: an analyzer for a shard
+     * must be rebuilt rather than loaded.
+     */
+    public void save(DataOutputStream out) throws IOException {
+        this.terms.save(out);
+        SnapshotIO.writeDoubleArray(out, this.idfScores);
+        out.writeInt(this.documents.length);
+        for (int id = 0; id < this.documents.length; id++) {
+            SnapshotIO.writeUri(out, this.documents[id]);
+            out.writeDouble(this.normVector[id]);
+            this.documentTfIdfVectors[id].save(out);
+        }
+    }
+
+    /**
+     * Reads back an analyzer previously written using save(...).
+     */
+    public static TfIdfAnalyzer load(DataInputStream in) throws IOException {
+        TfIdfAnalyzer analyzer = new TfIdfAnalyzer();
+        analyzer.terms = TermDictionary.load(in);
+        analyzer.idfScores = SnapshotIO.readDoubleArray(in);
+        int numDocuments = SnapshotIO.readLength(in);
+        int capacity = SnapshotIO.initialCapacity(numDocuments);
+        analyzer.documents = new URI[capacity];
+        analyzer.documentIds = new ChainedHashDictionary<>();
+        analyzer.normVector = new double[capacity];
+        analyzer.documentTfIdfVectors = new SparseVector[capacity];
+        for (int id = 0; id < numDocuments; id++) {
+            if (id == capacity) {
+                capacity = SnapshotIO.grow(capacity, numDocuments);
+                analyzer.documents = Arrays.copyOf(analyzer.documents, capacity);
+                analyzer.normVector = Arrays.copyOf(analyzer.normVector, capacity);
+                analyzer.documentTfIdfVectors = Arrays.copyOf(analyzer.documentTfIdfVectors, capacity);
+            }
+            analyzer.documents[id] = SnapshotIO.readUri(in);
+            analyzer.documentIds.put(analyzer.documents[id], id);
+            analyzer.normVector[id] = in.readDouble();
+            analyzer.documentTfIdfVectors[id] = SparseVector.load(in);
+        }
+        return analyzer;
     }
 
     // Note: this method, strictly speaking, doesn't need to exist. However,
     // we've included it so we can add some unit tests to help verify that your
     // constructor correctly initializes your fields.
+    //
+    // The index no longer stores vectors as dictionaries, so this builds them
+    // from scratch on every call: don't use it anywhere performance matters.
     public IDictionary<URI, IDictionary<String, Double>> getDocumentTfIdfVectors() {
-        return this.documentTfIdfVectors;
-    }
-
-    // Note: these private methods are suggestions or hints on how to structure your
-    // code. However, since they're private, you're not obligated to implement exactly
-    // these methods: Feel free to change or modify these methods if you want. The
-    // important thing is that your 'computeRelevance' method ultimately returns the
-    // correct answer in an efficient manner.
-
-    /**
-     * This method should return a dictionary mapping every single unique word found
-     * in any documents to their IDF score.
-     */
-    private IDictionary<String, Double> computeIdfScores(ISet<Webpage> pages) {
-        Integer totalIntPagesNum = pages.size();  
-        Double totalPagesNum =totalIntPagesNum.doubleValue();  // number of pages
-        // idf dictionary
-        IDictionary<String, Double> idfDict = new ChainedHashDictionary<String, Double>();
-        // number of docs containing the word
-        IDictionary<String, Integer> wordContainedCount = new ChainedHashDictionary<String, Integer>(); 
-        // iterate all pages
-        for (Webpage page:pages) {
-            ISet<String> inPage = new ChainedHashSet<String>();  //word set in this page
-            for (String word:page.getWords()) {          
-                inPage.add(word);  // add to set, if word is already in this set, do nothing
+        IDictionary<URI, IDictionary<String, Double>> output = new ChainedHashDictionary<>();
+        for (int id = 0; id < this.documents.length; id++) {
+            SparseVector vector = this.documentTfIdfVectors[id];
+            IDictionary<String, Double> dictionary = new ChainedHashDictionary<>();
+            for (int i = 0; i < vector.size(); i++) {
+                dictionary.put(this.terms.getTerm(vector.getTerm(i)), vector.getWeight(i));
             }
-            for (String word:inPage) {
-                // for all words in page's word set
-                if (wordContainedCount.containsKey(word)) {
-                    // if this word already appears in other pages, count++
-                    Integer newCount = wordContainedCount.get(word)+1;
-                    wordContainedCount.put(word, newCount);
-                }
-                else {
-                    // this word appears for the first time
-                    wordContainedCount.put(word, 1);
-                }
+            output.put(this.documents[id], dictionary);
+        }
+        return output;
+    }
+
+    /**
+     * Returns the dictionary assigning every word in the corpus its id.
+     */
+    public TermDictionary getTerms() {
+        return this.terms;
+    }
+
+    /**
+     * Returns the IDF score of the given word, or 0.0 if no document contains it.
+     */
+    public double getIdf(String word) {
+        if (this.statistics != null) {
+            return this.statistics.getIdf(word);
+        }
+        int term = this.terms.getId(word);
+        return term == TermDictionary.NOT_FOUND ? 0.0 : this.idfScores[term];
+    }
+
+    /**
+     * Returns the document frequencies of the whole corpus this analyzer's webpages are
+     * a shard of, or null if they are the whole corpus.
+     */
+    public CorpusStatistics getStatistics() {
+        return this.statistics;
+    }
+
+    /**
+     * Returns the number of documents this analyzer was built from.
+     */
+    public int numDocuments() {
+        return this.documents.length;
+    }
+
+    /**
+     * Returns the URI of the document with the given id.
+     */
+    public URI getUri(int documentId) {
+        return this.documents[documentId];
+    }
+
+    /**
+     * Returns the id assigned to the given page.
+     *
+     * @throws misc.exceptions.NoSuchKeyException  if the page was not given to the constructor
+     */
+    public int getDocumentId(URI pageUri) {
+        return this.documentIds.get(pageUri);
+    }
+
+    /**
+     * Returns the TF-IDF vector of the document with the given id.
+     */
+    public SparseVector getDocumentVector(int documentId) {
+        return this.documentTfIdfVectors[documentId];
+    }
+
+    /**
+     * Returns the norm of the TF-IDF vector of the document with the given id.
+     */
+    public double getNorm(int documentId) {
+        return this.normVector[documentId];
+    }
+
+    /**
+     * This method should return the IDF score of every single unique word found
+     * in any documents, indexed by word id.
+     *
+     * A word's document frequency is the number of TF vectors it appears in.
+     */
+    private double[] computeIdfScores(SparseVector[] tfVectors) {
+        if (this.statistics != null) {
+            double[] idf = new double[this.terms.size()];
+            for (int term = 0; term < idf.length; term++) {
+                idf[term] = this.statistics.getIdf(this.terms.getTerm(term));
             }
+            return idf;
         }
-        for (KVPair<String, Integer> pair:wordContainedCount) {
-            String key = pair.getKey();
-            Double idf = Math.log(totalPagesNum / (pair.getValue().doubleValue()));
-            idfDict.put(key, idf);
+        double totalPagesNum = tfVectors.length;
+        // number of docs containing each word
+        int[] wordContainedCount = new int[this.terms.size()];
+        for (SparseVector tf : tfVectors) {
+            for (int i = 0; i < tf.size(); i++) {
+                wordContainedCount[tf.getTerm(i)]++;
+            }
         }
-        return idfDict;
+        double[] idf = new double[this.terms.size()];
+        for (int term = 0; term < idf.length; term++) {
+            idf[term] = Math.log(totalPagesNum / wordContainedCount[term]);
+        }
+        return idf;
     }
 
     /**
-     * Returns a dictionary mapping every unique word found in the given list
-     * to their term frequency (TF) score.
+     * Returns a sparse vector mapping the id of every unique word found in the given
+     * list to their term frequency (TF) score.
      *
      * We are treating the list of words as if it were a document.
+     *
+     * @param addNewTerms  If true, words not yet in the term dictionary are added to it.
+     *                     If false, they are left out of the vector (but still count
+     *                     towards the length of the document).
      */
-    private IDictionary<String, Double> computeTfScores(IList<String> words) {
-        
-        IDictionary<String, Double> wordCount = new ChainedHashDictionary<String, Double>();
-        Integer pageIntSize = words.size();
-        Double pageSize = pageIntSize.doubleValue();
-        Double onePortion = 1.0/pageSize;
-        for (String word:words) {
-            if (wordCount.containsKey(word)) {
-                Double newTf = wordCount.get(word) + onePortion;
-                wordCount.put(word, newTf);
+    private SparseVector computeTfScores(IList<String> words, boolean addNewTerms) {
+        int[] ids = new int[words.size()];
+        int count = 0;
+        for (String word : words) {
+            int id = addNewTerms ? this.terms.add(word) : this.terms.getId(word);
+            if (id != TermDictionary.NOT_FOUND) {
+                ids[count] = id;
+                count++;
             }
-            else {
-                wordCount.put(word, onePortion);
+        }
+        // Sorting puts repeats of the same word next to each other, so we can count
+        // each word's occurrences in a single pass.
+        Arrays.sort(ids, 0, count);
+
+        int unique = 0;
+        for (int i = 0; i < count; i++) {
+            if (i == 0 || ids[i] != ids[i - 1]) {
+                unique++;
             }
         }
-        return wordCount;
-    }
-
-    /**
-     * See spec for more details on what this method should do.
-     */
-    private IDictionary<URI, IDictionary<String, Double>> computeAllDocumentTfIdfVectors(ISet<Webpage> pages) {
-        // Hint: this method should use the idfScores field and
-        // call the computeTfScores(...) method.
-        IDictionary<URI, IDictionary<String, Double>> tfidfScores = 
-                new ChainedHashDictionary<URI, IDictionary<String, Double>>();
-        // iterate all pages
-        for (Webpage page:pages) {
-            // for every page, create a tfidfVector which stores tfidf scores for all words
-            IDictionary<String, Double> tfidfVector = new ChainedHashDictionary<String, Double>();
-            IDictionary<String, Double> tfScores = computeTfScores(page.getWords());
-            for (KVPair<String, Double> p:tfScores) {
-                String word = p.getKey();
-                Double tfidf = 0.0;
-                if (this.idfScores.containsKey(word)) {
-                    // if word doesn't appears in any pages, idf=0, tfidf=0
-                    // if word appears, tfidf = tf*idf
-                    tfidf = p.getValue() * this.idfScores.get(word);                   
-                }
-                tfidfVector.put(word, tfidf);
+        int[] termIds = new int[unique];
+        double[] tf = new double[unique];
+        double pageSize = words.size();
+        int next = -1;
+        for (int i = 0; i < count; i++) {
+            if (i == 0 || ids[i] != ids[i - 1]) {
+                next++;
+                termIds[next] = ids[i];
             }
-            tfidfScores.put(page.getUri(), tfidfVector);
+            tf[next] += 1.0;
         }
-        return tfidfScores;
+        for (int i = 0; i < unique; i++) {
+            tf[i] /= pageSize;
+        }
+        return new SparseVector(termIds, tf);
     }
 
-    private IDictionary<String, Double> computeQueryTfIdfScores(IList<String> query) {
-        IDictionary<String, Double> tfQuery = computeTfScores(query);
-        IDictionary<String, Double> tfidfQuery = new ChainedHashDictionary<String, Double>();
-        for (KVPair<String, Double> pair:tfQuery) {
-            String word = pair.getKey();
-            Double tfidf = 0.0;
-            if (idfScores.containsKey(word)) {
-                tfidf = idfScores.get(word);
-            }
-            tfidfQuery.put(word, tfidf * pair.getValue());
+    /**
+     * Scales every document's TF vector by the IDF scores, producing its TF-IDF vector.
+     */
+    private SparseVector[] computeAllDocumentTfIdfVectors(SparseVector[] tfVectors) {
+        SparseVector[] tfidfScores = new SparseVector[tfVectors.length];
+        for (int id = 0; id < tfVectors.length; id++) {
+            tfidfScores[id] = this.applyIdf(tfVectors[id]);
         }
-        return tfidfQuery;
+        return tfidfScores;
+    }
+
+    private SparseVector computeQueryTfIdfScores(IList<String> query) {
+        return this.applyIdf(this.computeTfScores(query, false));
     }
 
-    private IDictionary<URI, Double> computeDocumentNorm(ISet<Webpage> pages) {
-        // compute norms for every page, store them in dictionary: {page's uri:norm value}
-        IDictionary<URI, Double> norm = new ChainedHashDictionary<URI, Double>();
-        for (Webpage page:pages) {
-            Double n = computeNorm(documentTfIdfVectors.get(page.getUri()));
-            norm.put(page.getUri(), n);
+    private SparseVector applyIdf(SparseVector tf) {
+        int[] termIds = new int[tf.size()];
+        double[] tfidf = new double[tf.size()];
+        for (int i = 0; i < tf.size(); i++) {
+            termIds[i] = tf.getTerm(i);
+            tfidf[i] = tf.getWeight(i) * this.idfScores[termIds[i]];
         }
-        return norm;
+        return new SparseVector(termIds, tfidf);
     }
-    
-    private Double computeNorm(IDictionary<String, Double> tfidfVector) {
-        Double output = 0.0;
-        for (KVPair<String, Double> pair:tfidfVector) {
-            output += pair.getValue() * pair.getValue();
+
+    private double[] computeDocumentNorm() {
+        // compute norms for every page, indexed by document id
+        double[] norm = new double[this.documentTfIdfVectors.length];
+        for (int id = 0; id < norm.length; id++) {
+            norm[id] = this.documentTfIdfVectors[id].norm();
         }
-        return Math.sqrt(output);
+        return norm;
     }
+
     /**
      * Returns the cosine similarity between the TF-IDF vector for the given query and the
      * URI's document.
@@ -184,25 +324,112 @@ public class TfIdfAnalyzer {
      *               webpages given to the constructor.
      */
     public Double computeRelevance(IList<String> query, URI pageUri) {
-        IDictionary<String, Double> tfidfQuery = computeQueryTfIdfScores(query);
-        IDictionary<String, Double> tfidfPage = documentTfIdfVectors.get(pageUri);
-        Double numerator = 0.0;
-        for (String word:query) {
-            Double pageScore = 0.0; 
-            if (tfidfPage.containsKey(word)) {
-                pageScore = tfidfPage.get(word);
+        return this.prepareQuery(query).computeRelevance(pageUri);
+    }
+
+    /**
+     * Computes the TF-IDF vector and norm of the given query once so it can be
+     * compared against many documents without rebuilding the query vector each time.
+     */
+    public PreparedQuery prepareQuery(IList<String> query) {
+        SparseVector vector = this.computeQueryTfIdfScores(query);
+        // A shard's query vector leaves out words found only in other shards, but they
+        // still count towards the query's norm.
+        double norm = this.statistics == null ? vector.norm() : this.computeCorpusQueryNorm(query);
+        return new PreparedQuery(vector, norm);
+    }
+
+    /**
+     * Returns the norm of the query's TF-IDF vector over the whole corpus.
+     */
+    private double computeCorpusQueryNorm(IList<String> query) {
+        String[] words = new String[query.size()];
+        int i = 0;
+        for (String word : query) {
+            words[i++] = word;
+        }
+        Arrays.sort(words);
+
+        double sumOfSquares = 0.0;
+        for (int start = 0; start < words.length; ) {
+            int end = start + 1;
+            while (end < words.length && words[end].equals(words[start])) {
+                end++;
+            }
+            double weight = ((double) (end - start) / words.length) * this.statistics.getIdf(words[start]);
+            sumOfSquares += weight * weight;
+            start = end;
+        }
+        return Math.sqrt(sumOfSquares);
+    }
+
+    /**
+     * Represents a query whose TF-IDF vector has already been computed.
+     *
+     * Words with a weight of zero can never contribute to the cosine similarity,
+     * so we only keep the words that matter.
+     */
+    public class PreparedQuery {
+        private SparseVector vector;
+        private double norm;
+
+        private PreparedQuery(SparseVector tfidfQuery, double norm) {
+            int nonZero = 0;
+            for (int i = 0; i < tfidfQuery.size(); i++) {
+                if (tfidfQuery.getWeight(i) != 0.0) {
+                    nonZero++;
+                }
+            }
+            int[] termIds = new int[nonZero];
+            double[] weights = new double[nonZero];
+            int next = 0;
+            for (int i = 0; i < tfidfQuery.size(); i++) {
+                if (tfidfQuery.getWeight(i) != 0.0) {
+                    termIds[next] = tfidfQuery.getTerm(i);
+                    weights[next] = tfidfQuery.getWeight(i);
+                    next++;
+                }
             }
-            Double queryScore = tfidfQuery.get(word);
-            numerator += (pageScore * queryScore);
+            this.vector = new SparseVector(termIds, weights);
+            this.norm = norm;
         }
-        Double normQuery = computeNorm(tfidfQuery);
-        Double normPage = normVector.get(pageUri);
-        Double denominator = normPage * normQuery;
-        if (denominator != 0) {
-            return (numerator/denominator);
+
+        /**
+         * Returns the query's TF-IDF vector, without any of its zero weights.
+         */
+        public SparseVector getVector() {
+            return this.vector;
+        }
+
+        /**
+         * Returns the Euclidean length of the query's TF-IDF vector.
+         */
+        public double getNorm() {
+            return this.norm;
         }
-        else {
-            return 0.0;
+
+        /**
+         * Returns the cosine similarity between this query and the URI's document.
+         *
+         * Precondition: the given uri must have been one of the uris within the list of
+         *               webpages given to the constructor.
+         */
+        public double computeRelevance(URI pageUri) {
+            return this.computeRelevance(documentIds.get(pageUri));
+        }
+
+        /**
+         * Returns the cosine similarity between this query and the document with the
+         * given id.
+         */
+        public double computeRelevance(int documentId) {
+            double numerator = this.vector.dot(documentTfIdfVectors[documentId]);
+            double denominator = normVector[documentId] * this.norm;
+            if (denominator != 0) {
+                return numerator / denominator;
+            } else {
+                return 0.0;
+            }
         }
     }
 }
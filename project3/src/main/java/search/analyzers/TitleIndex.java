@@ -0,0 +1,210 @@
+package search.analyzers;
+
+import datastructures.interfaces.IDictionary;
+import datastructures.interfaces.IList;
+import search.misc.WordInterner;
+import search.misc.WordTokenizer;
+import search.models.WebpageSummary;
+
+import java.net.URI;
+import java.util.Arrays;
+
+/**
+ * This class indexes the words in each page's title, separately from the words in
+ * its body.
+ *
+ * A page whose title contains the query words is very likely what the user is
+ * looking for, especially for navigational queries like "seattle times". We give
+ * each such page a title score between 0 and 1: the share of the query's total IDF
+ * made up by the query words found in its title. Words in every page, or in none,
+ * have an IDF of zero and so never count either way. IDF scores come from the body
+ * text, since titles are too short to tell common words from rare ones; this also
+ * means shards agree on title scores, since their IDF scores are those of the whole
+ * corpus.
+ *
+ * Titles are only a few words long, so the title index has its own term dictionary
+ * and posting lists, which are far shorter than the body's.
+ */
+public class TitleIndex {
+    private static final int[] NO_DOCUMENTS = new int[0];
+    private static final double[] NO_SCORES = new double[0];
+
+    private TfIdfAnalyzer tfIdf;
+    private WordInterner terms;
+
+    // Maps each title word id to the sorted ids of every document with it in its title.
+    private PostingList[] postings;
+
+    /**
+     * Indexes the title of every page in the given index.
+     *
+     * @param pages  The summary of every page in the index, by URI.
+     */
+    public TitleIndex(IDictionary<URI, WebpageSummary> pages, InvertedIndex index, TfIdfAnalyzer tfIdf) {
+        this.tfIdf = tfIdf;
+        this.terms = new WordInterner();
+
+        // Document ids are visited in increasing order, so every posting list is sorted.
+        int[][] uncompressed = new int[16][];
+        int[] counts = new int[16];
+        boolean[] seen = new boolean[16];
+        for (int id = 0; id < index.size(); id++) {
+            int[] words = WordTokenizer.extractIds(pages.get(index.getUri(id)).getTitle(), this.terms);
+            int[] added = new int[words.length];
+            int numAdded = 0;
+            for (int term : words) {
+                if (term >= uncompressed.length) {
+                    uncompressed = Arrays.copyOf(uncompressed, 2 * uncompressed.length);
+                    counts = Arrays.copyOf(counts, 2 * counts.length);
+                    seen = Arrays.copyOf(seen, 2 * seen.length);
+                }
+                if (seen[term]) {
+                    continue;
+                }
+                seen[term] = true;
+                added[numAdded++] = term;
+                if (uncompressed[term] == null) {
+                    uncompressed[term] = new int[4];
+                } else if (counts[term] == uncompressed[term].length) {
+                    uncompressed[term] = Arrays.copyOf(uncompressed[term], 2 * counts[term]);
+                }
+                uncompressed[term][counts[term]++] = id;
+            }
+            for (int i = 0; i < numAdded; i++) {
+                seen[added[i]] = false;
+            }
+        }
+
+        this.postings = new PostingList[this.terms.size()];
+        for (int term = 0; term < this.postings.length; term++) {
+            this.postings[term] = new PostingList(Arrays.copyOf(uncompressed[term], counts[term]));
+            uncompressed[term] = null;
+        }
+    }
+
+    /**
+     * Returns the number of distinct words found in any title.
+     */
+    public int numTerms() {
+        return this.terms.size();
+    }
+
+    /**
+     * Returns the sorted ids of every document with the given word in its title.
+     */
+    public int[] getPostings(String word) {
+        int term = this.terms.getId(word);
+        return term == WordInterner.NOT_FOUND ? NO_DOCUMENTS : this.postings[term].toArray();
+    }
+
+    /**
+     * Returns every document with at least one of the query's words in its title,
+     * along with its title score.
+     */
+    public Matches findMatches(IList<String> query) {
+        // Each distinct word counts once, however often it is repeated.
+        String[] words = new String[query.size()];
+        int count = 0;
+        for (String word : query) {
+            words[count++] = word;
+        }
+        Arrays.sort(words);
+
+        double total = 0.0;
+        PostingList.Cursor[] cursors = new PostingList.Cursor[count];
+        double[] weights = new double[count];
+        int numCursors = 0;
+        for (int i = 0; i < count; i++) {
+            if (i > 0 && words[i].equals(words[i - 1])) {
+                continue;
+            }
+            double idf = this.tfIdf.getIdf(words[i]);
+            total += idf;
+            int term = this.terms.getId(words[i]);
+            if (idf > 0.0 && term != WordInterner.NOT_FOUND) {
+                cursors[numCursors] = this.postings[term].cursor();
+                weights[numCursors] = idf;
+                numCursors++;
+            }
+        }
+        if (numCursors == 0) {
+            return new Matches(NO_DOCUMENTS, NO_SCORES, 0);
+        }
+
+        int capacity = 0;
+        for (int i = 0; i < numCursors; i++) {
+            capacity += cursors[i].cost();
+        }
+        int[] documents = new int[capacity];
+        double[] scores = new double[capacity];
+        int size = 0;
+        while (true) {
+            int document = PostingList.NO_MORE_DOCUMENTS;
+            for (int i = 0; i < numCursors; i++) {
+                document = Math.min(document, cursors[i].document());
+            }
+            if (document == PostingList.NO_MORE_DOCUMENTS) {
+                break;
+            }
+            double score = 0.0;
+            for (int i = 0; i < numCursors; i++) {
+                if (cursors[i].document() == document) {
+                    score += weights[i];
+                    cursors[i].next();
+                }
+            }
+            documents[size] = document;
+            scores[size] = score / total;
+            size++;
+        }
+        return new Matches(documents, scores, size);
+    }
+
+    /**
+     * The documents whose titles contain some of a query's words, in increasing id
+     * order, and their title scores.
+     */
+    public static class Matches {
+        private final int[] documents;
+        private final double[] scores;
+
+        private Matches(int[] documents, double[] scores, int size) {
+            this.documents = documents.length == size ? documents : Arrays.copyOf(documents, size);
+            this.scores = scores.length == size ? scores : Arrays.copyOf(scores, size);
+        }
+
+        public int size() {
+            return this.documents.length;
+        }
+
+        /**
+         * Returns the sorted ids of every matching document.
+         */
+        public int[] getDocuments() {
+            return this.documents;
+        }
+
+        /**
+         * Returns the id of the i-th matching document.
+         */
+        public int getDocument(int i) {
+            return this.documents[i];
+        }
+
+        /**
+         * Returns the title score of the i-th matching document.
+         */
+        public double getScore(int i) {
+            return this.scores[i];
+        }
+
+        /**
+         * Returns the title score of the document with the given id, which is 0.0 if its
+         * title contains none of the query's words.
+         */
+        public double findScore(int documentId) {
+            int i = Arrays.binarySearch(this.documents, documentId);
+            return i >= 0 ? this.scores[i] : 0.0;
+        }
+    }
+}
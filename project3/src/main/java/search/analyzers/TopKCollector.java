@@ -0,0 +1,192 @@
+package search.analyzers;
+
+import java.util.Arrays;
+
+/**
+ * Keeps track of the k highest scoring documents seen so far, as (document id, score)
+ * pairs are produced one at a time.
+ *
+ * The entries live in a binary min-heap spread across two parallel primitive arrays,
+ * so once they are full, collecting a document never allocates anything: the worst of
+ * the current top k sits at the root and is simply overwritten when a better document
+ * comes along.
+ *
+ * k often comes straight from a request, so the arrays start small and only grow as
+ * documents are actually collected: asking for far more results than there are pages
+ * costs no more than asking for all of them.
+ */
+public class TopKCollector {
+    private static final int INITIAL_CAPACITY = 16;
+
+    private final int k;
+    private int[] documentIds;
+    private double[] scores;
+    private int size;
+    private boolean sorted;
+
+    /**
+     * Creates a collector that keeps at most k documents.
+     *
+     * @throws IllegalArgumentException  if k < 0
+     */
+    public TopKCollector(int k) {
+        if (k < 0) {
+            throw new IllegalArgumentException("k must not be negative");
+        }
+        this.k = k;
+        this.documentIds = new int[Math.min(k, INITIAL_CAPACITY)];
+        this.scores = new double[this.documentIds.length];
+        this.size = 0;
+        this.sorted = false;
+    }
+
+    /**
+     * Returns the maximum number of documents this collector keeps.
+     */
+    public int capacity() {
+        return this.k;
+    }
+
+    /**
+     * Returns the number of documents currently kept.
+     */
+    public int size() {
+        return this.size;
+    }
+
+    /**
+     * Returns the score a new document must beat to be kept: the worst kept score once
+     * the collector is full, and negative infinity before then.
+     */
+    public double getThreshold() {
+        if (this.size < this.k) {
+            return Double.NEGATIVE_INFINITY;
+        } else if (this.size == 0) {
+            return Double.POSITIVE_INFINITY;
+        }
+        return this.scores[0];
+    }
+
+    /**
+     * Offers a document to this collector. Returns true if it is now one of the top k.
+     *
+     * When two documents have the same score, the one collected first is kept.
+     *
+     * @throws IllegalStateException  if sort() has already been called
+     */
+    public boolean collect(int documentId, double score) {
+        if (this.sorted) {
+            throw new IllegalStateException("Cannot collect documents after sorting");
+        }
+        if (this.size < this.k) {
+            if (this.size == this.scores.length) {
+                this.grow();
+            }
+            this.documentIds[this.size] = documentId;
+            this.scores[this.size] = score;
+            this.siftUp(this.size);
+            this.size++;
+            return true;
+        } else if (this.size > 0 && score > this.scores[0]) {
+            this.documentIds[0] = documentId;
+            this.scores[0] = score;
+            this.siftDown(0, this.size);
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Sorts the kept documents from the highest score to the lowest, so they can be
+     * read back using getDocumentId and getScore. No more documents may be collected
+     * afterwards.
+     */
+    public void sort() {
+        if (this.sorted) {
+            return;
+        }
+        // Heapsort: repeatedly swap the minimum to the end of the shrinking heap,
+        // which leaves the arrays in decreasing order.
+        for (int end = this.size - 1; end > 0; end--) {
+            this.swap(0, end);
+            this.siftDown(0, end);
+        }
+        this.sorted = true;
+    }
+
+    /**
+     * Returns the id of the i-th best document.
+     *
+     * @throws IllegalStateException      if sort() has not been called yet
+     * @throws IndexOutOfBoundsException  if i is not less than size()
+     */
+    public int getDocumentId(int i) {
+        this.checkSorted(i);
+        return this.documentIds[i];
+    }
+
+    /**
+     * Returns the score of the i-th best document.
+     *
+     * @throws IllegalStateException      if sort() has not been called yet
+     * @throws IndexOutOfBoundsException  if i is not less than size()
+     */
+    public double getScore(int i) {
+        this.checkSorted(i);
+        return this.scores[i];
+    }
+
+    private void checkSorted(int i) {
+        if (!this.sorted) {
+            throw new IllegalStateException("Must sort before reading results");
+        }
+        if (i < 0 || i >= this.size) {
+            throw new IndexOutOfBoundsException("Index " + i + " out of range");
+        }
+    }
+
+    private void grow() {
+        int capacity = (int) Math.min(this.k, 2L * this.scores.length);
+        this.documentIds = Arrays.copyOf(this.documentIds, capacity);
+        this.scores = Arrays.copyOf(this.scores, capacity);
+    }
+
+    private void siftUp(int index) {
+        while (index > 0) {
+            int parent = (index - 1) / 2;
+            if (this.scores[index] >= this.scores[parent]) {
+                return;
+            }
+            this.swap(index, parent);
+            index = parent;
+        }
+    }
+
+    private void siftDown(int index, int end) {
+        while (true) {
+            int smallest = index;
+            int left = 2 * index + 1;
+            int right = left + 1;
+            if (left < end && this.scores[left] < this.scores[smallest]) {
+                smallest = left;
+            }
+            if (right < end && this.scores[right] < this.scores[smallest]) {
+                smallest = right;
+            }
+            if (smallest == index) {
+                return;
+            }
+            this.swap(index, smallest);
+            index = smallest;
+        }
+    }
+
+    private void swap(int a, int b) {
+        int documentId = this.documentIds[a];
+        this.documentIds[a] = this.documentIds[b];
+        this.documentIds[b] = documentId;
+        double score = this.scores[a];
+        this.scores[a] = this.scores[b];
+        this.scores[b] = score;
+    }
+}
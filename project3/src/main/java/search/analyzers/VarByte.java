@@ -0,0 +1,49 @@
+package search.analyzers;
+
+/**
+ * Reads and writes non-negative integers in variable-byte form: seven bits per byte,
+ * least significant group first, with the high bit set on every byte except the last.
+ * Numbers below 128 take a single byte.
+ */
+class VarByte {
+    // The most bytes a single int can take up.
+    public static final int MAX_BYTES = 5;
+
+    /**
+     * Writes the value into the buffer at the given offset, and returns the offset just
+     * past the last byte written. The buffer must have room for MAX_BYTES more bytes.
+     */
+    public static int write(byte[] buffer, int offset, int value) {
+        while ((value & ~0x7F) != 0) {
+            buffer[offset++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        buffer[offset++] = (byte) value;
+        return offset;
+    }
+
+    /**
+     * Reads the values stored back to back in data[from, to), undoing the gap encoding
+     * used by every list in this package: each value is stored as the distance from
+     * the previous one, minus one, starting from 'previous'.
+     *
+     * Returns the number of values written into 'output'.
+     */
+    public static int readGaps(byte[] data, int from, int to, int previous, int[] output) {
+        int count = 0;
+        int offset = from;
+        while (offset < to) {
+            int gap = 0;
+            int shift = 0;
+            byte next;
+            do {
+                next = data[offset++];
+                gap |= (next & 0x7F) << shift;
+                shift += 7;
+            } while (next < 0);
+            previous += gap + 1;
+            output[count++] = previous;
+        }
+        return count;
+    }
+}
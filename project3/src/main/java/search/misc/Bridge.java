@@ -50,15 +50,13 @@ public class Bridge {
 
         @Override
         public BinaryOperator<IList<T>> combiner() {
+            // Each partial result belongs to exactly one branch of the stream, so
+            // we can append the right half onto the left instead of copying both.
             return (a, b) -> {
-                IList<T> out = new DoubleLinkedList<>();
-                for (T i : a) {
-                    out.add(i);
-                }
                 for (T i : b) {
-                    out.add(i);
+                    a.add(i);
                 }
-                return out;
+                return a;
             };
         }
 
@@ -86,15 +84,15 @@ public class Bridge {
 
         @Override
         public BinaryOperator<ISet<T>> combiner() {
+            // Each partial result belongs to exactly one branch of the stream, so
+            // we can merge the smaller set into the larger one instead of copying both.
             return (a, b) -> {
-                ISet<T> out = new ChainedHashSet<>();
-                for (T i : a) {
-                    out.add(i);
-                }
-                for (T i : b) {
-                    out.add(i);
+                ISet<T> larger = a.size() >= b.size() ? a : b;
+                ISet<T> smaller = a.size() >= b.size() ? b : a;
+                for (T i : smaller) {
+                    larger.add(i);
                 }
-                return out;
+                return larger;
             };
         }
 
@@ -0,0 +1,103 @@
+package search.misc;
+
+import datastructures.concrete.DoubleLinkedList;
+import datastructures.interfaces.IList;
+
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+
+/**
+ * An input stream reading a list of byte arrays back to back.
+ *
+ * The arrays are never copied into one big buffer: each one is read straight out of
+ * the array it was added as. This lets a response made mostly of bytes encoded ahead
+ * of time be streamed out without building it up in memory first.
+ */
+public class ChunkInputStream extends InputStream {
+    private final IList<byte[]> chunks;
+    private long length;
+
+    // Null until reading starts.
+    private Iterator<byte[]> remaining;
+    private byte[] current;
+    private int offset;
+
+    public ChunkInputStream() {
+        this.chunks = new DoubleLinkedList<>();
+        this.length = 0;
+        this.remaining = null;
+        this.current = null;
+        this.offset = 0;
+    }
+
+    /**
+     * Adds the given bytes to the end of the stream. The array is not copied, so it must
+     * not be changed afterwards.
+     *
+     * @throws IllegalStateException  if reading has already started
+     */
+    public ChunkInputStream add(byte[] chunk) {
+        if (this.remaining != null) {
+            throw new IllegalStateException("Can't add to a stream once reading has started");
+        }
+        this.chunks.add(chunk);
+        this.length += chunk.length;
+        return this;
+    }
+
+    /**
+     * Adds the given text to the end of the stream, encoded as UTF-8.
+     */
+    public ChunkInputStream add(String text) {
+        return this.add(text.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Returns the total number of bytes added to this stream.
+     */
+    public long length() {
+        return this.length;
+    }
+
+    @Override
+    public int read() {
+        if (!this.advance()) {
+            return -1;
+        }
+        return this.current[this.offset++] & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] buffer, int offset, int length) {
+        if (length == 0) {
+            return 0;
+        }
+        int total = 0;
+        while (total < length && this.advance()) {
+            int count = Math.min(length - total, this.current.length - this.offset);
+            System.arraycopy(this.current, this.offset, buffer, offset + total, count);
+            this.offset += count;
+            total += count;
+        }
+        return total == 0 ? -1 : total;
+    }
+
+    /**
+     * Moves on to the next chunk if the current one is used up. Returns false once every
+     * chunk has been read.
+     */
+    private boolean advance() {
+        if (this.remaining == null) {
+            this.remaining = this.chunks.iterator();
+        }
+        while (this.current == null || this.offset == this.current.length) {
+            if (!this.remaining.hasNext()) {
+                return false;
+            }
+            this.current = this.remaining.next();
+            this.offset = 0;
+        }
+        return true;
+    }
+}
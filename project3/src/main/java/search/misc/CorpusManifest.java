@@ -0,0 +1,136 @@
+package search.misc;
+
+import datastructures.interfaces.IList;
+import search.misc.exceptions.DataExtractionException;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Arrays;
+
+/**
+ * Describes the exact set of files a corpus was built from: the path of every file
+ * relative to the corpus root, along with its size and last-modified time.
+ *
+ * If two manifests are equal, we assume the files they describe are unchanged, so
+ * anything previously computed from those files can safely be reused.
+ */
+public class CorpusManifest {
+    private String[] paths;
+    private long[] sizes;
+    private long[] lastModified;
+
+    private CorpusManifest(String[] paths, long[] sizes, long[] lastModified) {
+        this.paths = paths;
+        this.sizes = sizes;
+        this.lastModified = lastModified;
+    }
+
+    /**
+     * Builds a manifest describing the given files, all of which must live under 'root'.
+     */
+    public static CorpusManifest scan(Path root, IList<Path> files) {
+        // Sort the paths so the manifest doesn't depend on directory listing order.
+        String[] paths = new String[files.size()];
+        int i = 0;
+        for (Path file : files) {
+            paths[i] = root.relativize(file).toString().replace('\\', '/');
+            i++;
+        }
+        Arrays.sort(paths);
+
+        long[] sizes = new long[paths.length];
+        long[] lastModified = new long[paths.length];
+        for (i = 0; i < paths.length; i++) {
+            try {
+                BasicFileAttributes attributes = Files.readAttributes(
+                        root.resolve(paths[i]), BasicFileAttributes.class);
+                sizes[i] = attributes.size();
+                lastModified[i] = attributes.lastModifiedTime().toMillis();
+            } catch (IOException ex) {
+                throw new DataExtractionException("Could not read attributes of " + paths[i], ex);
+            }
+        }
+        return new CorpusManifest(paths, sizes, lastModified);
+    }
+
+    /**
+     * Returns the number of files in this manifest.
+     */
+    public int size() {
+        return this.paths.length;
+    }
+
+    /**
+     * Returns the path of the i-th file, relative to the corpus root.
+     */
+    public String getPath(int i) {
+        return this.paths[i];
+    }
+
+    /**
+     * Returns the size of the i-th file, in bytes.
+     */
+    public long getSize(int i) {
+        return this.sizes[i];
+    }
+
+    /**
+     * Returns the last-modified time of the i-th file, in milliseconds since the epoch.
+     */
+    public long getLastModified(int i) {
+        return this.lastModified[i];
+    }
+
+    public void save(DataOutputStream out) throws IOException {
+        out.writeInt(this.paths.length);
+        for (int i = 0; i < this.paths.length; i++) {
+            SnapshotIO.writeString(out, this.paths[i]);
+            out.writeLong(this.sizes[i]);
+            out.writeLong(this.lastModified[i]);
+        }
+    }
+
+    public static CorpusManifest load(DataInputStream in) throws IOException {
+        int size = SnapshotIO.readLength(in);
+        int capacity = SnapshotIO.initialCapacity(size);
+        String[] paths = new String[capacity];
+        long[] sizes = new long[capacity];
+        long[] lastModified = new long[capacity];
+        for (int i = 0; i < size; i++) {
+            if (i == capacity) {
+                capacity = SnapshotIO.grow(capacity, size);
+                paths = Arrays.copyOf(paths, capacity);
+                sizes = Arrays.copyOf(sizes, capacity);
+                lastModified = Arrays.copyOf(lastModified, capacity);
+            }
+            paths[i] = SnapshotIO.readString(in);
+            sizes[i] = in.readLong();
+            lastModified[i] = in.readLong();
+        }
+        return new CorpusManifest(paths, sizes, lastModified);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+
+        CorpusManifest that = (CorpusManifest) o;
+
+        return Arrays.equals(paths, that.paths)
+                && Arrays.equals(sizes, that.sizes)
+                && Arrays.equals(lastModified, that.lastModified);
+    }
+
+    @Override
+    public int hashCode() {
+        int result = Arrays.hashCode(paths);
+        result = 31 * result + Arrays.hashCode(sizes);
+        result = 31 * result + Arrays.hashCode(lastModified);
+        return result;
+    }
+}
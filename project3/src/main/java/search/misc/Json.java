@@ -0,0 +1,60 @@
+package search.misc;
+
+/**
+ * Helpers for writing JSON responses by hand.
+ */
+public class Json {
+    private Json() {
+    }
+
+    /**
+     * Returns the given string as a JSON string literal, surrounded by double quotes.
+     */
+    public static String quote(String value) {
+        StringBuilder output = new StringBuilder(value.length() + 2);
+        appendQuoted(output, value);
+        return output.toString();
+    }
+
+    /**
+     * Appends the given string to the output as a JSON string literal.
+     */
+    public static void appendQuoted(StringBuilder output, String value) {
+        output.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"': output.append("\\\""); break;
+                case '\\': output.append("\\\\"); break;
+                case '\n': output.append("\\n"); break;
+                case '\r': output.append("\\r"); break;
+                case '\t': output.append("\\t"); break;
+                default:
+                    // Escaping '<' and the Unicode line separators keeps the output safe to
+                    // embed in a <script> tag.
+                    if (c < 0x20 || c == '<' || c == '\u2028' || c == '\u2029') {
+                        output.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        output.append(c);
+                    }
+            }
+        }
+        output.append('"');
+    }
+
+    /**
+     * Returns the given strings as a JSON array of string literals.
+     */
+    public static String array(Iterable<String> values) {
+        StringBuilder output = new StringBuilder("[");
+        boolean first = true;
+        for (String value : values) {
+            if (!first) {
+                output.append(',');
+            }
+            appendQuoted(output, value);
+            first = false;
+        }
+        return output.append(']').toString();
+    }
+}
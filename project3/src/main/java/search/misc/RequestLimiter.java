@@ -0,0 +1,72 @@
+package search.misc;
+
+import search.misc.exceptions.OverloadedException;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Limits how many expensive requests, such as search queries, run at once.
+ *
+ * A request first waits for one of a fixed number of permits. Permits are handed out in
+ * the order requests asked for them, so a burst of queries is answered first come, first
+ * served instead of all competing for the CPU and all finishing late. A request that
+ * can't get a permit within the queue timeout is turned away with an
+ * OverloadedException, so the client hears back right away and can retry later, rather
+ * than waiting on a queue that isn't moving fast enough.
+ *
+ * Admitted requests run on the thread that asked, so nothing is handed between threads.
+ */
+public class RequestLimiter {
+    private final Semaphore permits;
+    private final int queueTimeoutMillis;
+
+    /**
+     * @param maxConcurrent       How many requests may run at once.
+     * @param queueTimeoutMillis  How long a request may wait for its turn before being
+     *                            turned away.
+     * @throws IllegalArgumentException  if maxConcurrent is not positive or
+     *                                   queueTimeoutMillis is negative
+     */
+    public RequestLimiter(int maxConcurrent, int queueTimeoutMillis) {
+        if (maxConcurrent <= 0) {
+            throw new IllegalArgumentException("maxConcurrent must be positive");
+        }
+        if (queueTimeoutMillis < 0) {
+            throw new IllegalArgumentException("queueTimeoutMillis must not be negative");
+        }
+        this.permits = new Semaphore(maxConcurrent, true);
+        this.queueTimeoutMillis = queueTimeoutMillis;
+    }
+
+    /**
+     * Returns how long a request may wait for its turn, in milliseconds.
+     */
+    public int getQueueTimeoutMillis() {
+        return this.queueTimeoutMillis;
+    }
+
+    /**
+     * Waits for a turn to run the given task, then runs it and returns its result.
+     * Anything the task throws is thrown as-is.
+     *
+     * @throws OverloadedException  if the task could not start within the queue timeout
+     */
+    public <T> T execute(Callable<T> task) throws Exception {
+        try {
+            if (!this.permits.tryAcquire(this.queueTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                throw new OverloadedException("No free slot after waiting " + this.queueTimeoutMillis + "ms");
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new OverloadedException("Interrupted while waiting for a free slot", ex);
+        }
+
+        try {
+            return task.call();
+        } finally {
+            this.permits.release();
+        }
+    }
+}
@@ -0,0 +1,181 @@
+package search.misc;
+
+import datastructures.concrete.DoubleLinkedList;
+import datastructures.interfaces.IList;
+import search.models.Result;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A bounded cache of search results, keyed by the query's (already normalized)
+ * list of words plus the number of results requested.
+ *
+ * When the estimated size of everything in the cache goes over the memory budget,
+ * the least recently used entries are evicted first. The cache is safe to use from
+ * multiple threads at once.
+ */
+public class ResultCache {
+    // Rough sizes, in bytes, used to estimate how much memory an entry holds on to.
+    // Each result's summary belongs to the index, so only the Result object and the
+    // list node pointing at it are counted.
+    private static final long ENTRY_OVERHEAD = 128;
+    private static final long BYTES_PER_WORD = 48;
+    private static final long BYTES_PER_CHAR = 2;
+    private static final long BYTES_PER_RESULT = 64;
+
+    private final long maxBytes;
+    private final LinkedHashMap<Key, Entry> entries;
+    private long usedBytes;
+    private long hits;
+    private long misses;
+
+    /**
+     * Creates a new, empty cache.
+     *
+     * @param maxBytes  The approximate number of bytes the cached entries may use.
+     * @throws IllegalArgumentException  if maxBytes is negative
+     */
+    public ResultCache(long maxBytes) {
+        if (maxBytes < 0) {
+            throw new IllegalArgumentException("maxBytes must not be negative");
+        }
+        this.maxBytes = maxBytes;
+        // An access-ordered map keeps the least recently used entry first.
+        this.entries = new LinkedHashMap<>(16, 0.75f, true);
+    }
+
+    /**
+     * Returns a copy of the cached results for the given query, or null if there are none.
+     */
+    public synchronized IList<Result> get(IList<String> query, int k) {
+        Entry entry = this.entries.get(new Key(query, k));
+        if (entry == null) {
+            this.misses++;
+            return null;
+        }
+        this.hits++;
+        IList<Result> copy = new DoubleLinkedList<>();
+        for (Result result : entry.results) {
+            copy.add(result);
+        }
+        return copy;
+    }
+
+    /**
+     * Stores the results for the given query, evicting the least recently used entries
+     * if the cache grows past its memory budget. Results too large to ever fit are not
+     * stored at all.
+     */
+    public synchronized void put(IList<String> query, int k, IList<Result> results) {
+        Key key = new Key(query, k);
+        IList<Result> copy = new DoubleLinkedList<>();
+        for (Result result : results) {
+            copy.add(result);
+        }
+        Entry entry = new Entry(copy, estimateBytes(key, copy));
+        if (entry.bytes > this.maxBytes) {
+            return;
+        }
+
+        Entry old = this.entries.put(key, entry);
+        if (old != null) {
+            this.usedBytes -= old.bytes;
+        }
+        this.usedBytes += entry.bytes;
+
+        Iterator<Map.Entry<Key, Entry>> iter = this.entries.entrySet().iterator();
+        while (this.usedBytes > this.maxBytes && iter.hasNext()) {
+            this.usedBytes -= iter.next().getValue().bytes;
+            iter.remove();
+        }
+    }
+
+    /**
+     * Removes every entry. Call this whenever the index the results came from changes.
+     */
+    public synchronized void clear() {
+        this.entries.clear();
+        this.usedBytes = 0;
+    }
+
+    /**
+     * Returns the number of queries currently cached.
+     */
+    public synchronized int size() {
+        return this.entries.size();
+    }
+
+    /**
+     * Returns the estimated number of bytes used by the cached entries.
+     */
+    public synchronized long getUsedBytes() {
+        return this.usedBytes;
+    }
+
+    /**
+     * Returns the number of lookups that found cached results.
+     */
+    public synchronized long getHits() {
+        return this.hits;
+    }
+
+    /**
+     * Returns the number of lookups that found nothing.
+     */
+    public synchronized long getMisses() {
+        return this.misses;
+    }
+
+    private static long estimateBytes(Key key, IList<Result> results) {
+        long bytes = ENTRY_OVERHEAD;
+        for (String word : key.words) {
+            bytes += BYTES_PER_WORD + BYTES_PER_CHAR * word.length();
+        }
+        return bytes + BYTES_PER_RESULT * results.size();
+    }
+
+    private static class Key {
+        private final String[] words;
+        private final int k;
+        private final int hashCode;
+
+        public Key(IList<String> query, int k) {
+            this.words = new String[query.size()];
+            int i = 0;
+            for (String word : query) {
+                this.words[i] = word;
+                i++;
+            }
+            this.k = k;
+            this.hashCode = 31 * Arrays.hashCode(this.words) + k;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+
+            Key key = (Key) o;
+
+            return k == key.k && Arrays.equals(words, key.words);
+        }
+
+        @Override
+        public int hashCode() {
+            return this.hashCode;
+        }
+    }
+
+    private static class Entry {
+        private final IList<Result> results;
+        private final long bytes;
+
+        public Entry(IList<Result> results, long bytes) {
+            this.results = results;
+            this.bytes = bytes;
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package search.misc;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Small helpers shared by every class that reads or writes part of an index snapshot.
+ *
+ * DataOutputStream.writeUTF is limited to 64KB strings, so strings are written as a
+ * length followed by their UTF-8 bytes instead.
+ *
+ * Arrays are read into a small buffer that grows as their contents actually arrive,
+ * rather than allocated up front, so a corrupt length runs into the end of the file
+ * instead of running out of memory. Classes reading their own arrays of records do
+ * the same using initialCapacity(...) and grow(...).
+ */
+public class SnapshotIO {
+    private static final int INITIAL_CAPACITY = 4096;
+
+    /**
+     * Reads the length of an array or string, so it can be allocated.
+     *
+     * @throws IOException  if the length is negative, which only a corrupt file can hold
+     */
+    public static int readLength(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0) {
+            throw new IOException("Negative length: " + length);
+        }
+        return length;
+    }
+
+    /**
+     * Returns how large a buffer for an array of the given length should start out.
+     */
+    public static int initialCapacity(int length) {
+        return Math.min(length, INITIAL_CAPACITY);
+    }
+
+    /**
+     * Returns the new capacity for a full buffer that should eventually hold length
+     * elements: double the old one, but never more than needed.
+     */
+    public static int grow(int capacity, int length) {
+        return (int) Math.min(length, 2L * capacity);
+    }
+
+    public static void writeString(DataOutputStream out, String str) throws IOException {
+        byte[] bytes = str.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    public static String readString(DataInputStream in) throws IOException {
+        return new String(readByteArray(in), StandardCharsets.UTF_8);
+    }
+
+    public static void writeUri(DataOutputStream out, URI uri) throws IOException {
+        writeString(out, uri.toString());
+    }
+
+    public static URI readUri(DataInputStream in) throws IOException {
+        return URI.create(readString(in));
+    }
+
+    public static void writeIntArray(DataOutputStream out, int[] values) throws IOException {
+        out.writeInt(values.length);
+        for (int value : values) {
+            out.writeInt(value);
+        }
+    }
+
+    public static int[] readIntArray(DataInputStream in) throws IOException {
+        int length = readLength(in);
+        int[] values = new int[initialCapacity(length)];
+        for (int i = 0; i < length; i++) {
+            if (i == values.length) {
+                values = Arrays.copyOf(values, grow(values.length, length));
+            }
+            values[i] = in.readInt();
+        }
+        return values;
+    }
+
+    public static void writeDoubleArray(DataOutputStream out, double[] values) throws IOException {
+        out.writeInt(values.length);
+        for (double value : values) {
+            out.writeDouble(value);
+        }
+    }
+
+    public static double[] readDoubleArray(DataInputStream in) throws IOException {
+        int length = readLength(in);
+        double[] values = new double[initialCapacity(length)];
+        for (int i = 0; i < length; i++) {
+            if (i == values.length) {
+                values = Arrays.copyOf(values, grow(values.length, length));
+            }
+            values[i] = in.readDouble();
+        }
+        return values;
+    }
+
+    public static void writeByteArray(DataOutputStream out, byte[] values) throws IOException {
+        out.writeInt(values.length);
+        out.write(values);
+    }
+
+    public static byte[] readByteArray(DataInputStream in) throws IOException {
+        int length = readLength(in);
+        byte[] values = new byte[initialCapacity(length)];
+        int filled = 0;
+        while (filled < length) {
+            if (filled == values.length) {
+                values = Arrays.copyOf(values, grow(values.length, length));
+            }
+            in.readFully(values, filled, values.length - filled);
+            filled = values.length;
+        }
+        return values;
+    }
+}
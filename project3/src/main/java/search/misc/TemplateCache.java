@@ -0,0 +1,154 @@
+package search.misc;
+
+import com.github.mustachejava.DefaultMustacheFactory;
+import com.github.mustachejava.Mustache;
+import com.github.mustachejava.MustacheFactory;
+
+import java.io.File;
+import java.io.StringWriter;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Compiles Mustache templates once and renders them as many times as needed.
+ *
+ * Compiling a template means reading and parsing it, which costs far more than
+ * rendering it, so every template is compiled up front and kept. Pages are rendered
+ * into buffers taken from a small shared pool and handed back afterwards, rather than
+ * into a new buffer grown from scratch for every page. The pool isn't tied to threads:
+ * with a virtual thread per request, no thread renders more than one page, so buffers
+ * kept per thread would never be reused.
+ *
+ * In development mode, templates are read from a folder on disk instead, and are all
+ * compiled again whenever any file in that folder changes. This lets you edit a
+ * template and see the result by refreshing the page, without restarting the server.
+ */
+public class TemplateCache {
+    // Buffers that grew bigger than this are dropped after use, so a single huge page
+    // doesn't keep its memory tied up for good.
+    private static final int MAX_RETAINED_BUFFER = 256 * 1024;
+
+    // Rendering is CPU-bound, so only about this many pages are rendered at any moment.
+    // Buffers beyond that are left to the garbage collector.
+    private static final int MAX_POOLED_BUFFERS = 2 * Runtime.getRuntime().availableProcessors();
+
+    private final String resourceRoot;
+    private final File devFolder;
+    private final String[] names;
+    private final BlockingQueue<StringWriter> buffers;
+
+    // Replaced as a whole whenever the templates are recompiled.
+    private volatile Compiled compiled;
+
+    /**
+     * Compiles the given templates, loading them from the classpath.
+     *
+     * @param resourceRoot  The classpath folder the templates are in.
+     * @param devFolder     The folder to load the templates from in development mode, or
+     *                      null to load them from the classpath once and for all.
+     * @param names         The file names of every template that will be rendered.
+     * @throws com.github.mustachejava.MustacheException  if a template could not be
+     *                                                    loaded or compiled
+     */
+    public TemplateCache(String resourceRoot, String devFolder, String... names) {
+        this.resourceRoot = resourceRoot;
+        this.devFolder = devFolder == null ? null : new File(devFolder);
+        this.names = names.clone();
+        this.buffers = new ArrayBlockingQueue<>(MAX_POOLED_BUFFERS);
+        this.compiled = this.compile(this.lastModified());
+    }
+
+    /**
+     * Returns true if templates are reloaded whenever they change.
+     */
+    public boolean isDevMode() {
+        return this.devFolder != null;
+    }
+
+    /**
+     * Renders the given template using the given model.
+     *
+     * @throws IllegalArgumentException  if the template was not given to the constructor
+     */
+    public String render(String name, Map<String, Object> model) {
+        Mustache template = this.current().templates.get(name);
+        if (template == null) {
+            throw new IllegalArgumentException("Unknown template: " + name);
+        }
+
+        StringWriter buffer = this.buffers.poll();
+        if (buffer == null) {
+            buffer = new StringWriter();
+        }
+        buffer.getBuffer().setLength(0);
+        template.execute(buffer, model);
+        String output = buffer.toString();
+        if (buffer.getBuffer().capacity() <= MAX_RETAINED_BUFFER) {
+            // Does nothing if the pool is already full.
+            this.buffers.offer(buffer);
+        }
+        return output;
+    }
+
+    private Compiled current() {
+        Compiled current = this.compiled;
+        if (this.devFolder == null) {
+            return current;
+        }
+        long lastModified = this.lastModified();
+        if (lastModified != current.lastModified) {
+            synchronized (this) {
+                current = this.compiled;
+                if (lastModified != current.lastModified) {
+                    System.out.println("Templates changed, recompiling");
+                    current = this.compile(lastModified);
+                    this.compiled = current;
+                }
+            }
+        }
+        return current;
+    }
+
+    private Compiled compile(long lastModified) {
+        // Factories keep every template they have compiled, so a fresh factory is the
+        // only way to pick up changes.
+        MustacheFactory factory = this.devFolder == null
+                ? new DefaultMustacheFactory(this.resourceRoot)
+                : new DefaultMustacheFactory(this.devFolder);
+        Map<String, Mustache> templates = new HashMap<>();
+        for (String name : this.names) {
+            templates.put(name, factory.compile(name));
+        }
+        return new Compiled(templates, lastModified);
+    }
+
+    /**
+     * Returns the latest modification time of any file in the development folder, or 0
+     * when not in development mode. Partials are files too, so changing one is noticed.
+     */
+    private long lastModified() {
+        if (this.devFolder == null) {
+            return 0;
+        }
+        long latest = this.devFolder.lastModified();
+        File[] files = this.devFolder.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                latest = Math.max(latest, file.lastModified());
+            }
+        }
+        return latest;
+    }
+
+    private static class Compiled {
+        private final Map<String, Mustache> templates;
+        private final long lastModified;
+
+        public Compiled(Map<String, Mustache> templates, long lastModified) {
+            this.templates = templates;
+            this.lastModified = lastModified;
+        }
+    }
+}
@@ -0,0 +1,131 @@
+package search.misc;
+
+import java.util.Arrays;
+
+/**
+ * Assigns every distinct word a dense integer id, starting at 0, looking words up
+ * straight from the char[] slices produced by WordTokenizer.forEachWord(...).
+ *
+ * Finding a word that was seen before creates no objects, and every occurrence of it
+ * maps to the same String. The words live in an open-addressing hash table using the
+ * same hash as String.hashCode(), so they can be looked up as Strings too.
+ */
+public class WordInterner {
+    public static final int NOT_FOUND = -1;
+
+    private String[] words;
+    private int[] hashes;
+    // Each slot holds a word's id plus one, or 0 if it is empty. The table is kept at
+    // most half full, so probe sequences stay short.
+    private int[] slots;
+    private int size;
+
+    /**
+     * Creates a new, empty interner.
+     */
+    public WordInterner() {
+        this.words = new String[16];
+        this.hashes = new int[16];
+        this.slots = new int[32];
+        this.size = 0;
+    }
+
+    /**
+     * Returns the id of the word stored in word[0, length), assigning it the next
+     * unused id if it doesn't have one yet. The buffer is not kept.
+     */
+    public int add(char[] word, int length) {
+        int hash = 0;
+        for (int i = 0; i < length; i++) {
+            hash = 31 * hash + word[i];
+        }
+        int mask = this.slots.length - 1;
+        int slot = spread(hash) & mask;
+        while (this.slots[slot] != 0) {
+            int id = this.slots[slot] - 1;
+            if (this.hashes[id] == hash && matches(this.words[id], word, length)) {
+                return id;
+            }
+            slot = (slot + 1) & mask;
+        }
+
+        if (this.size == this.words.length) {
+            this.words = Arrays.copyOf(this.words, 2 * this.size);
+            this.hashes = Arrays.copyOf(this.hashes, 2 * this.size);
+        }
+        int id = this.size;
+        this.words[id] = new String(word, 0, length);
+        this.hashes[id] = hash;
+        this.slots[slot] = id + 1;
+        this.size++;
+        if (2 * this.size > this.slots.length) {
+            this.rehash();
+        }
+        return id;
+    }
+
+    /**
+     * Returns the id of the given word, or NOT_FOUND if it has not been added.
+     */
+    public int getId(String word) {
+        int hash = word.hashCode();
+        int mask = this.slots.length - 1;
+        int slot = spread(hash) & mask;
+        while (this.slots[slot] != 0) {
+            int id = this.slots[slot] - 1;
+            if (this.hashes[id] == hash && this.words[id].equals(word)) {
+                return id;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return NOT_FOUND;
+    }
+
+    /**
+     * Returns the word with the given id.
+     *
+     * @throws IndexOutOfBoundsException  if no word has this id
+     */
+    public String getWord(int id) {
+        if (id < 0 || id >= this.size) {
+            throw new IndexOutOfBoundsException("No word with id " + id);
+        }
+        return this.words[id];
+    }
+
+    /**
+     * Returns the number of distinct words added so far.
+     */
+    public int size() {
+        return this.size;
+    }
+
+    private void rehash() {
+        this.slots = new int[2 * this.slots.length];
+        int mask = this.slots.length - 1;
+        for (int id = 0; id < this.size; id++) {
+            int slot = spread(this.hashes[id]) & mask;
+            while (this.slots[slot] != 0) {
+                slot = (slot + 1) & mask;
+            }
+            this.slots[slot] = id + 1;
+        }
+    }
+
+    private static boolean matches(String str, char[] word, int length) {
+        if (str.length() != length) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (str.charAt(i) != word[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Only the low bits of a hash pick its slot, so fold the high ones in as well.
+    private static int spread(int hash) {
+        return hash ^ (hash >>> 16);
+    }
+}
@@ -3,15 +3,171 @@ package search.misc;
 import datastructures.concrete.DoubleLinkedList;
 import datastructures.interfaces.IList;
 
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * Splits text into lower-case words.
+ *
+ * Words are separated by whitespace (spaces, tabs, line breaks and form feeds), and
+ * ASCII punctuation is removed from within them; a word made only of punctuation
+ * disappears entirely.
+ *
+ * This runs over every page while indexing, so rather than lower-casing the whole
+ * input and splitting it with regular expressions, we scan the characters once and
+ * build each word in a reusable buffer. Words with non-ASCII characters in them go
+ * through String.toLowerCase, since lower-casing those can depend on the surrounding
+ * letters (the Greek final sigma, for example) and can even change the word's length.
+ */
 public class WordTokenizer {
+    // The ASCII punctuation characters, as matched by the regex \p{Punct}.
+    private static final boolean[] PUNCTUATION = new boolean[128];
+
+    static {
+        for (char c : "!\"#$%&'()*+,-./:;<=>?@[\\]^_`{|}~".toCharArray()) {
+            PUNCTUATION[c] = true;
+        }
+    }
+
+    /**
+     * Receives the words found by forEachWord(...).
+     */
+    public interface WordConsumer {
+        /**
+         * Called once per word, with the word stored in word[0, length). The buffer is
+         * reused for the next word, so its contents must be copied to be kept.
+         */
+        void accept(char[] word, int length);
+    }
+
+    /**
+     * Returns every word in the input, in order.
+     */
     public static IList<String> extract(String input) {
         IList<String> out = new DoubleLinkedList<>();
-        for (String word : input.toLowerCase().split("\\s+")) {
-            word = word.replaceAll("\\p{Punct}", "");
-            if (!word.isEmpty()) {
-                out.add(word);
+        forEachWord(input, (word, length) -> out.add(new String(word, 0, length)));
+        return out;
+    }
+
+    /**
+     * Returns every word in the input, in order, like extract(input). Repeated words
+     * are looked up in the given interner instead of copied again, so every occurrence
+     * of a word shares one String.
+     */
+    public static IList<String> extract(String input, WordInterner words) {
+        IList<String> out = new DoubleLinkedList<>();
+        forEachWord(input, (word, length) -> out.add(words.getWord(words.add(word, length))));
+        return out;
+    }
+
+    /**
+     * Returns the id of every word in the input, in order, adding words the interner
+     * has not seen before. No objects are created per word, apart from new words.
+     */
+    public static int[] extractIds(String input, WordInterner words) {
+        IdCollector ids = new IdCollector(words);
+        forEachWord(input, ids);
+        return Arrays.copyOf(ids.ids, ids.size);
+    }
+
+    /**
+     * Passes every word in the input to the consumer, in order, without creating any
+     * objects per word. The words are exactly those extract(...) would return.
+     */
+    public static void forEachWord(String input, WordConsumer consumer) {
+        // Turkish and Azeri lower-case 'I' to a dotless i, so even plain ASCII words
+        // have to be lower-cased the slow way there.
+        String language = Locale.getDefault().getLanguage();
+        boolean asciiIsSimple = !language.equals("tr") && !language.equals("az");
+
+        char[] buffer = new char[32];
+        int length = input.length();
+        int i = 0;
+        while (i < length) {
+            while (i < length && isWhitespace(input.charAt(i))) {
+                i++;
+            }
+            int start = i;
+            int size = 0;
+            boolean ascii = true;
+            while (i < length && !isWhitespace(input.charAt(i))) {
+                char c = input.charAt(i);
+                if (c >= 128) {
+                    ascii = false;
+                } else if (!PUNCTUATION[c]) {
+                    if (size == buffer.length) {
+                        buffer = Arrays.copyOf(buffer, 2 * size);
+                    }
+                    buffer[size++] = c >= 'A' && c <= 'Z' ? (char) (c + ('a' - 'A')) : c;
+                }
+                i++;
+            }
+            if (i == start) {
+                break;
+            }
+
+            if (!ascii || !asciiIsSimple) {
+                String lower = input.substring(start, i).toLowerCase();
+                if (buffer.length < lower.length()) {
+                    buffer = new char[lower.length()];
+                }
+                size = 0;
+                for (int j = 0; j < lower.length(); j++) {
+                    char c = lower.charAt(j);
+                    if (c >= 128 || !PUNCTUATION[c]) {
+                        buffer[size++] = c;
+                    }
+                }
+            }
+            if (size > 0) {
+                consumer.accept(buffer, size);
+            }
+        }
+    }
+
+    /**
+     * Returns the words inside each pair of double quotes in the input, one list per
+     * quoted phrase. Phrases with no words in them are left out, as is a trailing quote
+     * with no partner.
+     */
+    public static IList<IList<String>> extractPhrases(String input) {
+        IList<IList<String>> out = new DoubleLinkedList<>();
+        String[] parts = input.split("\"", -1);
+        // Text between the n-th and (n+1)-th quote is quoted when n is odd; the last
+        // part is only quoted if its closing quote is actually there.
+        for (int i = 1; i < parts.length - 1; i += 2) {
+            IList<String> phrase = extract(parts[i]);
+            if (!phrase.isEmpty()) {
+                out.add(phrase);
             }
         }
         return out;
     }
+
+    private static class IdCollector implements WordConsumer {
+        private final WordInterner words;
+        private int[] ids;
+        private int size;
+
+        public IdCollector(WordInterner words) {
+            this.words = words;
+            this.ids = new int[16];
+            this.size = 0;
+        }
+
+        @Override
+        public void accept(char[] word, int length) {
+            if (this.size == this.ids.length) {
+                this.ids = Arrays.copyOf(this.ids, 2 * this.size);
+            }
+            this.ids[this.size++] = this.words.add(word, length);
+        }
+    }
+
+    /**
+     * Returns true for exactly the characters matched by the regex \s.
+     */
+    private static boolean isWhitespace(char c) {
+        return c == ' ' || c == '\t' || c == '\n' || c == '\u000B' || c == '\f' || c == '\r';
+    }
 }
@@ -0,0 +1,19 @@
+package search.misc.exceptions;
+
+public class OverloadedException extends RuntimeException {
+    public OverloadedException() {
+        super();
+    }
+
+    public OverloadedException(String message) {
+        super(message);
+    }
+
+    public OverloadedException(String message, Throwable cause) {
+        super(message, cause);
+    }
+
+    public OverloadedException(Throwable cause) {
+        super(cause);
+    }
+}
@@ -15,6 +15,13 @@ public class Result implements Comparable<Result> {
         this.score = score;
     }
 
+    /**
+     * Returns the summary of the webpage.
+     */
+    public WebpageSummary getSummary() {
+        return this.webpageSummary;
+    }
+
     /**
      * Returns the link to the webpage.
      */
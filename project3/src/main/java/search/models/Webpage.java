@@ -2,7 +2,6 @@ package search.models;
 
 import com.chimbori.crux.articles.Article;
 import com.chimbori.crux.articles.ArticleExtractor;
-import datastructures.concrete.DoubleLinkedList;
 import datastructures.concrete.dictionaries.ChainedHashDictionary;
 import datastructures.interfaces.IDictionary;
 import datastructures.interfaces.IList;
@@ -11,12 +10,14 @@ import search.misc.exceptions.DataExtractionException;
 import search.misc.WebUtils;
 import org.jsoup.Jsoup;
 import org.jsoup.nodes.Document;
+import search.misc.WordInterner;
 import search.misc.WordTokenizer;
 
-import java.io.*;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PushbackInputStream;
 import java.net.URI;
 import java.net.URISyntaxException;
-import java.util.StringTokenizer;
 
 /**
  * This class represents a single webpage.
@@ -93,18 +94,6 @@ public class Webpage {
 
     // Note: You can safely ignore all the methods below this point.
 
-    public static Webpage load(URI localUri) {
-        URI cacheURI = Webpage.getCacheURI(localUri);
-        File cacheFile = new File(cacheURI);
-        if (cacheFile.exists()) {
-            return Webpage.loadFromCache(cacheFile);
-        } else {
-            Webpage out = Webpage.loadOriginal(localUri);
-            Webpage.saveToCache(out, cacheFile);
-            return out;
-        }
-    }
-
     public static Webpage loadOriginal(URI localUri) {
         // Extract some core data
         try (PushbackInputStream stream = Webpage.openLocalStream(localUri)) {
@@ -116,7 +105,8 @@ public class Webpage {
 
             // Populate cache fields
             IList<URI> links = WebUtils.extractLinks(pageUri, document);
-            IList<String> words = WordTokenizer.extract(document.body().text());
+            // Pages repeat their words a lot, so every occurrence shares one String.
+            IList<String> words = WordTokenizer.extract(document.body().text(), new WordInterner());
 
             Article article = Webpage.extractReadableArticle(pageUri, document);
             String title = Webpage.extractTitle(article, pageUri);
@@ -128,72 +118,6 @@ public class Webpage {
         }
     }
 
-    private static void saveToCache(Webpage page, File cache) {
-        try (BufferedWriter writer = new BufferedWriter(new FileWriter(cache))) {
-            WebpageSummary summary = page.getSummary();
-
-            // Line 1: page URI
-            writer.write(page.pageUri.toString() + "\n");
-
-            // Line 2: title
-            writer.write(summary.getTitle() + "\n");
-
-            // Line 3: blurb
-            writer.write(summary.getBlurb() + "\n");
-
-            // Line 4: words
-            for (String word : page.words) {
-                writer.write(word);
-                writer.write(' ');
-            }
-            writer.write('\n');
-
-            // Remaining lines: links
-            for (URI link : page.links) {
-                writer.write(link.toString());
-                writer.write('\n');
-            }
-        } catch (IOException ex) {
-            throw new RuntimeException("Could not create cache", ex);
-        }
-    }
-
-    private static Webpage loadFromCache(File cache) {
-        try (BufferedReader reader = new BufferedReader(new FileReader(cache))) {
-            // Line 1: Page URI
-            URI pageUri = URI.create(reader.readLine().trim());
-
-            // Line 2: title
-            String title = reader.readLine().trim();
-
-            // Line 3: blurb
-            String blurb = reader.readLine().trim();
-
-            // Line 4: words
-            IList<String> words = new DoubleLinkedList<>();
-            StringTokenizer tokenizer = new StringTokenizer(reader.readLine().trim(), " ");
-            while (tokenizer.hasMoreTokens()) {
-                words.add(tokenizer.nextToken());
-            }
-
-            // Rest of lines: links
-            IList<URI> links = new DoubleLinkedList<>();
-            for (String line = reader.readLine(); line != null; line = reader.readLine()) {
-                links.add(URI.create(line));
-            }
-
-            return new Webpage(pageUri, links, words, title, blurb);
-        } catch (IOException ex) {
-            throw new RuntimeException("Could not load cache", ex);
-        }
-    }
-
-    private static URI getCacheURI(URI localUri) {
-        String raw = localUri.toString();
-        String piece = raw.substring(0, raw.lastIndexOf("."));
-        return URI.create(piece + ".cache");
-    }
-
     private static PushbackInputStream openLocalStream(URI localUri) {
         try {
             return new PushbackInputStream(localUri.toURL().openStream());
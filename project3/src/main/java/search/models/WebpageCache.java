@@ -0,0 +1,246 @@
+package search.models;
+
+import datastructures.concrete.DoubleLinkedList;
+import datastructures.concrete.KVPair;
+import datastructures.concrete.dictionaries.ChainedHashDictionary;
+import datastructures.interfaces.IDictionary;
+import datastructures.interfaces.IList;
+import search.misc.SnapshotIO;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * A cache of parsed webpages, stored together in a single binary file so we don't
+ * need to re-parse the original HTML every time the search engine starts.
+ *
+ * Each cached page is keyed by the path of its original file, and remembers that
+ * file's size and last-modified time: if either changes, the cached copy is ignored.
+ *
+ * File format (all numbers big-endian, all strings are an int length followed by
+ * that many UTF-8 bytes):
+ *
+ *   int MAGIC, int VERSION
+ *   int numWords, then every distinct word
+ *   int numUris,  then every distinct page or link URI
+ *   int numPages, then for each page:
+ *     string path, long size, long lastModified,
+ *     int uriId, string title, string blurb,
+ *     int numWords, then that many word ids,
+ *     int numLinks, then that many URI ids
+ *
+ * Words and links are stored once in the shared tables and referred to by id, so
+ * loading a page is just a sequence of integer reads from the memory-mapped file.
+ */
+public class WebpageCache {
+    private static final int MAGIC = 0x4E504753;  // "NPGS"
+    private static final int VERSION = 1;
+
+    // The smallest a page can be: its path, size, last-modified time, URI id, title,
+    // blurb, word count and link count.
+    private static final int PAGE_MIN_BYTES = 4 + 8 + 8 + 4 + 4 + 4 + 4 + 4;
+
+    private IDictionary<String, Entry> entries;
+
+    /**
+     * Creates a new, empty cache.
+     */
+    public WebpageCache() {
+        this.entries = new ChainedHashDictionary<>();
+    }
+
+    /**
+     * Returns the number of pages stored in this cache.
+     */
+    public int size() {
+        return this.entries.size();
+    }
+
+    /**
+     * Returns the cached copy of the page originally loaded from the given path, or null
+     * if there is none or if the file has changed since it was cached.
+     */
+    public Webpage get(String path, long size, long lastModified) {
+        Entry entry = this.entries.getOrDefault(path, null);
+        if (entry == null || entry.size != size || entry.lastModified != lastModified) {
+            return null;
+        }
+        return entry.page;
+    }
+
+    /**
+     * Records that the given page was loaded from the file at the given path.
+     */
+    public void put(String path, long size, long lastModified, Webpage page) {
+        this.entries.put(path, new Entry(size, lastModified, page));
+    }
+
+    /**
+     * Writes every cached page to the given file, replacing it if it already exists.
+     */
+    public void save(Path file) throws IOException {
+        IDictionary<String, Integer> wordIds = new ChainedHashDictionary<>();
+        IList<String> words = new DoubleLinkedList<>();
+        IDictionary<URI, Integer> uriIds = new ChainedHashDictionary<>();
+        IList<URI> uris = new DoubleLinkedList<>();
+        for (KVPair<String, Entry> pair : this.entries) {
+            Webpage page = pair.getValue().page;
+            for (String word : page.getWords()) {
+                assignId(wordIds, words, word);
+            }
+            assignId(uriIds, uris, page.getUri());
+            for (URI link : page.getLinks()) {
+                assignId(uriIds, uris, link);
+            }
+        }
+
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(Files.newOutputStream(temp)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+
+            out.writeInt(words.size());
+            for (String word : words) {
+                SnapshotIO.writeString(out, word);
+            }
+            out.writeInt(uris.size());
+            for (URI uri : uris) {
+                SnapshotIO.writeUri(out, uri);
+            }
+
+            out.writeInt(this.entries.size());
+            for (KVPair<String, Entry> pair : this.entries) {
+                Entry entry = pair.getValue();
+                WebpageSummary summary = entry.page.getSummary();
+                SnapshotIO.writeString(out, pair.getKey());
+                out.writeLong(entry.size);
+                out.writeLong(entry.lastModified);
+                out.writeInt(uriIds.get(entry.page.getUri()));
+                SnapshotIO.writeString(out, summary.getTitle());
+                SnapshotIO.writeString(out, summary.getBlurb());
+
+                out.writeInt(entry.page.getWords().size());
+                for (String word : entry.page.getWords()) {
+                    out.writeInt(wordIds.get(word));
+                }
+                out.writeInt(entry.page.getLinks().size());
+                for (URI link : entry.page.getLinks()) {
+                    out.writeInt(uriIds.get(link));
+                }
+            }
+        }
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Loads the cache stored in the given file.
+     *
+     * Returns an empty cache if the file does not exist or was written by a different
+     * version of this class.
+     *
+     * @throws IOException  if the file exists but could not be read, or is corrupt
+     */
+    public static WebpageCache load(Path file) throws IOException {
+        WebpageCache cache = new WebpageCache();
+        if (!Files.isRegularFile(file)) {
+            return cache;
+        }
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("Webpage cache is too large to map: " + channel.size() + " bytes");
+            }
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.remaining() < 8 || buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+                return cache;
+            }
+
+            String[] words = new String[readCount(buffer, 4)];
+            for (int i = 0; i < words.length; i++) {
+                words[i] = readString(buffer);
+            }
+            URI[] uris = new URI[readCount(buffer, 4)];
+            for (int i = 0; i < uris.length; i++) {
+                uris[i] = URI.create(readString(buffer));
+            }
+
+            int numPages = readCount(buffer, PAGE_MIN_BYTES);
+            for (int i = 0; i < numPages; i++) {
+                String path = readString(buffer);
+                long size = buffer.getLong();
+                long lastModified = buffer.getLong();
+                URI pageUri = uris[buffer.getInt()];
+                String title = readString(buffer);
+                String blurb = readString(buffer);
+
+                IList<String> pageWords = new DoubleLinkedList<>();
+                int numWords = readCount(buffer, 4);
+                for (int j = 0; j < numWords; j++) {
+                    pageWords.add(words[buffer.getInt()]);
+                }
+                IList<URI> links = new DoubleLinkedList<>();
+                int numLinks = readCount(buffer, 4);
+                for (int j = 0; j < numLinks; j++) {
+                    links.add(uris[buffer.getInt()]);
+                }
+
+                cache.put(path, size, lastModified, new Webpage(pageUri, links, pageWords, title, blurb));
+            }
+        } catch (RuntimeException ex) {
+            // A truncated file shows up as a BufferUnderflowException, and a corrupt one
+            // as an out-of-range id.
+            throw new IOException("Webpage cache is corrupt", ex);
+        }
+        return cache;
+    }
+
+    private static <T> void assignId(IDictionary<T, Integer> ids, IList<T> items, T item) {
+        if (!ids.containsKey(item)) {
+            ids.put(item, items.size());
+            items.add(item);
+        }
+    }
+
+    /**
+     * Reads the number of items that follow, each taking up at least minBytes bytes,
+     * and checks that the rest of the file could actually hold that many: a corrupt
+     * count must not make us allocate far more than the file contains.
+     */
+    private static int readCount(ByteBuffer buffer, int minBytes) throws IOException {
+        int count = buffer.getInt();
+        if (count < 0 || (long) count * minBytes > buffer.remaining()) {
+            throw new IOException("Webpage cache is corrupt: " + count + " items left in "
+                    + buffer.remaining() + " bytes");
+        }
+        return count;
+    }
+
+    private static String readString(ByteBuffer buffer) throws IOException {
+        byte[] bytes = new byte[readCount(buffer, 1)];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static class Entry {
+        private final long size;
+        private final long lastModified;
+        private final Webpage page;
+
+        public Entry(long size, long lastModified, Webpage page) {
+            this.size = size;
+            this.lastModified = lastModified;
+            this.page = page;
+        }
+    }
+}
@@ -1,6 +1,9 @@
 package search.models;
 
+import search.misc.Json;
+
 import java.net.URI;
+import java.nio.charset.StandardCharsets;
 
 /**
  * Represents a summarized version of a webpage containing the bare minimum
@@ -20,6 +23,10 @@ public class WebpageSummary {
     private String title;
     private String blurb;
 
+    // The start of this page's JSON object, encoded once and then reused for every
+    // search result it appears in. Null until first needed; see toJson().
+    private volatile byte[] json;
+
     /**
      * Constructs a new instance of this class.
      */
@@ -50,6 +57,32 @@ public class WebpageSummary {
         return this.blurb;
     }
 
+    /**
+     * Returns the start of a JSON object describing this webpage, encoded as UTF-8:
+     *
+     *     {"uri":"...","title":"...","blurb":"..."
+     *
+     * The closing brace is left off so callers can add fields of their own, like a
+     * result's score.
+     *
+     * The bytes are only computed once, and the same array is returned every time
+     * after that, so it must not be modified.
+     */
+    public byte[] toJson() {
+        byte[] output = this.json;
+        if (output == null) {
+            StringBuilder builder = new StringBuilder("{\"uri\":");
+            Json.appendQuoted(builder, this.uri.toString());
+            builder.append(",\"title\":");
+            Json.appendQuoted(builder, this.title);
+            builder.append(",\"blurb\":");
+            Json.appendQuoted(builder, this.blurb);
+            output = builder.toString().getBytes(StandardCharsets.UTF_8);
+            this.json = output;
+        }
+        return output;
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
@@ -0,0 +1,83 @@
+package search;
+
+import datastructures.concrete.ChainedHashSet;
+import datastructures.concrete.DoubleLinkedList;
+import datastructures.interfaces.IList;
+import datastructures.interfaces.ISet;
+import search.analyzers.PageRankAnalyzer;
+import search.models.Webpage;
+
+import java.net.URI;
+import java.util.Random;
+
+/**
+ * Measures how long a single PageRank iteration takes on graphs where most
+ * pages have no out-links.
+ *
+ * Run this class's main method directly: each line of output lists the number of
+ * pages and the average time per iteration. If dangling pages are handled in linear
+ * time, doubling the number of pages should roughly double the time per iteration.
+ */
+public class PageRankRuntimeAnalysis {
+    // Fraction of pages that have no out-links at all.
+    private static final double DANGLING_FRACTION = 0.9;
+
+    // Number of out-links given to each non-dangling page.
+    private static final int OUT_LINKS = 5;
+
+    // We force every run to do exactly this many iterations.
+    private static final int ITERATIONS = 20;
+
+    // Do 5 trials and average the results
+    private static final int TRIALS = 5;
+
+    public static void main(String[] args) {
+        // Discard first result so the JIT has a chance to warm up
+        timePerIteration(1000);
+
+        for (int size = 1000; size <= 64000; size *= 2) {
+            double total = 0.0;
+            for (int i = 0; i < TRIALS; i++) {
+                total += timePerIteration(size);
+            }
+            System.out.println(String.format("%8d pages: %8.3f ms/iteration", size, total / TRIALS));
+        }
+    }
+
+    /**
+     * Returns the average number of milliseconds spent per PageRank iteration on a
+     * randomly generated graph with the given number of pages.
+     */
+    public static double timePerIteration(int size) {
+        ISet<Webpage> pages = makeMostlyDanglingGraph(size, new Random(size));
+
+        long start = System.nanoTime();
+        // An epsilon of -1 means we never converge, so we always run every iteration.
+        new PageRankAnalyzer(pages, 0.85, -1, ITERATIONS);
+        long delta = System.nanoTime() - start;
+
+        return delta / 1000000.0 / ITERATIONS;
+    }
+
+    /**
+     * Builds a random graph in which DANGLING_FRACTION of the pages have no out-links.
+     */
+    public static ISet<Webpage> makeMostlyDanglingGraph(int size, Random rand) {
+        URI[] uris = new URI[size];
+        for (int i = 0; i < size; i++) {
+            uris[i] = URI.create("http://example.com/page-" + i + ".html");
+        }
+
+        ISet<Webpage> pages = new ChainedHashSet<>();
+        for (int i = 0; i < size; i++) {
+            IList<URI> links = new DoubleLinkedList<>();
+            if (rand.nextDouble() >= DANGLING_FRACTION) {
+                for (int j = 0; j < OUT_LINKS; j++) {
+                    links.add(uris[rand.nextInt(size)]);
+                }
+            }
+            pages.add(new Webpage(uris[i], links, new DoubleLinkedList<>(), "title", "blurb"));
+        }
+        return pages;
+    }
+}
@@ -0,0 +1,146 @@
+package search;
+
+import datastructures.concrete.ChainedHashSet;
+import datastructures.concrete.DoubleLinkedList;
+import datastructures.interfaces.IList;
+import datastructures.interfaces.ISet;
+import search.analyzers.InvertedIndex;
+import search.analyzers.PageRankAnalyzer;
+import search.analyzers.PositionalIndex;
+import search.analyzers.TfIdfAnalyzer;
+import search.analyzers.TopKCollector;
+import search.models.Result;
+import search.models.Webpage;
+
+import java.net.URI;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Builds random pages and queries for tests comparing a fast way of finding the top
+ * results against a slow, obviously correct one.
+ */
+class RandomCorpus {
+    public static final double DELTA = 0.000000001;
+
+    // The first few words are picked far more often than the rest, so words end up
+    // with very different IDF scores.
+    public static final String[] WORDS = {
+        "the", "a", "cat", "dog", "mouse", "fox", "quick", "lazy", "brown", "hot", "seattle", "times",
+        "news", "weather", "sports", "rain", "sun", "coffee", "snow", "ferry", "island", "mountain", "lake",
+    };
+
+    public static URI uri(int page) {
+        return URI.create("http://example.com/" + page + ".html");
+    }
+
+    /**
+     * Returns numPages pages, each with a few random words, links and title words. Every
+     * page's title and blurb also include its number, so they all differ.
+     */
+    public static ISet<Webpage> makePages(int numPages, Random random) {
+        ISet<Webpage> pages = new ChainedHashSet<>();
+        for (int page = 0; page < numPages; page++) {
+            IList<String> words = new DoubleLinkedList<>();
+            int numWords = 1 + random.nextInt(30);
+            for (int i = 0; i < numWords; i++) {
+                words.add(WORDS[(int) (WORDS.length * Math.pow(random.nextDouble(), 2))]);
+            }
+            IList<URI> links = new DoubleLinkedList<>();
+            int numLinks = random.nextInt(5);
+            for (int i = 0; i < numLinks; i++) {
+                links.add(uri(random.nextInt(numPages)));
+            }
+            StringBuilder title = new StringBuilder();
+            int titleLength = random.nextInt(4);
+            for (int i = 0; i < titleLength; i++) {
+                title.append(WORDS[random.nextInt(WORDS.length)].toUpperCase()).append(", ");
+            }
+            title.append("page ").append(page);
+            pages.add(new Webpage(uri(page), links, words, title.toString(), "blurb " + page));
+        }
+        return pages;
+    }
+
+    /**
+     * Returns a query of one to four random words, sometimes followed by a word found
+     * in no page.
+     */
+    public static IList<String> randomQuery(Random random) {
+        IList<String> query = new DoubleLinkedList<>();
+        int numWords = 1 + random.nextInt(4);
+        for (int i = 0; i < numWords; i++) {
+            query.add(WORDS[random.nextInt(WORDS.length)]);
+        }
+        if (random.nextInt(5) == 0) {
+            query.add("unknown");
+        }
+        return query;
+    }
+
+    /**
+     * Indexes the given pages in a single snapshot, as SearchEngine does.
+     */
+    public static IndexSnapshot makeSnapshot(ISet<Webpage> pages) {
+        TfIdfAnalyzer tfIdf = new TfIdfAnalyzer(pages);
+        InvertedIndex index = new InvertedIndex(tfIdf);
+        PageRankAnalyzer pageRank = new PageRankAnalyzer(pages, 0.85, 0.0001, 200, 1);
+        return new IndexSnapshot(
+                SearchEngine.extractWebpageSummaries(pages),
+                index,
+                tfIdf,
+                pageRank,
+                new PositionalIndex(pages, index, tfIdf));
+    }
+
+    /**
+     * Checks that two searches found the same pages with the same scores.
+     */
+    public static void assertSameResults(IList<Result> expected, IList<Result> actual) {
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.get(i).getScore(), actual.get(i).getScore(), DELTA);
+            // Only pages with clearly different scores are guaranteed to come out in the
+            // same order. The last page may also tie with one just past the end.
+            boolean abovePrevious = i == 0 || expected.get(i - 1).getScore() - expected.get(i).getScore() > DELTA;
+            boolean belowNext = i + 1 < expected.size()
+                    && expected.get(i).getScore() - expected.get(i + 1).getScore() > DELTA;
+            if (abovePrevious && belowNext) {
+                assertEquals(expected.get(i).getUri(), actual.get(i).getUri());
+                assertEquals(expected.get(i).getTitle(), actual.get(i).getTitle());
+                assertEquals(expected.get(i).getBlurb(), actual.get(i).getBlurb());
+            }
+        }
+    }
+
+    /**
+     * Checks that the collected documents are the best ones according to the given
+     * scores, which map each document id to its expected score, in order.
+     */
+    public static void assertTopScores(double[] expected, TopKCollector actual) {
+        int[] documentIds = new int[actual.size()];
+        double[] scores = new double[actual.size()];
+        for (int rank = 0; rank < actual.size(); rank++) {
+            documentIds[rank] = actual.getDocumentId(rank);
+            scores[rank] = actual.getScore(rank);
+        }
+        assertTopScores(expected, documentIds, scores);
+    }
+
+    /**
+     * Checks that documentIds[rank] has the rank-th best of the expected scores, and
+     * that scores[rank] is that score.
+     */
+    public static void assertTopScores(double[] expected, int[] documentIds, double[] scores) {
+        double[] sorted = expected.clone();
+        Arrays.sort(sorted);
+        for (int rank = 0; rank < documentIds.length; rank++) {
+            assertEquals(expected[documentIds[rank]], scores[rank], DELTA);
+            assertEquals(sorted[sorted.length - 1 - rank], scores[rank], DELTA);
+            assertTrue(rank == 0 || scores[rank] <= scores[rank - 1]);
+        }
+    }
+}
@@ -0,0 +1,151 @@
+package search;
+
+import datastructures.concrete.ChainedHashSet;
+import datastructures.concrete.DoubleLinkedList;
+import datastructures.interfaces.IList;
+import datastructures.interfaces.ISet;
+import misc.BaseTest;
+import org.junit.Test;
+import search.analyzers.Bm25Analyzer;
+import search.analyzers.InvertedIndex;
+import search.analyzers.PositionalIndex;
+import search.analyzers.TfIdfAnalyzer;
+import search.analyzers.TopKCollector;
+import search.models.Webpage;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertTrue;
+
+public class TestBm25Analyzer extends BaseTest {
+    public static final double DELTA = 0.000000001;
+
+    private IList<String> strToIList(String input) {
+        IList<String> output = new DoubleLinkedList<>();
+        for (String word : input.split(" ")) {
+            output.add(word);
+        }
+        return output;
+    }
+
+    private Bm25Analyzer makeAnalyzer(ISet<Webpage> pages) {
+        TfIdfAnalyzer tfIdf = new TfIdfAnalyzer(pages);
+        InvertedIndex index = new InvertedIndex(tfIdf);
+        return new Bm25Analyzer(index, new PositionalIndex(pages, index, tfIdf), tfIdf);
+    }
+
+    // Computes the BM25 score straight from the definition.
+    private double[] scoreEveryPage(ISet<Webpage> pages, TfIdfAnalyzer tfIdf, IList<String> query) {
+        Webpage[] byId = new Webpage[pages.size()];
+        double totalLength = 0.0;
+        for (Webpage page : pages) {
+            byId[tfIdf.getDocumentId(page.getUri())] = page;
+            totalLength += page.getWords().size();
+        }
+        double average = totalLength / pages.size();
+
+        double[] scores = new double[pages.size()];
+        for (String word : query) {
+            int df = 0;
+            for (Webpage page : pages) {
+                if (page.getWords().contains(word)) {
+                    df++;
+                }
+            }
+            double idf = Math.log(1 + (pages.size() - df + 0.5) / (df + 0.5));
+            for (int id = 0; id < byId.length; id++) {
+                int tf = 0;
+                for (String other : byId[id].getWords()) {
+                    if (other.equals(word)) {
+                        tf++;
+                    }
+                }
+                double norm = Bm25Analyzer.K1 * (1 - Bm25Analyzer.B + Bm25Analyzer.B * byId[id].getWords().size() / average);
+                scores[id] += idf * tf * (Bm25Analyzer.K1 + 1) / (tf + norm);
+            }
+        }
+        return scores;
+    }
+
+    @Test(timeout=SECOND)
+    public void testDocumentLengthsAndIdf() {
+        ISet<Webpage> pages = new ChainedHashSet<>();
+        pages.add(new Webpage(RandomCorpus.uri(0), new DoubleLinkedList<>(), this.strToIList("a b a a"), "", ""));
+        pages.add(new Webpage(RandomCorpus.uri(1), new DoubleLinkedList<>(), this.strToIList("b c"), "", ""));
+        TfIdfAnalyzer tfIdf = new TfIdfAnalyzer(pages);
+        InvertedIndex index = new InvertedIndex(tfIdf);
+        Bm25Analyzer bm25 = new Bm25Analyzer(index, new PositionalIndex(pages, index, tfIdf), tfIdf);
+
+        assertEquals(4, bm25.getDocumentLength(tfIdf.getDocumentId(RandomCorpus.uri(0))));
+        assertEquals(2, bm25.getDocumentLength(tfIdf.getDocumentId(RandomCorpus.uri(1))));
+
+        // A word in every page still gets a small positive IDF.
+        assertEquals(Math.log(1 + 0.5 / 2.5), bm25.getIdf(index.getTermId("b")), DELTA);
+        assertEquals(Math.log(1 + 1.5 / 1.5), bm25.getIdf(index.getTermId("a")), DELTA);
+    }
+
+    @Test(timeout=SECOND)
+    public void testRepeatedWordsSaturate() {
+        ISet<Webpage> pages = new ChainedHashSet<>();
+        pages.add(new Webpage(RandomCorpus.uri(0), new DoubleLinkedList<>(), this.strToIList("cat x"), "", ""));
+        pages.add(new Webpage(RandomCorpus.uri(1), new DoubleLinkedList<>(), this.strToIList("cat cat cat cat cat cat cat cat"), "", ""));
+        pages.add(new Webpage(RandomCorpus.uri(2), new DoubleLinkedList<>(), this.strToIList("dog y"), "", ""));
+        TfIdfAnalyzer tfIdf = new TfIdfAnalyzer(pages);
+        Bm25Analyzer bm25 = this.makeAnalyzer(pages);
+        Bm25Analyzer.PreparedQuery query = bm25.prepareQuery(this.strToIList("cat"));
+
+        double once = query.computeRelevance(tfIdf.getDocumentId(RandomCorpus.uri(0)));
+        double often = query.computeRelevance(tfIdf.getDocumentId(RandomCorpus.uri(1)));
+        assertTrue(often > once);
+        // However often a word is repeated, it adds at most idf * (K1 + 1).
+        assertTrue(often < bm25.getIdf(tfIdf.getTerms().getId("cat")) * (Bm25Analyzer.K1 + 1));
+        assertEquals(0.0, query.computeRelevance(tfIdf.getDocumentId(RandomCorpus.uri(2))), DELTA);
+    }
+
+    @Test(timeout=10 * SECOND)
+    public void testMatchesDefinition() {
+        Random random = new Random(42);
+        ISet<Webpage> pages = RandomCorpus.makePages(200, random);
+        TfIdfAnalyzer tfIdf = new TfIdfAnalyzer(pages);
+        InvertedIndex index = new InvertedIndex(tfIdf);
+        Bm25Analyzer bm25 = new Bm25Analyzer(index, new PositionalIndex(pages, index, tfIdf), tfIdf);
+
+        for (int trial = 0; trial < 100; trial++) {
+            IList<String> query = RandomCorpus.randomQuery(random);
+            int k = 1 + random.nextInt(20);
+            double[] expected = this.scoreEveryPage(pages, tfIdf, query);
+
+            // Boost every page by its id, to check boosts are applied to the right page.
+            TopKCollector collector = new TopKCollector(k);
+            bm25.findTopK(bm25.prepareQuery(query), id -> id + 1, collector);
+            collector.sort();
+            double[] boosted = new double[expected.length];
+            for (int id = 0; id < expected.length; id++) {
+                boosted[id] = expected[id] * (id + 1);
+            }
+            RandomCorpus.assertTopScores(boosted, collector);
+
+            // Scoring a given set of pages agrees with the full search.
+            int[] documents = index.findCandidates(query);
+            TopKCollector matches = new TopKCollector(documents.length);
+            bm25.scoreDocuments(bm25.prepareQuery(query), documents, id -> 1.0, matches);
+            assertEquals(documents.length, matches.size());
+            matches.sort();
+            RandomCorpus.assertTopScores(expected, matches);
+        }
+    }
+
+    @Test(timeout=SECOND)
+    public void testEmptyResults() {
+        Random random = new Random(3);
+        Bm25Analyzer bm25 = this.makeAnalyzer(RandomCorpus.makePages(20, random));
+
+        TopKCollector collector = new TopKCollector(10);
+        bm25.findTopK(bm25.prepareQuery(this.strToIList("unknown")), id -> 1.0, collector);
+        assertEquals(0, collector.size());
+
+        collector = new TopKCollector(0);
+        bm25.findTopK(bm25.prepareQuery(this.strToIList("cat")), id -> 1.0, collector);
+        assertEquals(0, collector.size());
+    }
+}
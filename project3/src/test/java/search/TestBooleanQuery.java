@@ -0,0 +1,166 @@
+package search;
+
+import datastructures.concrete.ChainedHashSet;
+import datastructures.concrete.DoubleLinkedList;
+import datastructures.interfaces.IList;
+import datastructures.interfaces.ISet;
+import misc.BaseTest;
+import org.junit.Test;
+import search.analyzers.BooleanQuery;
+import search.analyzers.DocumentIterator;
+import search.analyzers.DocumentIterators;
+import search.analyzers.InvertedIndex;
+import search.analyzers.PositionalIndex;
+import search.analyzers.TfIdfAnalyzer;
+import search.models.Webpage;
+
+import java.net.URI;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class TestBooleanQuery extends BaseTest {
+    private static final String[] WORDS = {"cat", "dog", "fish", "bird", "rain", "snow"};
+
+    private Webpage buildPage(int name, IList<String> words) {
+        return new Webpage(
+                URI.create("http://example.com/" + name + ".html"),
+                new DoubleLinkedList<>(),
+                words,
+                "title",
+                "blurb");
+    }
+
+    @Test(timeout=SECOND)
+    public void testParse() {
+        assertNull(BooleanQuery.parse("cats and dogs"));
+        assertEquals("(cat AND dog)", BooleanQuery.parse("cat AND dog").toString());
+        assertEquals("(cat AND dog)", BooleanQuery.parse("Cat dog NOT").toString());
+        assertEquals("((cat AND dog) OR fish)", BooleanQuery.parse("cat dog OR fish").toString());
+        assertEquals("(cat AND (dog OR fish))", BooleanQuery.parse("cat AND (dog OR fish)").toString());
+        assertEquals("(cat AND NOT dog)", BooleanQuery.parse("cat NOT dog").toString());
+        assertEquals("NOT \"seattle times\"", BooleanQuery.parse("NOT \"Seattle Times\"").toString());
+        assertEquals("(cat AND (dog OR fish))", BooleanQuery.parse("cat AND (dog OR fish").toString());
+        assertEquals("(cat AND dog)", BooleanQuery.parse("cat ) AND dog").toString());
+        assertNull(BooleanQuery.parse("AND OR NOT"));
+    }
+
+    @Test(timeout=SECOND)
+    public void testPositiveWords() {
+        IList<String> words = BooleanQuery.parse("cat AND (dog OR \"big fish\") NOT bird").getPositiveWords();
+        assertEquals(4, words.size());
+        assertEquals("cat", words.get(0));
+        assertEquals("dog", words.get(1));
+        assertEquals("big", words.get(2));
+        assertEquals("fish", words.get(3));
+    }
+
+    @Test(timeout=SECOND)
+    public void testIntersectAndUnion() {
+        DocumentIterator both = DocumentIterators.intersect(
+                new DocumentIterator[] {
+                    DocumentIterators.fromArray(new int[] {1, 3, 5, 7, 9, 11}),
+                    DocumentIterators.fromArray(new int[] {3, 4, 5, 9, 10, 11}),
+                },
+                new DocumentIterator[] {DocumentIterators.fromArray(new int[] {5})},
+                20);
+        assertArrayEquals(new int[] {3, 9, 11}, DocumentIterators.toArray(both));
+
+        DocumentIterator either = DocumentIterators.union(new DocumentIterator[] {
+            DocumentIterators.fromArray(new int[] {1, 5}),
+            DocumentIterators.fromArray(new int[] {2, 5, 8}),
+        });
+        assertArrayEquals(new int[] {1, 2, 5, 8}, DocumentIterators.toArray(either));
+
+        DocumentIterator neither = DocumentIterators.intersect(
+                new DocumentIterator[0],
+                new DocumentIterator[] {DocumentIterators.fromArray(new int[] {0, 2, 3})},
+                5);
+        assertArrayEquals(new int[] {1, 4}, DocumentIterators.toArray(neither));
+    }
+
+    @Test(timeout=10 * SECOND)
+    public void testMatchesBruteForce() {
+        Random random = new Random(17);
+        ISet<Webpage> pages = new ChainedHashSet<>();
+        ISet<String>[] contents = makeContents(800);
+        for (int page = 0; page < contents.length; page++) {
+            IList<String> words = new DoubleLinkedList<>();
+            for (String word : WORDS) {
+                // Each word appears in a different fraction of the pages.
+                if (random.nextInt(WORDS.length) < word.length()) {
+                    words.add(word);
+                    contents[page].add(word);
+                }
+            }
+            pages.add(this.buildPage(page, words));
+        }
+        TfIdfAnalyzer tfIdf = new TfIdfAnalyzer(pages);
+        InvertedIndex index = new InvertedIndex(tfIdf);
+        PositionalIndex positions = new PositionalIndex(pages, index, tfIdf);
+
+        String[] queries = {
+            "cat AND dog",
+            "cat OR dog",
+            "cat NOT dog",
+            "NOT cat",
+            "(cat OR fish) AND NOT (dog OR bird)",
+            "rain AND snow AND cat AND dog",
+            "cat AND unknown",
+            "cat OR unknown",
+            "NOT unknown",
+        };
+        for (String input : queries) {
+            BooleanQuery query = BooleanQuery.parse(input);
+            int[] matches = query.findMatches(index, positions);
+
+            int expected = 0;
+            for (int page = 0; page < contents.length; page++) {
+                if (this.evaluate(input, contents[page])) {
+                    expected++;
+                }
+            }
+            assertEquals(expected, matches.length);
+            for (int i = 0; i < matches.length; i++) {
+                String path = index.getUri(matches[i]).getPath();
+                int page = Integer.parseInt(path.substring(1, path.length() - ".html".length()));
+                assertTrue(this.evaluate(input, contents[page]));
+                if (i > 0) {
+                    assertTrue(matches[i - 1] < matches[i]);
+                }
+            }
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static ISet<String>[] makeContents(int size) {
+        ISet<String>[] contents = (ISet<String>[]) new ISet[size];
+        for (int i = 0; i < size; i++) {
+            contents[i] = new ChainedHashSet<>();
+        }
+        return contents;
+    }
+
+    private boolean evaluate(String query, ISet<String> words) {
+        boolean cat = words.contains("cat");
+        boolean dog = words.contains("dog");
+        boolean fish = words.contains("fish");
+        boolean bird = words.contains("bird");
+        boolean rain = words.contains("rain");
+        boolean snow = words.contains("snow");
+        switch (query) {
+            case "cat AND dog": return cat && dog;
+            case "cat OR dog": return cat || dog;
+            case "cat NOT dog": return cat && !dog;
+            case "NOT cat": return !cat;
+            case "(cat OR fish) AND NOT (dog OR bird)": return (cat || fish) && !(dog || bird);
+            case "rain AND snow AND cat AND dog": return rain && snow && cat && dog;
+            case "cat AND unknown": return false;
+            case "cat OR unknown": return cat;
+            case "NOT unknown": return true;
+            default: throw new IllegalArgumentException(query);
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package search;
+
+import datastructures.concrete.DoubleLinkedList;
+import datastructures.interfaces.IList;
+import datastructures.interfaces.ISet;
+import misc.BaseTest;
+import org.junit.Test;
+import search.analyzers.ImpactIndex;
+import search.analyzers.InvertedIndex;
+import search.analyzers.PageRankAnalyzer;
+import search.analyzers.TfIdfAnalyzer;
+import search.analyzers.TopKCollector;
+import search.models.Webpage;
+
+import java.net.URI;
+import java.util.Random;
+
+public class TestImpactIndex extends BaseTest {
+    public static final double DELTA = 0.000000001;
+
+    private TopKCollector findTopK(ImpactIndex impacts, TfIdfAnalyzer tfIdf, IList<String> query, int k) {
+        TopKCollector collector = new TopKCollector(k);
+        impacts.findTopK(tfIdf.prepareQuery(query), collector);
+        collector.sort();
+        return collector;
+    }
+
+    @Test(timeout=10 * SECOND)
+    public void testMatchesExhaustiveScoring() {
+        Random random = new Random(42);
+        ISet<Webpage> pages = RandomCorpus.makePages(300, random);
+        TfIdfAnalyzer tfIdf = new TfIdfAnalyzer(pages);
+        PageRankAnalyzer pageRank = new PageRankAnalyzer(pages, 0.85, 0.00001, 100);
+        InvertedIndex index = new InvertedIndex(tfIdf);
+        ImpactIndex impacts = new ImpactIndex(index, tfIdf, pageRank);
+
+        for (int trial = 0; trial < 200; trial++) {
+            IList<String> query = RandomCorpus.randomQuery(random);
+            int k = 1 + random.nextInt(20);
+
+            // Score every page the slow way, and keep the k best scores.
+            double[] expected = new double[index.size()];
+            for (int id = 0; id < index.size(); id++) {
+                URI uri = index.getUri(id);
+                expected[id] = tfIdf.computeRelevance(query, uri) * Math.sqrt(pageRank.computePageRank(uri));
+            }
+            TopKCollector actual = this.findTopK(impacts, tfIdf, query, k);
+            RandomCorpus.assertTopScores(expected, actual);
+
+            // Only pages with a non-zero score are returned.
+            int nonZero = 0;
+            for (double score : expected) {
+                if (score > 0.0) {
+                    nonZero++;
+                }
+            }
+            assertEquals(Math.min(k, nonZero), actual.size());
+        }
+    }
+
+    @Test(timeout=SECOND)
+    public void testUpperBoundsAreTight() {
+        Random random = new Random(7);
+        ISet<Webpage> pages = RandomCorpus.makePages(50, random);
+        TfIdfAnalyzer tfIdf = new TfIdfAnalyzer(pages);
+        PageRankAnalyzer pageRank = new PageRankAnalyzer(pages, 0.85, 0.00001, 100);
+        InvertedIndex index = new InvertedIndex(tfIdf);
+        ImpactIndex impacts = new ImpactIndex(index, tfIdf, pageRank);
+
+        // A single-word query's best score is exactly that word's upper bound.
+        IList<String> query = new DoubleLinkedList<>();
+        query.add("coffee");
+        TopKCollector top = this.findTopK(impacts, tfIdf, query, 1);
+        assertEquals(1, top.size());
+        int term = tfIdf.getTerms().getId("coffee");
+        assertEquals(impacts.getMaxImpact(term), top.getScore(0), DELTA);
+    }
+
+    @Test(timeout=SECOND)
+    public void testEmptyResults() {
+        Random random = new Random(3);
+        ISet<Webpage> pages = RandomCorpus.makePages(20, random);
+        TfIdfAnalyzer tfIdf = new TfIdfAnalyzer(pages);
+        PageRankAnalyzer pageRank = new PageRankAnalyzer(pages, 0.85, 0.00001, 100);
+        ImpactIndex impacts = new ImpactIndex(new InvertedIndex(tfIdf), tfIdf, pageRank);
+
+        IList<String> query = new DoubleLinkedList<>();
+        query.add("unknown");
+        assertEquals(0, this.findTopK(impacts, tfIdf, query, 10).size());
+
+        query.add("cat");
+        assertEquals(0, this.findTopK(impacts, tfIdf, query, 0).size());
+    }
+}
@@ -0,0 +1,193 @@
+package search;
+
+import datastructures.concrete.ChainedHashSet;
+import datastructures.concrete.DoubleLinkedList;
+import datastructures.concrete.dictionaries.ChainedHashDictionary;
+import datastructures.interfaces.IDictionary;
+import datastructures.interfaces.IList;
+import datastructures.interfaces.ISet;
+import misc.BaseTest;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import search.analyzers.InvertedIndex;
+import search.analyzers.PageRankAnalyzer;
+import search.analyzers.PositionalIndex;
+import search.analyzers.TfIdfAnalyzer;
+import search.misc.CorpusManifest;
+import search.models.Webpage;
+import search.models.WebpageSummary;
+
+import java.io.IOException;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class TestIndexSnapshot extends BaseTest {
+    public static final double DELTA = 0.000001;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private IList<String> strToIList(String input) {
+        IList<String> output = new DoubleLinkedList<>();
+        for (String word : input.split(" ")) {
+            output.add(word);
+        }
+        return output;
+    }
+
+    private Webpage buildPage(String name, String words, String... linksTo) {
+        IList<URI> links = new DoubleLinkedList<>();
+        for (String link : linksTo) {
+            links.add(URI.create("http://example.com/" + link + ".html"));
+        }
+        return new Webpage(
+                URI.create("http://example.com/" + name + ".html"),
+                links,
+                strToIList(words),
+                name + " title",
+                name + " blurb");
+    }
+
+    private CorpusManifest makeManifest(Path root, String... names) throws IOException {
+        IList<Path> files = new DoubleLinkedList<>();
+        for (String name : names) {
+            Path file = root.resolve(name);
+            if (!Files.exists(file)) {
+                Files.write(file, name.getBytes());
+            }
+            files.add(file);
+        }
+        return CorpusManifest.scan(root, files);
+    }
+
+    private IndexSnapshot makeSnapshot() {
+        ISet<Webpage> pages = new ChainedHashSet<>();
+        pages.add(buildPage("a", "the mouse played with the cat", "b"));
+        pages.add(buildPage("b", "the quick brown fox jumped over the lazy dog", "a", "c"));
+        pages.add(buildPage("c", "dog 1 and dog 2 ate the hot dog"));
+
+        IDictionary<URI, WebpageSummary> summaries = new ChainedHashDictionary<>();
+        for (Webpage page : pages) {
+            summaries.put(page.getUri(), page.getSummary());
+        }
+        TfIdfAnalyzer tfIdf = new TfIdfAnalyzer(pages);
+        InvertedIndex index = new InvertedIndex(tfIdf);
+        return new IndexSnapshot(
+                summaries,
+                index,
+                tfIdf,
+                new PageRankAnalyzer(pages, 0.85, 0.00001, 100),
+                new PositionalIndex(pages, index, tfIdf));
+    }
+
+    @Test(timeout=SECOND)
+    public void testRoundTrip() throws IOException {
+        Path root = this.folder.getRoot().toPath();
+        CorpusManifest manifest = this.makeManifest(root, "a.html", "b.html", "c.html");
+        Path file = root.resolve("index.snapshot");
+
+        IndexSnapshot original = this.makeSnapshot();
+        original.save(file, manifest, "config");
+        IndexSnapshot loaded = IndexSnapshot.load(file, manifest, "config");
+        assertNotNull(loaded);
+
+        IList<String> query = strToIList("the dog cat");
+        for (String name : new String[] {"a", "b", "c"}) {
+            URI uri = URI.create("http://example.com/" + name + ".html");
+            assertEquals(original.getPages().get(uri), loaded.getPages().get(uri));
+            assertEquals(
+                    original.getTfIdfAnalyzer().computeRelevance(query, uri),
+                    loaded.getTfIdfAnalyzer().computeRelevance(query, uri),
+                    DELTA);
+            assertEquals(
+                    original.getPageRankAnalyzer().computePageRank(uri),
+                    loaded.getPageRankAnalyzer().computePageRank(uri),
+                    DELTA);
+        }
+
+        InvertedIndex index = loaded.getInvertedIndex();
+        assertEquals(3, index.size());
+        assertEquals(2, index.getPostings("dog").length);
+
+        IList<IList<String>> phrases = new DoubleLinkedList<>();
+        phrases.add(strToIList("hot dog"));
+        int[] matches = loaded.getPositionalIndex().findPhrases(phrases);
+        assertEquals(1, matches.length);
+        assertEquals(URI.create("http://example.com/c.html"), index.getUri(matches[0]));
+    }
+
+    @Test(timeout=SECOND)
+    public void testStaleSnapshotIsIgnored() throws IOException {
+        Path root = this.folder.getRoot().toPath();
+        CorpusManifest manifest = this.makeManifest(root, "a.html", "b.html");
+        Path file = root.resolve("index.snapshot");
+        this.makeSnapshot().save(file, manifest, "config");
+
+        assertNull(IndexSnapshot.load(file, manifest, "other config"));
+        assertNull(IndexSnapshot.load(file, this.makeManifest(root, "a.html", "b.html", "c.html"), "config"));
+
+        Files.write(root.resolve("a.html"), "changed contents".getBytes());
+        assertNull(IndexSnapshot.load(file, this.makeManifest(root, "a.html", "b.html"), "config"));
+
+        assertNull(IndexSnapshot.load(root.resolve("missing.snapshot"), manifest, "config"));
+    }
+
+    @Test(timeout=5 * SECOND)
+    public void testCorruptSnapshotIsRebuilt() throws IOException {
+        Path root = this.folder.getRoot().toPath();
+        CorpusManifest manifest = this.makeManifest(root, "a.html", "b.html", "c.html");
+        Path file = root.resolve("index.snapshot");
+        this.makeSnapshot().save(file, manifest, SearchEngine.describeConfiguration());
+        byte[] original = Files.readAllBytes(file);
+        assertNotNull(SearchEngine.loadSnapshot(file, manifest));
+
+        // Cut off anywhere past the header...
+        for (int length = original.length / 4; length < original.length; length += 7) {
+            Files.write(file, Arrays.copyOf(original, length));
+            assertNull(SearchEngine.loadSnapshot(file, manifest));
+        }
+
+        // ...or with a few bytes overwritten, which reads as negative lengths, huge ids
+        // and so on. Some of these still happen to load, but none of them may throw.
+        int rejected = 0;
+        for (int start = original.length / 4; start < original.length - 4; start += 3) {
+            byte[] corrupt = original.clone();
+            Arrays.fill(corrupt, start, start + 4, (byte) 0x80);
+            Files.write(file, corrupt);
+            if (SearchEngine.loadSnapshot(file, manifest) == null) {
+                rejected++;
+            }
+        }
+        assertTrue(rejected > 0);
+    }
+
+    @Test(timeout=10 * SECOND)
+    public void testHugeLengthIsRebuilt() throws IOException {
+        Path root = this.folder.getRoot().toPath();
+        CorpusManifest manifest = this.makeManifest(root, "a.html", "b.html", "c.html");
+        Path file = root.resolve("index.snapshot");
+        this.makeSnapshot().save(file, manifest, SearchEngine.describeConfiguration());
+        byte[] original = Files.readAllBytes(file);
+
+        // Wherever a length is overwritten with a huge one, loading must run into the
+        // end of the file rather than try to allocate that much up front.
+        int rejected = 0;
+        for (int start = 8; start < original.length - 4; start++) {
+            byte[] corrupt = original.clone();
+            ByteBuffer.wrap(corrupt).putInt(start, Integer.MAX_VALUE - 8);
+            Files.write(file, corrupt);
+            if (SearchEngine.loadSnapshot(file, manifest) == null) {
+                rejected++;
+            }
+        }
+        assertTrue(rejected > 0);
+    }
+}
@@ -0,0 +1,88 @@
+package search;
+
+import datastructures.concrete.ChainedHashSet;
+import datastructures.concrete.DoubleLinkedList;
+import datastructures.interfaces.IList;
+import datastructures.interfaces.ISet;
+import misc.BaseTest;
+import org.junit.Test;
+import search.analyzers.InvertedIndex;
+import search.analyzers.TfIdfAnalyzer;
+import search.models.Webpage;
+
+import java.net.URI;
+
+import static org.junit.Assert.assertTrue;
+
+public class TestInvertedIndex extends BaseTest {
+    private IList<String> strToIList(String input) {
+        IList<String> output = new DoubleLinkedList<>();
+        for (String word : input.split(" ")) {
+            output.add(word);
+        }
+        return output;
+    }
+
+    private Webpage buildPage(String name, String words) {
+        return new Webpage(
+                URI.create("http://example.com/" + name + ".html"),
+                new DoubleLinkedList<>(),
+                strToIList(words),
+                name,
+                "blurb");
+    }
+
+    private InvertedIndex makeExampleIndex() {
+        ISet<Webpage> documents = new ChainedHashSet<>();
+        documents.add(buildPage("a", "the mouse played with the cat"));
+        documents.add(buildPage("b", "the quick brown fox jumped over the lazy dog"));
+        documents.add(buildPage("c", "dog 1 and dog 2 ate the hot dog"));
+        return new InvertedIndex(new TfIdfAnalyzer(documents));
+    }
+
+    private ISet<URI> toUris(InvertedIndex index, int[] ids) {
+        ISet<URI> out = new ChainedHashSet<>();
+        for (int id : ids) {
+            out.add(index.getUri(id));
+        }
+        return out;
+    }
+
+    @Test(timeout=SECOND)
+    public void testPostingsAreSortedAndUnique() {
+        InvertedIndex index = this.makeExampleIndex();
+        assertEquals(3, index.size());
+
+        int[] the = index.getPostings("the");
+        assertEquals(3, the.length);
+        for (int i = 1; i < the.length; i++) {
+            assertTrue(the[i - 1] < the[i]);
+        }
+
+        int[] dog = index.getPostings("dog");
+        assertEquals(2, dog.length);
+        assertEquals(0, index.getPostings("missing").length);
+    }
+
+    @Test(timeout=SECOND)
+    public void testDocumentIdsRoundTrip() {
+        InvertedIndex index = this.makeExampleIndex();
+        for (int id = 0; id < index.size(); id++) {
+            assertEquals(id, index.getDocumentId(index.getUri(id)));
+        }
+    }
+
+    @Test(timeout=SECOND)
+    public void testFindCandidatesIsUnionOfPostings() {
+        InvertedIndex index = this.makeExampleIndex();
+
+        ISet<URI> candidates = toUris(index, index.findCandidates(strToIList("cat dog missing")));
+        assertEquals(3, candidates.size());
+
+        candidates = toUris(index, index.findCandidates(strToIList("fox lazy")));
+        assertEquals(1, candidates.size());
+        assertTrue(candidates.contains(URI.create("http://example.com/b.html")));
+
+        assertEquals(0, index.findCandidates(strToIList("missing")).length);
+    }
+}
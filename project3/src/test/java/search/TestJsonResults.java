@@ -0,0 +1,75 @@
+package search;
+
+import misc.BaseTest;
+import org.junit.Test;
+import search.misc.ChunkInputStream;
+import search.models.WebpageSummary;
+
+import java.io.ByteArrayOutputStream;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.fail;
+
+public class TestJsonResults extends BaseTest {
+    private String readAll(ChunkInputStream stream, int bufferSize) {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        byte[] buffer = new byte[bufferSize];
+        for (int count = stream.read(buffer, 0, bufferSize); count != -1; count = stream.read(buffer, 0, bufferSize)) {
+            output.write(buffer, 0, count);
+        }
+        return new String(output.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    @Test(timeout=SECOND)
+    public void testSummaryJson() {
+        WebpageSummary summary = new WebpageSummary(
+                URI.create("http://example.com/a.html"), "Say \"hi\" <now>", "caf\u00e9\nbar");
+        String json = new String(summary.toJson(), StandardCharsets.UTF_8);
+        assertEquals(
+                "{\"uri\":\"http://example.com/a.html\",\"title\":\"Say \\\"hi\\\" \\u003cnow>\",\"blurb\":\"caf\u00e9\\nbar\"",
+                json);
+        // The bytes are encoded once and then reused.
+        assertEquals(summary.toJson(), summary.toJson());
+    }
+
+    @Test(timeout=SECOND)
+    public void testReadsChunksInOrder() {
+        for (int bufferSize = 1; bufferSize <= 8; bufferSize++) {
+            ChunkInputStream stream = new ChunkInputStream();
+            stream.add("ab").add(new byte[0]).add("cde").add(new byte[] {'f'}).add("");
+            assertEquals(6L, stream.length());
+            assertEquals("abcdef", this.readAll(stream, bufferSize));
+            assertEquals(-1, stream.read());
+        }
+    }
+
+    @Test(timeout=SECOND)
+    public void testSingleByteReads() {
+        ChunkInputStream stream = new ChunkInputStream();
+        stream.add(new byte[] {(byte) 0xFF}).add("x");
+        assertEquals(0xFF, stream.read());
+        assertEquals((int) 'x', stream.read());
+        assertEquals(-1, stream.read());
+        assertEquals(-1, stream.read(new byte[4], 0, 4));
+    }
+
+    @Test(timeout=SECOND)
+    public void testEmptyStream() {
+        ChunkInputStream stream = new ChunkInputStream();
+        assertEquals(0L, stream.length());
+        assertEquals(-1, stream.read());
+    }
+
+    @Test(timeout=SECOND)
+    public void testAddAfterReadingFails() {
+        ChunkInputStream stream = new ChunkInputStream().add("abc");
+        stream.read();
+        try {
+            stream.add("d");
+            fail("Expected IllegalStateException");
+        } catch (IllegalStateException ex) {
+            // Do nothing: this is ok
+        }
+    }
+}
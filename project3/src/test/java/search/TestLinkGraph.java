@@ -0,0 +1,72 @@
+package search;
+
+import datastructures.concrete.ChainedHashSet;
+import datastructures.concrete.DoubleLinkedList;
+import datastructures.interfaces.IList;
+import datastructures.interfaces.ISet;
+import misc.BaseTest;
+import org.junit.Test;
+import search.analyzers.LinkGraph;
+import search.models.Webpage;
+
+import java.net.URI;
+
+public class TestLinkGraph extends BaseTest {
+    private Webpage buildPage(URI currentPage, URI[] linksTo) {
+        IList<URI> links = new DoubleLinkedList<>();
+        for (URI uri : linksTo) {
+            links.add(uri);
+        }
+        return new Webpage(currentPage, links, new DoubleLinkedList<>(), "title", "blurb");
+    }
+
+    private int countInLinks(LinkGraph graph, URI destination, URI source) {
+        int v = graph.getIds().get(destination);
+        int u = graph.getIds().get(source);
+        int count = 0;
+        for (int e = graph.getInLinkOffsets()[v]; e < graph.getInLinkOffsets()[v + 1]; e++) {
+            if (graph.getInLinkSources()[e] == u) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    @Test(timeout=SECOND)
+    public void testOmitsExternalSelfAndDuplicateLinks() {
+        URI pageAUri = URI.create("http://example.com/page-a.html");
+        URI pageBUri = URI.create("http://example.com/page-b.html");
+        URI pageCUri = URI.create("http://example.com/page-c.html");
+        URI externalUri = URI.create("http://elsewhere.com/page.html");
+
+        ISet<Webpage> pages = new ChainedHashSet<>();
+        pages.add(this.buildPage(pageAUri, new URI[] {pageBUri, pageBUri, pageAUri, externalUri}));
+        pages.add(this.buildPage(pageBUri, new URI[] {pageAUri, pageCUri}));
+        pages.add(this.buildPage(pageCUri, new URI[] {}));
+
+        LinkGraph graph = new LinkGraph(pages);
+
+        assertEquals(3, graph.size());
+        assertEquals(3, graph.numEdges());
+        assertEquals(1, graph.getOutDegrees()[graph.getIds().get(pageAUri)]);
+        assertEquals(2, graph.getOutDegrees()[graph.getIds().get(pageBUri)]);
+        assertEquals(0, graph.getOutDegrees()[graph.getIds().get(pageCUri)]);
+
+        assertEquals(1, this.countInLinks(graph, pageBUri, pageAUri));
+        assertEquals(0, this.countInLinks(graph, pageAUri, pageAUri));
+        assertEquals(1, this.countInLinks(graph, pageAUri, pageBUri));
+        assertEquals(1, this.countInLinks(graph, pageCUri, pageBUri));
+    }
+
+    @Test(timeout=SECOND)
+    public void testIdsRoundTrip() {
+        ISet<Webpage> pages = new ChainedHashSet<>();
+        for (int i = 0; i < 50; i++) {
+            pages.add(this.buildPage(URI.create("http://example.com/" + i), new URI[] {}));
+        }
+        LinkGraph graph = new LinkGraph(pages);
+        for (int id = 0; id < graph.size(); id++) {
+            assertEquals(id, (int) graph.getIds().get(graph.getUri(id)));
+        }
+    }
+}
@@ -10,6 +10,7 @@ import search.analyzers.PageRankAnalyzer;
 import search.models.Webpage;
 
 import java.net.URI;
+import java.util.Random;
 
 public class TestPageRankAnalyzer extends BaseTest {
     // We say two floating point numbers are equal if they're within
@@ -92,4 +93,49 @@ public class TestPageRankAnalyzer extends BaseTest {
         assertEquals(0.05244, analyzer.computePageRank(pageEUri), DELTA);
     }
 
+    @Test(timeout=5*SECOND)
+    public void testManyDanglingPagesIsFast() {
+        ISet<Webpage> pages = PageRankRuntimeAnalysis.makeMostlyDanglingGraph(20000, new Random(373));
+
+        PageRankAnalyzer analyzer = new PageRankAnalyzer(pages, 0.85, 0.000001, 100);
+
+        // Dangling rank is redistributed rather than lost, so the ranks must still sum to 1.
+        double total = 0.0;
+        for (Webpage page : pages) {
+            total += analyzer.computePageRank(page.getUri());
+        }
+        assertEquals(1.0, total, 0.001);
+    }
+
+    @Test(timeout=10*SECOND)
+    public void testParallelMatchesSerial() {
+        double epsilon = 0.000001;
+        ISet<Webpage> pages = PageRankRuntimeAnalysis.makeMostlyDanglingGraph(30000, new Random(143));
+
+        PageRankAnalyzer serial = new PageRankAnalyzer(pages, 0.85, epsilon, 100);
+        PageRankAnalyzer parallel = new PageRankAnalyzer(pages, 0.85, epsilon, 100, 4);
+
+        for (Webpage page : pages) {
+            assertEquals(serial.computePageRank(page.getUri()), parallel.computePageRank(page.getUri()), epsilon);
+        }
+    }
+
+    @Test(timeout=SECOND)
+    public void testParallelSpecExample() {
+        URI pageAUri = URI.create("http://example.com/page-a.html");
+        URI pageBUri = URI.create("http://example.com/page-b.html");
+        URI pageCUri = URI.create("http://example.com/page-c.html");
+
+        ISet<Webpage> pages = new ChainedHashSet<>();
+        pages.add(this.buildPage(pageAUri, new URI[] {pageBUri, pageCUri}));
+        pages.add(this.buildPage(pageBUri, new URI[] {}));
+        pages.add(this.buildPage(pageCUri, new URI[] {pageAUri}));
+
+        PageRankAnalyzer serial = new PageRankAnalyzer(pages, 0.85, 0.00001, 100);
+        PageRankAnalyzer parallel = new PageRankAnalyzer(pages, 0.85, 0.00001, 100, 3);
+
+        assertEquals(serial.computePageRank(pageAUri), parallel.computePageRank(pageAUri), DELTA);
+        assertEquals(serial.computePageRank(pageBUri), parallel.computePageRank(pageBUri), DELTA);
+        assertEquals(serial.computePageRank(pageCUri), parallel.computePageRank(pageCUri), DELTA);
+    }
 }
@@ -0,0 +1,160 @@
+package search;
+
+import datastructures.concrete.ChainedHashSet;
+import datastructures.concrete.DoubleLinkedList;
+import datastructures.interfaces.IList;
+import datastructures.interfaces.ISet;
+import misc.BaseTest;
+import org.junit.Test;
+import search.analyzers.InvertedIndex;
+import search.analyzers.PositionalIndex;
+import search.analyzers.TfIdfAnalyzer;
+import search.models.Webpage;
+
+import java.net.URI;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertTrue;
+
+public class TestPositionalIndex extends BaseTest {
+    private static final String[] WORDS = {"the", "seattle", "times", "news", "rain", "a"};
+
+    private IList<String> strToIList(String input) {
+        IList<String> output = new DoubleLinkedList<>();
+        for (String word : input.split(" ")) {
+            output.add(word);
+        }
+        return output;
+    }
+
+    private IList<IList<String>> phrases(String... inputs) {
+        IList<IList<String>> output = new DoubleLinkedList<>();
+        for (String input : inputs) {
+            output.add(strToIList(input));
+        }
+        return output;
+    }
+
+    private Webpage buildPage(String name, IList<String> words) {
+        return new Webpage(
+                URI.create("http://example.com/" + name + ".html"),
+                new DoubleLinkedList<>(),
+                words,
+                name,
+                "blurb");
+    }
+
+    private boolean containsPhrase(IList<String> words, IList<String> phrase) {
+        String[] text = new String[words.size()];
+        int i = 0;
+        for (String word : words) {
+            text[i++] = word;
+        }
+        for (int start = 0; start + phrase.size() <= text.length; start++) {
+            boolean matches = true;
+            int j = 0;
+            for (String word : phrase) {
+                if (!text[start + j].equals(word)) {
+                    matches = false;
+                    break;
+                }
+                j++;
+            }
+            if (matches) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Test(timeout=SECOND)
+    public void testSimplePhrases() {
+        ISet<Webpage> pages = new ChainedHashSet<>();
+        pages.add(buildPage("a", strToIList("the seattle times reported rain")));
+        pages.add(buildPage("b", strToIList("times in seattle are rainy")));
+        pages.add(buildPage("c", strToIList("seattle seattle times times")));
+        TfIdfAnalyzer tfIdf = new TfIdfAnalyzer(pages);
+        InvertedIndex index = new InvertedIndex(tfIdf);
+        PositionalIndex positions = new PositionalIndex(pages, index, tfIdf);
+
+        int[] matches = positions.findPhrases(phrases("seattle times"));
+        assertEquals(2, matches.length);
+        ISet<URI> uris = new ChainedHashSet<>();
+        for (int match : matches) {
+            uris.add(index.getUri(match));
+        }
+        assertTrue(uris.contains(URI.create("http://example.com/a.html")));
+        assertTrue(uris.contains(URI.create("http://example.com/c.html")));
+
+        assertEquals(1, positions.findPhrases(phrases("seattle times", "reported")).length);
+        assertEquals(0, positions.findPhrases(phrases("times seattle")).length);
+        assertEquals(0, positions.findPhrases(phrases("seattle unknown")).length);
+        assertEquals(1, positions.findPhrases(phrases("seattle seattle times times")).length);
+    }
+
+    @Test(timeout=10 * SECOND)
+    public void testMatchesScanningText() {
+        Random random = new Random(21);
+        ISet<Webpage> pages = new ChainedHashSet<>();
+        IList<IList<String>> texts = new DoubleLinkedList<>();
+        // Enough pages that the posting lists span several blocks.
+        for (int page = 0; page < 600; page++) {
+            IList<String> words = new DoubleLinkedList<>();
+            int numWords = random.nextInt(40);
+            for (int i = 0; i < numWords; i++) {
+                words.add(WORDS[random.nextInt(WORDS.length)]);
+            }
+            texts.add(words);
+            pages.add(buildPage("p" + page, words));
+        }
+        TfIdfAnalyzer tfIdf = new TfIdfAnalyzer(pages);
+        InvertedIndex index = new InvertedIndex(tfIdf);
+        PositionalIndex positions = new PositionalIndex(pages, index, tfIdf);
+
+        for (int trial = 0; trial < 100; trial++) {
+            IList<IList<String>> query = new DoubleLinkedList<>();
+            int numPhrases = 1 + random.nextInt(2);
+            for (int p = 0; p < numPhrases; p++) {
+                IList<String> phrase = new DoubleLinkedList<>();
+                int length = 1 + random.nextInt(3);
+                for (int i = 0; i < length; i++) {
+                    phrase.add(WORDS[random.nextInt(WORDS.length)]);
+                }
+                query.add(phrase);
+            }
+
+            ISet<URI> expected = new ChainedHashSet<>();
+            int page = 0;
+            for (IList<String> text : texts) {
+                boolean all = true;
+                for (IList<String> phrase : query) {
+                    all = all && this.containsPhrase(text, phrase);
+                }
+                if (all) {
+                    expected.add(URI.create("http://example.com/p" + page + ".html"));
+                }
+                page++;
+            }
+
+            int[] matches = positions.findPhrases(query);
+            assertEquals(expected.size(), matches.length);
+            for (int i = 0; i < matches.length; i++) {
+                assertTrue(expected.contains(index.getUri(matches[i])));
+                if (i > 0) {
+                    assertTrue(matches[i - 1] < matches[i]);
+                }
+            }
+        }
+    }
+
+    @Test(timeout=SECOND)
+    public void testNoPhrases() {
+        ISet<Webpage> pages = new ChainedHashSet<>();
+        pages.add(buildPage("a", strToIList("the seattle times")));
+        TfIdfAnalyzer tfIdf = new TfIdfAnalyzer(pages);
+        InvertedIndex index = new InvertedIndex(tfIdf);
+        PositionalIndex positions = new PositionalIndex(pages, index, tfIdf);
+        assertArrayEquals(new int[0], positions.findPhrases(phrases()));
+    }
+}
@@ -0,0 +1,117 @@
+package search;
+
+import misc.BaseTest;
+import org.junit.Test;
+import search.analyzers.PostingList;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertTrue;
+
+public class TestPostingList extends BaseTest {
+    private int[] makeRandomIds(int size, int maxGap, Random random) {
+        int[] ids = new int[size];
+        int previous = -1;
+        for (int i = 0; i < size; i++) {
+            previous += 1 + random.nextInt(maxGap);
+            ids[i] = previous;
+        }
+        return ids;
+    }
+
+    @Test(timeout=SECOND)
+    public void testRoundTrip() {
+        Random random = new Random(5);
+        for (int size : new int[] {0, 1, 2, 127, 128, 129, 256, 1000}) {
+            for (int maxGap : new int[] {1, 3, 200, 100000}) {
+                int[] ids = this.makeRandomIds(size, maxGap, random);
+                assertArrayEquals(ids, new PostingList(ids).toArray());
+            }
+        }
+    }
+
+    @Test(timeout=SECOND)
+    public void testLargeIds() {
+        int[] ids = {0, 1, 127, 128, 16383, 16384, Integer.MAX_VALUE - 1};
+        PostingList list = new PostingList(ids);
+        assertEquals(ids.length, list.size());
+        assertArrayEquals(ids, list.toArray());
+    }
+
+    @Test(timeout=SECOND)
+    public void testSmallGapsCompressWell() {
+        int[] ids = new int[10000];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = 3 * i;
+        }
+        PostingList list = new PostingList(ids);
+        assertTrue(list.getCompressedBytes() < 2L * ids.length);
+    }
+
+    @Test(timeout=SECOND)
+    public void testCursorPositions() {
+        int[] ids = this.makeRandomIds(300, 10, new Random(8));
+        PostingList.Cursor cursor = new PostingList(ids).cursor();
+        for (int i = 0; i < ids.length; i++) {
+            assertEquals(ids[i], cursor.document());
+            assertEquals(i, cursor.position());
+            cursor.next();
+        }
+        assertEquals(PostingList.NO_MORE_DOCUMENTS, cursor.document());
+    }
+
+    @Test(timeout=SECOND)
+    public void testAdvance() {
+        Random random = new Random(11);
+        int[] ids = this.makeRandomIds(2000, 20, random);
+        PostingList list = new PostingList(ids);
+
+        for (int trial = 0; trial < 200; trial++) {
+            PostingList.Cursor cursor = list.cursor();
+            int target = 0;
+            while (true) {
+                target += random.nextInt(500);
+                cursor.advance(target);
+
+                int expected = Arrays.binarySearch(ids, target);
+                if (expected < 0) {
+                    expected = -expected - 1;
+                }
+                if (expected == ids.length) {
+                    assertEquals(PostingList.NO_MORE_DOCUMENTS, cursor.document());
+                    break;
+                }
+                assertEquals(ids[expected], cursor.document());
+                assertEquals(expected, cursor.position());
+            }
+        }
+    }
+
+    @Test(timeout=SECOND)
+    public void testAdvanceNeverMovesBackwards() {
+        PostingList.Cursor cursor = new PostingList(new int[] {2, 4, 6, 8}).cursor();
+        cursor.advance(5);
+        assertEquals(6, cursor.document());
+        cursor.advance(1);
+        assertEquals(6, cursor.document());
+        cursor.advance(6);
+        assertEquals(6, cursor.document());
+        cursor.advance(9);
+        assertEquals(PostingList.NO_MORE_DOCUMENTS, cursor.document());
+    }
+
+    @Test(timeout=SECOND)
+    public void testEmptyList() {
+        PostingList.Cursor cursor = new PostingList(new int[0]).cursor();
+        assertEquals(PostingList.NO_MORE_DOCUMENTS, cursor.document());
+        cursor.advance(10);
+        assertEquals(PostingList.NO_MORE_DOCUMENTS, cursor.document());
+    }
+
+    @Test(timeout=SECOND, expected=IllegalArgumentException.class)
+    public void testUnsortedIdsRejected() {
+        new PostingList(new int[] {1, 5, 5});
+    }
+}
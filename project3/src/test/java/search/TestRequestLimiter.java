@@ -0,0 +1,129 @@
+package search;
+
+import misc.BaseTest;
+import org.junit.Test;
+import search.misc.RequestLimiter;
+import search.misc.exceptions.OverloadedException;
+
+import java.io.IOException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class TestRequestLimiter extends BaseTest {
+    @Test(timeout=SECOND)
+    public void testReturnsResult() throws Exception {
+        RequestLimiter limiter = new RequestLimiter(2, 100);
+        assertEquals("result", limiter.execute(() -> "result"));
+        assertEquals(7, limiter.execute(() -> 3 + 4));
+
+        // Tasks run on the thread that asked.
+        assertEquals(Thread.currentThread(), limiter.execute(Thread::currentThread));
+    }
+
+    @Test(timeout=SECOND)
+    public void testRethrowsTaskExceptions() throws Exception {
+        RequestLimiter limiter = new RequestLimiter(1, 100);
+        try {
+            limiter.execute(() -> {
+                throw new IOException("broken");
+            });
+            fail("Expected IOException");
+        } catch (IOException ex) {
+            assertEquals("broken", ex.getMessage());
+        }
+
+        // The failed task gave its slot back.
+        assertEquals("ok", limiter.execute(() -> "ok"));
+    }
+
+    @Test(timeout=SECOND)
+    public void testRejectsInvalidArguments() {
+        try {
+            new RequestLimiter(0, 100);
+            fail("Expected IllegalArgumentException");
+        } catch (IllegalArgumentException ex) {
+            // Do nothing: this is ok
+        }
+        try {
+            new RequestLimiter(1, -1);
+            fail("Expected IllegalArgumentException");
+        } catch (IllegalArgumentException ex) {
+            // Do nothing: this is ok
+        }
+    }
+
+    @Test(timeout=5 * SECOND)
+    public void testTurnsAwayRequestsOnceFull() throws Exception {
+        RequestLimiter limiter = new RequestLimiter(2, 50);
+        CountDownLatch started = new CountDownLatch(2);
+        CountDownLatch release = new CountDownLatch(1);
+        Thread[] busy = new Thread[2];
+        for (int i = 0; i < busy.length; i++) {
+            busy[i] = new Thread(() -> {
+                try {
+                    limiter.execute(() -> {
+                        started.countDown();
+                        release.await();
+                        return null;
+                    });
+                } catch (Exception ex) {
+                    throw new RuntimeException(ex);
+                }
+            });
+            busy[i].start();
+        }
+        started.await();
+
+        AtomicInteger ran = new AtomicInteger(0);
+        long start = System.nanoTime();
+        try {
+            limiter.execute(ran::incrementAndGet);
+            fail("Expected OverloadedException");
+        } catch (OverloadedException ex) {
+            // Do nothing: this is ok
+        }
+        long waitedMillis = (System.nanoTime() - start) / 1_000_000;
+        assertTrue(waitedMillis >= 40);
+        assertTrue(waitedMillis < SECOND);
+        assertEquals(0, ran.get());
+
+        // Once a slot frees up, requests are let in again.
+        release.countDown();
+        for (Thread thread : busy) {
+            thread.join();
+        }
+        assertEquals(1, limiter.execute(ran::incrementAndGet));
+    }
+
+    @Test(timeout=5 * SECOND)
+    public void testLimitsConcurrency() throws Exception {
+        int limit = 3;
+        RequestLimiter limiter = new RequestLimiter(limit, 5 * SECOND);
+        AtomicInteger running = new AtomicInteger(0);
+        AtomicInteger mostRunning = new AtomicInteger(0);
+        Thread[] threads = new Thread[10];
+        for (int i = 0; i < threads.length; i++) {
+            threads[i] = new Thread(() -> {
+                try {
+                    limiter.execute(() -> {
+                        mostRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+                        Thread.sleep(20);
+                        running.decrementAndGet();
+                        return null;
+                    });
+                } catch (Exception ex) {
+                    throw new RuntimeException(ex);
+                }
+            });
+            threads[i].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertTrue(mostRunning.get() <= limit);
+        assertTrue(mostRunning.get() > 0);
+    }
+}
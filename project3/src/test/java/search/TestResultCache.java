@@ -0,0 +1,105 @@
+package search;
+
+import datastructures.concrete.DoubleLinkedList;
+import datastructures.interfaces.IList;
+import misc.BaseTest;
+import org.junit.Test;
+import search.misc.ResultCache;
+import search.models.Result;
+import search.models.WebpageSummary;
+
+import java.net.URI;
+
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class TestResultCache extends BaseTest {
+    private IList<String> query(String input) {
+        IList<String> output = new DoubleLinkedList<>();
+        for (String word : input.split(" ")) {
+            output.add(word);
+        }
+        return output;
+    }
+
+    private IList<Result> results(int count) {
+        IList<Result> output = new DoubleLinkedList<>();
+        for (int i = 0; i < count; i++) {
+            URI uri = URI.create("http://example.com/" + i + ".html");
+            output.add(new Result(new WebpageSummary(uri, "title", "blurb"), count - i));
+        }
+        return output;
+    }
+
+    @Test(timeout=SECOND)
+    public void testHitsAndMisses() {
+        ResultCache cache = new ResultCache(1024 * 1024);
+        assertNull(cache.get(query("seattle times"), 10));
+
+        cache.put(query("seattle times"), 10, results(3));
+        IList<Result> cached = cache.get(query("seattle times"), 10);
+        assertNotNull(cached);
+        assertEquals(3, cached.size());
+
+        // Same words, different number of results: a different entry.
+        assertNull(cache.get(query("seattle times"), 20));
+        assertNull(cache.get(query("times seattle"), 10));
+
+        assertEquals(1L, cache.getHits());
+        assertEquals(3L, cache.getMisses());
+    }
+
+    @Test(timeout=SECOND)
+    public void testReturnedListsAreCopies() {
+        ResultCache cache = new ResultCache(1024 * 1024);
+        IList<Result> original = results(3);
+        cache.put(query("dog"), 5, original);
+        original.remove();
+
+        IList<Result> first = cache.get(query("dog"), 5);
+        first.remove();
+        assertEquals(3, cache.get(query("dog"), 5).size());
+    }
+
+    @Test(timeout=SECOND)
+    public void testEvictsLeastRecentlyUsed() {
+        ResultCache probe = new ResultCache(1024 * 1024);
+        probe.put(query("a"), 10, results(10));
+        long entryBytes = probe.getUsedBytes();
+
+        // Room for exactly three entries of this size.
+        ResultCache cache = new ResultCache(3 * entryBytes);
+        cache.put(query("a"), 10, results(10));
+        cache.put(query("b"), 10, results(10));
+        cache.put(query("c"), 10, results(10));
+        assertNotNull(cache.get(query("a"), 10));
+
+        cache.put(query("d"), 10, results(10));
+        assertEquals(3, cache.size());
+        assertTrue(cache.getUsedBytes() <= 3 * entryBytes);
+        assertNull(cache.get(query("b"), 10));
+        assertNotNull(cache.get(query("a"), 10));
+        assertNotNull(cache.get(query("c"), 10));
+        assertNotNull(cache.get(query("d"), 10));
+    }
+
+    @Test(timeout=SECOND)
+    public void testOversizedResultsAreNotCached() {
+        ResultCache cache = new ResultCache(100);
+        cache.put(query("a"), 1000, results(1000));
+        assertEquals(0, cache.size());
+        assertEquals(0L, cache.getUsedBytes());
+    }
+
+    @Test(timeout=SECOND)
+    public void testClear() {
+        ResultCache cache = new ResultCache(1024 * 1024);
+        cache.put(query("a"), 10, results(2));
+        cache.put(query("b"), 10, results(2));
+        cache.clear();
+        assertEquals(0, cache.size());
+        assertEquals(0L, cache.getUsedBytes());
+        assertNull(cache.get(query("a"), 10));
+    }
+}
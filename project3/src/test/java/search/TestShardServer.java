@@ -0,0 +1,94 @@
+package search;
+
+import datastructures.concrete.ChainedHashSet;
+import datastructures.concrete.DoubleLinkedList;
+import datastructures.interfaces.IList;
+import datastructures.interfaces.ISet;
+import misc.BaseTest;
+import org.junit.Test;
+import search.analyzers.BooleanQuery;
+import search.models.Result;
+import search.models.Webpage;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.util.Random;
+
+import static org.junit.Assert.assertTrue;
+
+public class TestShardServer extends BaseTest {
+    private IList<String> strToIList(String input) {
+        IList<String> output = new DoubleLinkedList<>();
+        for (String word : input.split(" ")) {
+            output.add(word);
+        }
+        return output;
+    }
+
+    @Test(timeout=20 * SECOND)
+    public void testMatchesInProcessShards() throws IOException {
+        int numShards = 3;
+        ISet<Webpage> pages = RandomCorpus.makePages(300, new Random(11));
+        ShardedSearchEngine local = new ShardedSearchEngine(pages, numShards);
+
+        ShardServer[] servers = new ShardServer[numShards];
+        IList<InetSocketAddress> addresses = new DoubleLinkedList<>();
+        try {
+            for (int shard = 0; shard < numShards; shard++) {
+                ISet<Webpage> shardPages = new ChainedHashSet<>();
+                for (Webpage page : pages) {
+                    if (ShardedSearchEngine.findShard(page.getUri(), numShards) == shard) {
+                        shardPages.add(page);
+                    }
+                }
+                servers[shard] = new ShardServer(shardPages, 0);
+                addresses.add(new InetSocketAddress("localhost", servers[shard].getPort()));
+            }
+
+            try (ShardCoordinator coordinator = new ShardCoordinator(addresses, 5000)) {
+                for (String query : new String[] {"seattle", "island ferry", "unknown", "cat cat dog"}) {
+                    for (int k : new int[] {0, 1, 10, 300}) {
+                        RandomCorpus.assertSameResults(
+                                local.getTopKResults(this.strToIList(query), k),
+                                coordinator.getTopKResults(this.strToIList(query), new DoubleLinkedList<>(), k));
+                    }
+                }
+
+                IList<IList<String>> phrases = new DoubleLinkedList<>();
+                phrases.add(this.strToIList("seattle dog"));
+                RandomCorpus.assertSameResults(
+                        local.getTopKResults(this.strToIList("seattle dog"), phrases, 10),
+                        coordinator.getTopKResults(this.strToIList("seattle dog"), phrases, 10));
+
+                for (String query : new String[] {"(seattle OR island) NOT rain", "seattle AND", "NOT cat"}) {
+                    BooleanQuery booleanQuery = BooleanQuery.parse(query);
+                    RandomCorpus.assertSameResults(
+                            local.getTopKResults(booleanQuery, 10),
+                            coordinator.getTopKResults(booleanQuery, 10));
+                }
+
+                // A shard that goes away is left out, rather than failing the query.
+                servers[1].close();
+                IList<Result> results = coordinator.getTopKResults(this.strToIList("seattle"), new DoubleLinkedList<>(), 300);
+                IList<Result> all = local.getTopKResults(this.strToIList("seattle"), 300);
+                int expected = 0;
+                for (Result result : all) {
+                    if (ShardedSearchEngine.findShard(result.getUri(), numShards) != 1) {
+                        expected++;
+                    }
+                }
+                assertTrue(expected > 0);
+                assertEquals(expected, results.size());
+                for (Result result : results) {
+                    assertTrue(ShardedSearchEngine.findShard(result.getUri(), numShards) != 1);
+                }
+            }
+        } finally {
+            for (ShardServer server : servers) {
+                if (server != null) {
+                    server.close();
+                }
+            }
+        }
+    }
+}
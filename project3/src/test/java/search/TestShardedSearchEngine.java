@@ -0,0 +1,76 @@
+package search;
+
+import datastructures.concrete.DoubleLinkedList;
+import datastructures.interfaces.IList;
+import datastructures.interfaces.ISet;
+import misc.BaseTest;
+import org.junit.Test;
+import search.analyzers.BooleanQuery;
+import search.models.Result;
+import search.models.Webpage;
+import search.models.WebpageSummary;
+
+import java.net.URI;
+import java.util.Random;
+
+import static org.junit.Assert.assertTrue;
+
+public class TestShardedSearchEngine extends BaseTest {
+    public static final double DELTA = 0.000000001;
+
+    private IList<String> strToIList(String input) {
+        IList<String> output = new DoubleLinkedList<>();
+        for (String word : input.split(" ")) {
+            output.add(word);
+        }
+        return output;
+    }
+
+    @Test(timeout=10 * SECOND)
+    public void testMatchesUnsharded() {
+        ISet<Webpage> pages = RandomCorpus.makePages(300, new Random(7));
+        IndexSnapshot unsharded = RandomCorpus.makeSnapshot(pages);
+        String[] queries = {"seattle", "seattle dog", "island ferry ferry", "lake unknown", "unknown"};
+
+        for (int numShards : new int[] {1, 3, 4}) {
+            ShardedSearchEngine engine = new ShardedSearchEngine(pages, numShards);
+            assertEquals(numShards, engine.numShards());
+            for (String query : queries) {
+                for (int k : new int[] {0, 1, 10, 300, Integer.MAX_VALUE}) {
+                    IList<Result> expected = SearchEngine.computeTopKResults(
+                            unsharded, this.strToIList(query), new DoubleLinkedList<>(), k);
+                    RandomCorpus.assertSameResults(expected, engine.getTopKResults(this.strToIList(query), k));
+                }
+            }
+
+            BooleanQuery booleanQuery = BooleanQuery.parse("(seattle OR island) NOT lake");
+            int[] matches = booleanQuery.findMatches(unsharded.getInvertedIndex(), unsharded.getPositionalIndex());
+            IList<Result> expected = SearchEngine.scoreMatches(
+                    unsharded, booleanQuery.getPositiveWords(), matches, 10);
+            RandomCorpus.assertSameResults(expected, engine.getTopKResults(booleanQuery, 10));
+        }
+    }
+
+    @Test(timeout=SECOND)
+    public void testMergeTopK() {
+        IList<IList<Result>> lists = new DoubleLinkedList<>();
+        double[][] scores = {{0.9, 0.5, 0.1}, {}, {0.8, 0.7, 0.6, 0.0}, {0.95}};
+        for (double[] list : scores) {
+            IList<Result> results = new DoubleLinkedList<>();
+            for (double score : list) {
+                URI uri = URI.create("http://example.com/" + score + ".html");
+                results.add(new Result(new WebpageSummary(uri, "title", "blurb"), score));
+            }
+            lists.add(results);
+        }
+
+        IList<Result> merged = ShardedSearchEngine.mergeTopK(lists, 5);
+        double[] expected = {0.95, 0.9, 0.8, 0.7, 0.6};
+        assertEquals(expected.length, merged.size());
+        for (int i = 0; i < expected.length; i++) {
+            assertEquals(expected[i], merged.get(i).getScore(), DELTA);
+        }
+        assertEquals(8, ShardedSearchEngine.mergeTopK(lists, 100).size());
+        assertTrue(ShardedSearchEngine.mergeTopK(lists, 0).isEmpty());
+    }
+}
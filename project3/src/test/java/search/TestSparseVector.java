@@ -0,0 +1,39 @@
+package search;
+
+import misc.BaseTest;
+import org.junit.Test;
+import search.analyzers.SparseVector;
+
+public class TestSparseVector extends BaseTest {
+    public static final double DELTA = 0.000001;
+
+    @Test(timeout=SECOND)
+    public void testDotMergesMatchingTerms() {
+        SparseVector a = new SparseVector(new int[] {1, 4, 7, 9}, new double[] {1.0, 2.0, 3.0, 4.0});
+        SparseVector b = new SparseVector(new int[] {0, 4, 9, 12}, new double[] {5.0, 0.5, 2.0, 8.0});
+
+        assertEquals(1.0 + 8.0, a.dot(b), DELTA);
+        assertEquals(a.dot(b), b.dot(a), DELTA);
+    }
+
+    @Test(timeout=SECOND)
+    public void testDotWithNoOverlapIsZero() {
+        SparseVector a = new SparseVector(new int[] {1, 3}, new double[] {1.0, 2.0});
+        SparseVector b = new SparseVector(new int[] {2, 4}, new double[] {1.0, 2.0});
+        SparseVector empty = new SparseVector(new int[0], new double[0]);
+
+        assertEquals(0.0, a.dot(b), DELTA);
+        assertEquals(0.0, a.dot(empty), DELTA);
+    }
+
+    @Test(timeout=SECOND)
+    public void testNorm() {
+        SparseVector a = new SparseVector(new int[] {2, 5}, new double[] {3.0, 4.0});
+        assertEquals(5.0, a.norm(), DELTA);
+    }
+
+    @Test(timeout=SECOND, expected=IllegalArgumentException.class)
+    public void testMismatchedArraysThrow() {
+        new SparseVector(new int[] {1, 2}, new double[] {1.0});
+    }
+}
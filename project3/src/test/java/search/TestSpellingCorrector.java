@@ -0,0 +1,159 @@
+package search;
+
+import datastructures.concrete.ChainedHashSet;
+import datastructures.concrete.DoubleLinkedList;
+import datastructures.interfaces.IList;
+import datastructures.interfaces.ISet;
+import misc.BaseTest;
+import org.junit.Test;
+import search.analyzers.InvertedIndex;
+import search.analyzers.SpellingCorrector;
+import search.analyzers.TermDictionary;
+import search.analyzers.TfIdfAnalyzer;
+import search.models.Webpage;
+
+import java.net.URI;
+import java.util.Random;
+
+import static org.junit.Assert.assertNull;
+
+public class TestSpellingCorrector extends BaseTest {
+    private Webpage buildPage(int name, IList<String> words) {
+        return new Webpage(
+                URI.create("http://example.com/" + name + ".html"),
+                new DoubleLinkedList<>(),
+                words,
+                "title",
+                "blurb");
+    }
+
+    private IList<String> strToIList(String input) {
+        IList<String> output = new DoubleLinkedList<>();
+        for (String word : input.split(" ")) {
+            output.add(word);
+        }
+        return output;
+    }
+
+    @Test(timeout=SECOND)
+    public void testBasic() {
+        ISet<Webpage> pages = new ChainedHashSet<>();
+        pages.add(this.buildPage(0, this.strToIList("seattle weather is rainy")));
+        pages.add(this.buildPage(1, this.strToIList("seattle weather is sunny")));
+        pages.add(this.buildPage(2, this.strToIList("whether or not")));
+        TfIdfAnalyzer tfIdf = new TfIdfAnalyzer(pages);
+        SpellingCorrector corrector = new SpellingCorrector(tfIdf.getTerms(), new InvertedIndex(tfIdf));
+
+        assertEquals("seattle", corrector.correct("seattle"));
+        assertEquals("seattle", corrector.correct("seatle"));
+        assertEquals("seattle", corrector.correct("saettle"));
+        assertEquals("seattle", corrector.correct("seattlexx"));
+        // Both are one edit away, but "weather" is found in more pages.
+        assertEquals("weather", corrector.correct("wether"));
+        assertEquals("rainy", corrector.correct("rainey"));
+        assertNull(corrector.correct("completely"));
+        assertNull(corrector.correct("seaxxxxx"));
+    }
+
+    @Test(timeout=10 * SECOND)
+    public void testMatchesBruteForce() {
+        Random random = new Random(41);
+        ISet<Webpage> pages = new ChainedHashSet<>();
+        for (int page = 0; page < 200; page++) {
+            IList<String> words = new DoubleLinkedList<>();
+            for (int i = 0; i < 10; i++) {
+                words.add(this.randomWord(random, 1 + random.nextInt(10)));
+            }
+            pages.add(this.buildPage(page, words));
+        }
+        TfIdfAnalyzer tfIdf = new TfIdfAnalyzer(pages);
+        InvertedIndex index = new InvertedIndex(tfIdf);
+        TermDictionary terms = tfIdf.getTerms();
+        SpellingCorrector corrector = new SpellingCorrector(terms, index);
+
+        for (int trial = 0; trial < 500; trial++) {
+            String word;
+            if (trial % 2 == 0) {
+                // Mangle a real word, so there is usually a correction to find.
+                word = this.mutate(random, terms.getTerm(random.nextInt(terms.size())));
+            } else {
+                word = this.randomWord(random, 1 + random.nextInt(10));
+            }
+
+            String expected = null;
+            int expectedDistance = SpellingCorrector.MAX_EDIT_DISTANCE + 1;
+            int expectedFrequency = 0;
+            for (int term = 0; term < terms.size(); term++) {
+                String candidate = terms.getTerm(term);
+                int distance = this.editDistance(word, candidate);
+                int frequency = index.getPostings(term).length;
+                if (distance < expectedDistance
+                        || (distance == expectedDistance && distance <= SpellingCorrector.MAX_EDIT_DISTANCE
+                            && (frequency > expectedFrequency
+                                || (frequency == expectedFrequency && candidate.compareTo(expected) < 0)))) {
+                    expected = candidate;
+                    expectedDistance = distance;
+                    expectedFrequency = frequency;
+                }
+            }
+            assertEquals(word, expected, corrector.correct(word));
+        }
+    }
+
+    private String randomWord(Random random, int length) {
+        StringBuilder word = new StringBuilder();
+        for (int i = 0; i < length; i++) {
+            word.append((char) ('a' + random.nextInt(5)));
+        }
+        return word.toString();
+    }
+
+    private String mutate(Random random, String word) {
+        StringBuilder output = new StringBuilder(word);
+        int edits = 1 + random.nextInt(3);
+        for (int i = 0; i < edits; i++) {
+            int position = random.nextInt(output.length() + 1);
+            char c = (char) ('a' + random.nextInt(5));
+            switch (random.nextInt(4)) {
+                case 0:
+                    output.insert(position, c);
+                    break;
+                case 1:
+                    if (position < output.length() && output.length() > 1) {
+                        output.deleteCharAt(position);
+                    }
+                    break;
+                case 2:
+                    if (position < output.length()) {
+                        output.setCharAt(position, c);
+                    }
+                    break;
+                default:
+                    if (position + 1 < output.length()) {
+                        char first = output.charAt(position);
+                        output.setCharAt(position, output.charAt(position + 1));
+                        output.setCharAt(position + 1, first);
+                    }
+            }
+        }
+        return output.toString();
+    }
+
+    private int editDistance(String a, String b) {
+        int[][] table = new int[a.length() + 1][b.length() + 1];
+        for (int i = 0; i <= a.length(); i++) {
+            for (int j = 0; j <= b.length(); j++) {
+                if (i == 0 || j == 0) {
+                    table[i][j] = i + j;
+                    continue;
+                }
+                int cost = a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1;
+                table[i][j] = Math.min(Math.min(table[i - 1][j] + 1, table[i][j - 1] + 1), table[i - 1][j - 1] + cost);
+                if (i > 1 && j > 1 && a.charAt(i - 1) == b.charAt(j - 2) && a.charAt(i - 2) == b.charAt(j - 1)) {
+                    table[i][j] = Math.min(table[i][j], table[i - 2][j - 2] + 1);
+                }
+            }
+        }
+        return table[a.length()][b.length()];
+    }
+}
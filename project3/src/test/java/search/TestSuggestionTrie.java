@@ -0,0 +1,141 @@
+package search;
+
+import datastructures.concrete.ChainedHashSet;
+import datastructures.concrete.DoubleLinkedList;
+import datastructures.interfaces.IList;
+import datastructures.interfaces.ISet;
+import misc.BaseTest;
+import org.junit.Test;
+import search.analyzers.InvertedIndex;
+import search.analyzers.SuggestionTrie;
+import search.analyzers.TfIdfAnalyzer;
+import search.models.Webpage;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeSet;
+
+import static org.junit.Assert.fail;
+
+public class TestSuggestionTrie extends BaseTest {
+    private Webpage buildPage(int name, IList<String> words) {
+        return new Webpage(
+                URI.create("http://example.com/" + name + ".html"),
+                new DoubleLinkedList<>(),
+                words,
+                "title",
+                "blurb");
+    }
+
+    private IList<String> strToIList(String input) {
+        IList<String> output = new DoubleLinkedList<>();
+        for (String word : input.split(" ")) {
+            output.add(word);
+        }
+        return output;
+    }
+
+    private SuggestionTrie makeTrie(ISet<Webpage> pages) {
+        TfIdfAnalyzer tfIdf = new TfIdfAnalyzer(pages);
+        return new SuggestionTrie(tfIdf.getTerms(), new InvertedIndex(tfIdf));
+    }
+
+    @Test(timeout=SECOND)
+    public void testBasic() {
+        ISet<Webpage> pages = new ChainedHashSet<>();
+        pages.add(this.buildPage(0, this.strToIList("seattle sea seal")));
+        pages.add(this.buildPage(1, this.strToIList("seattle sea")));
+        pages.add(this.buildPage(2, this.strToIList("seattle dog")));
+        SuggestionTrie trie = this.makeTrie(pages);
+
+        IList<String> suggestions = trie.suggest("se", 10);
+        assertEquals(3, suggestions.size());
+        assertEquals("seattle", suggestions.get(0));
+        assertEquals("sea", suggestions.get(1));
+        assertEquals("seal", suggestions.get(2));
+
+        assertEquals(1, trie.suggest("seattle", 10).size());
+        assertEquals(2, trie.suggest("se", 2).size());
+        assertEquals(0, trie.suggest("seattles", 10).size());
+        assertEquals(0, trie.suggest("cat", 10).size());
+        assertEquals(0, trie.suggest("se", 0).size());
+        assertEquals(4, trie.suggest("", 10).size());
+    }
+
+    @Test(timeout=SECOND)
+    public void testInvalidLimit() {
+        ISet<Webpage> pages = new ChainedHashSet<>();
+        pages.add(this.buildPage(0, this.strToIList("cat")));
+        SuggestionTrie trie = this.makeTrie(pages);
+        try {
+            trie.suggest("c", SuggestionTrie.MAX_SUGGESTIONS + 1);
+            fail("Expected IllegalArgumentException");
+        } catch (IllegalArgumentException ex) {
+            // Do nothing: this is ok
+        }
+    }
+
+    @Test(timeout=10 * SECOND)
+    public void testMatchesBruteForce() {
+        Random random = new Random(29);
+        List<String> vocabulary = new ArrayList<>();
+        for (int i = 0; i < 2000; i++) {
+            StringBuilder word = new StringBuilder();
+            int length = 1 + random.nextInt(6);
+            for (int j = 0; j < length; j++) {
+                word.append((char) ('a' + random.nextInt(4)));
+            }
+            vocabulary.add(word.toString());
+        }
+
+        ISet<Webpage> pages = new ChainedHashSet<>();
+        List<ISet<String>> contents = new ArrayList<>();
+        for (int page = 0; page < 300; page++) {
+            IList<String> words = new DoubleLinkedList<>();
+            ISet<String> distinct = new ChainedHashSet<>();
+            for (int i = 0; i < 20; i++) {
+                // Skew towards the start of the vocabulary, so frequencies differ.
+                String word = vocabulary.get((int) (vocabulary.size() * Math.pow(random.nextDouble(), 3)));
+                words.add(word);
+                distinct.add(word);
+            }
+            pages.add(this.buildPage(page, words));
+            contents.add(distinct);
+        }
+        SuggestionTrie trie = this.makeTrie(pages);
+
+        String[] prefixes = {"", "a", "b", "ab", "cd", "abc", "dddd", "abcdab", "abcdabc", "e"};
+        for (String prefix : prefixes) {
+            List<String> expected = new ArrayList<>();
+            for (String word : new TreeSet<>(vocabulary)) {
+                if (word.startsWith(prefix) && this.countPages(contents, word) > 0) {
+                    expected.add(word);
+                }
+            }
+            expected.sort((a, b) -> {
+                int byFrequency = Integer.compare(this.countPages(contents, b), this.countPages(contents, a));
+                return byFrequency != 0 ? byFrequency : a.compareTo(b);
+            });
+
+            for (int limit = 0; limit <= SuggestionTrie.MAX_SUGGESTIONS; limit++) {
+                IList<String> actual = trie.suggest(prefix, limit);
+                assertEquals(Math.min(limit, expected.size()), actual.size());
+                for (int i = 0; i < actual.size(); i++) {
+                    assertEquals(expected.get(i), actual.get(i));
+                }
+            }
+        }
+    }
+
+    private int countPages(List<ISet<String>> contents, String word) {
+        int count = 0;
+        for (ISet<String> page : contents) {
+            if (page.contains(word)) {
+                count++;
+            }
+        }
+        return count;
+    }
+}
@@ -0,0 +1,95 @@
+package search;
+
+import misc.BaseTest;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import search.misc.TemplateCache;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class TestTemplateCache extends BaseTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private Map<String, Object> model(String name) {
+        Map<String, Object> model = new HashMap<>();
+        model.put("name", name);
+        return model;
+    }
+
+    private void write(File file, String contents, long lastModified) throws IOException {
+        Files.write(file.toPath(), contents.getBytes(StandardCharsets.UTF_8));
+        assertTrue(file.setLastModified(lastModified));
+    }
+
+    @Test(timeout=SECOND)
+    public void testRendersFromClasspath() {
+        TemplateCache templates = new TemplateCache("webapp/templates", null, "main.mustache");
+        assertFalse(templates.isDevMode());
+
+        Map<String, Object> model = new HashMap<>();
+        model.put("siteTitle", "Noodle");
+        String first = templates.render("main.mustache", model);
+        assertTrue(first.contains("<title>Noodle Search Engine</title>"));
+
+        // The buffer is reused, but earlier output is left alone.
+        model.put("siteTitle", "Other");
+        String second = templates.render("main.mustache", model);
+        assertTrue(first.contains("Noodle"));
+        assertTrue(second.contains("Other"));
+        assertFalse(second.contains("Noodle"));
+    }
+
+    @Test(timeout=SECOND)
+    public void testUnknownTemplate() {
+        TemplateCache templates = new TemplateCache("webapp/templates", null, "main.mustache");
+        try {
+            templates.render("search.mustache", new HashMap<>());
+            fail("Expected IllegalArgumentException");
+        } catch (IllegalArgumentException ex) {
+            // Do nothing: this is ok
+        }
+    }
+
+    @Test(timeout=SECOND)
+    public void testDevModeReloadsChangedTemplates() throws IOException {
+        File root = this.folder.getRoot();
+        File template = new File(root, "page.mustache");
+        File partial = new File(root, "part.mustache");
+        // Later than the folder itself, which was just created.
+        long time = System.currentTimeMillis() + 10_000;
+        this.write(template, "Hello {{name}}! {{> part}}", time);
+        this.write(partial, "(v1)", time);
+
+        TemplateCache templates = new TemplateCache("unused", root.getPath(), "page.mustache");
+        assertTrue(templates.isDevMode());
+        assertEquals("Hello Ann! (v1)", templates.render("page.mustache", this.model("Ann")));
+
+        this.write(template, "Bye {{name}}! {{> part}}", time + 1000);
+        assertEquals("Bye Ann! (v1)", templates.render("page.mustache", this.model("Ann")));
+
+        // Changing a partial is noticed too.
+        this.write(partial, "(v2)", time + 2000);
+        assertEquals("Bye Bob! (v2)", templates.render("page.mustache", this.model("Bob")));
+    }
+
+    @Test(timeout=SECOND)
+    public void testWithoutDevModeTemplatesAreKept() throws IOException {
+        // Edits to the templates on disk don't matter once they are compiled.
+        TemplateCache templates = new TemplateCache("webapp/templates", null, "main.mustache");
+        Map<String, Object> model = new HashMap<>();
+        model.put("siteTitle", "Noodle");
+        String before = templates.render("main.mustache", model);
+        assertEquals(before, templates.render("main.mustache", model));
+    }
+}
@@ -135,4 +135,21 @@ public class TestTfIdfAnalyzer extends BaseTest {
                 analyzer.computeRelevance(query, URI.create("http://example.com/fake-page-c.html")),
                 DELTA);
     }
+
+    @Test(timeout=SECOND)
+    public void testPreparedQueryAgainstSpecExample() {
+        TfIdfAnalyzer analyzer = this.makeExampleAnalyzer();
+        TfIdfAnalyzer.PreparedQuery prepared = analyzer.prepareQuery(strToIList("cat 1 the"));
+        URI documentA = URI.create("http://example.com/fake-page-a.html");
+        URI documentB = URI.create("http://example.com/fake-page-b.html");
+        URI documentC = URI.create("http://example.com/fake-page-c.html");
+
+        // The same query as testSpecExampleAgainstQuery, in a different order. A prepared
+        // query can be reused, for documents in any order.
+        for (int round = 0; round < 2; round++) {
+            assertEquals(0.283389, prepared.computeRelevance(documentC), DELTA);
+            assertEquals(0.353553, prepared.computeRelevance(documentA), DELTA);
+            assertEquals(0.0, prepared.computeRelevance(documentB), DELTA);
+        }
+    }
 }
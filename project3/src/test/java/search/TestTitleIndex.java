@@ -0,0 +1,148 @@
+package search;
+
+import datastructures.concrete.ChainedHashSet;
+import datastructures.concrete.DoubleLinkedList;
+import datastructures.interfaces.IList;
+import datastructures.interfaces.ISet;
+import misc.BaseTest;
+import org.junit.Test;
+import search.analyzers.InvertedIndex;
+import search.analyzers.TitleIndex;
+import search.models.Result;
+import search.models.Webpage;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertTrue;
+
+public class TestTitleIndex extends BaseTest {
+    public static final double DELTA = 0.000000001;
+
+    private IList<String> strToIList(String input) {
+        IList<String> output = new DoubleLinkedList<>();
+        for (String word : input.split(" ")) {
+            output.add(word);
+        }
+        return output;
+    }
+
+    private Webpage makePage(int page, String body, String title) {
+        return new Webpage(RandomCorpus.uri(page), new DoubleLinkedList<>(), this.strToIList(body), title, "blurb");
+    }
+
+    @Test(timeout=SECOND)
+    public void testTitleScores() {
+        ISet<Webpage> pages = new ChainedHashSet<>();
+        pages.add(this.makePage(0, "seattle times news", "The Seattle Times"));
+        pages.add(this.makePage(1, "seattle rain", "Seattle weather"));
+        pages.add(this.makePage(2, "times square", "New York"));
+        pages.add(this.makePage(3, "other words", "Nothing here"));
+        IndexSnapshot snapshot = RandomCorpus.makeSnapshot(pages);
+        TitleIndex titles = snapshot.getTitleIndex();
+        InvertedIndex index = snapshot.getInvertedIndex();
+        int seattleTimes = index.getDocumentId(RandomCorpus.uri(0));
+        int seattleWeather = index.getDocumentId(RandomCorpus.uri(1));
+
+        assertEquals(1, titles.getPostings("times").length);
+        assertEquals(2, titles.getPostings("seattle").length);
+        assertEquals(0, titles.getPostings("unknown").length);
+
+        TitleIndex.Matches matches = titles.findMatches(this.strToIList("seattle times"));
+        assertEquals(2, matches.size());
+        assertEquals(1.0, matches.findScore(seattleTimes), DELTA);
+        // "seattle" and "times" are equally common in the bodies, so each is worth half.
+        assertEquals(0.5, matches.findScore(seattleWeather), DELTA);
+        assertEquals(0.0, matches.findScore(index.getDocumentId(RandomCorpus.uri(3))), DELTA);
+
+        // Repeating a word doesn't change anything, and words found in no body are ignored.
+        TitleIndex.Matches repeated = titles.findMatches(this.strToIList("seattle seattle times new"));
+        assertEquals(1.0, repeated.findScore(seattleTimes), DELTA);
+        assertEquals(0.5, repeated.findScore(seattleWeather), DELTA);
+    }
+
+    @Test(timeout=SECOND)
+    public void testNoMatches() {
+        ISet<Webpage> pages = new ChainedHashSet<>();
+        pages.add(this.makePage(0, "seattle times", "Seattle"));
+        pages.add(this.makePage(1, "rain", ""));
+        TitleIndex titles = RandomCorpus.makeSnapshot(pages).getTitleIndex();
+
+        assertEquals(0, titles.findMatches(this.strToIList("unknown")).size());
+        assertEquals(0, titles.findMatches(new DoubleLinkedList<>()).size());
+        assertEquals(0, titles.findMatches(this.strToIList("times")).size());
+    }
+
+    @Test(timeout=SECOND)
+    public void testTitleMatchRanksFirst() {
+        ISet<Webpage> pages = new ChainedHashSet<>();
+        pages.add(this.makePage(0, "coffee coffee coffee coffee seattle", "A guide"));
+        pages.add(this.makePage(1, "ferry seattle coffee rain", "Seattle Coffee Company"));
+        pages.add(this.makePage(2, "rain", "Rain"));
+        IndexSnapshot snapshot = RandomCorpus.makeSnapshot(pages);
+        IList<String> query = this.strToIList("seattle coffee");
+
+        double originalBoost = SearchEngine.TITLE_BOOST;
+        try {
+            SearchEngine.TITLE_BOOST = 0.0;
+            IList<Result> bodyOnly = SearchEngine.computeTopKResults(snapshot, query, new DoubleLinkedList<>(), 3);
+            assertEquals(2, bodyOnly.size());
+            assertEquals(RandomCorpus.uri(0), bodyOnly.get(0).getUri());
+
+            SearchEngine.TITLE_BOOST = 0.5;
+            IList<Result> results = SearchEngine.computeTopKResults(snapshot, query, new DoubleLinkedList<>(), 3);
+            assertEquals(2, results.size());
+            assertEquals(RandomCorpus.uri(1), results.get(0).getUri());
+        } finally {
+            SearchEngine.TITLE_BOOST = originalBoost;
+        }
+    }
+
+    private void checkAgainstExhaustiveScoring(SearchEngine.Ranking ranking) {
+        SearchEngine.Ranking originalRanking = SearchEngine.RANKING;
+        SearchEngine.RANKING = ranking;
+        try {
+            Random random = new Random(11);
+            ISet<Webpage> pages = RandomCorpus.makePages(150, random);
+            IndexSnapshot snapshot = RandomCorpus.makeSnapshot(pages);
+            InvertedIndex index = snapshot.getInvertedIndex();
+
+            for (int trial = 0; trial < 100; trial++) {
+                IList<String> query = RandomCorpus.randomQuery(random);
+                int k = 1 + random.nextInt(10);
+
+                // Score every page containing a query word, in body or title, the slow way.
+                TitleIndex.Matches titles = snapshot.getTitleIndex().findMatches(query);
+                double[] expected = new double[index.size()];
+                for (int id = 0; id < index.size(); id++) {
+                    double relevance = ranking == SearchEngine.Ranking.BM25
+                            ? snapshot.getBm25Analyzer().prepareQuery(query).computeRelevance(id)
+                            : snapshot.getTfIdfAnalyzer().prepareQuery(query).computeRelevance(id);
+                    double blended = relevance + SearchEngine.TITLE_BOOST * titles.findScore(id);
+                    expected[id] = blended * snapshot.getImpactIndex().getPageRankFactor(id);
+                }
+
+                IList<Result> results = SearchEngine.computeTopKResults(snapshot, query, new DoubleLinkedList<>(), k);
+                int[] documentIds = new int[results.size()];
+                double[] scores = new double[results.size()];
+                for (int rank = 0; rank < results.size(); rank++) {
+                    documentIds[rank] = index.getDocumentId(results.get(rank).getUri());
+                    scores[rank] = results.get(rank).getScore();
+                    assertTrue(scores[rank] > 0.0);
+                }
+                RandomCorpus.assertTopScores(expected, documentIds, scores);
+            }
+        } finally {
+            SearchEngine.RANKING = originalRanking;
+        }
+    }
+
+    @Test(timeout=10 * SECOND)
+    public void testMatchesExhaustiveScoringTfIdf() {
+        this.checkAgainstExhaustiveScoring(SearchEngine.Ranking.TF_IDF);
+    }
+
+    @Test(timeout=10 * SECOND)
+    public void testMatchesExhaustiveScoringBm25() {
+        this.checkAgainstExhaustiveScoring(SearchEngine.Ranking.BM25);
+    }
+}
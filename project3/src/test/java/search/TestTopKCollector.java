@@ -0,0 +1,137 @@
+package search;
+
+import misc.BaseTest;
+import org.junit.Test;
+import search.analyzers.TopKCollector;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.fail;
+import static org.junit.Assert.assertTrue;
+
+public class TestTopKCollector extends BaseTest {
+    public static final double DELTA = 0.000001;
+
+    @Test(timeout=SECOND)
+    public void testKeepsBestK() {
+        TopKCollector collector = new TopKCollector(3);
+        double[] scores = {0.5, 0.1, 0.9, 0.3, 0.7, 0.2};
+        for (int i = 0; i < scores.length; i++) {
+            collector.collect(i, scores[i]);
+        }
+        collector.sort();
+
+        assertEquals(3, collector.size());
+        assertEquals(2, collector.getDocumentId(0));
+        assertEquals(4, collector.getDocumentId(1));
+        assertEquals(0, collector.getDocumentId(2));
+        assertEquals(0.9, collector.getScore(0), DELTA);
+        assertEquals(0.5, collector.getScore(2), DELTA);
+    }
+
+    @Test(timeout=SECOND)
+    public void testThreshold() {
+        TopKCollector collector = new TopKCollector(2);
+        assertEquals(Double.NEGATIVE_INFINITY, collector.getThreshold(), DELTA);
+        assertTrue(collector.collect(0, 0.4));
+        assertEquals(Double.NEGATIVE_INFINITY, collector.getThreshold(), DELTA);
+        assertTrue(collector.collect(1, 0.6));
+        assertEquals(0.4, collector.getThreshold(), DELTA);
+
+        assertFalse(collector.collect(2, 0.4));
+        assertFalse(collector.collect(3, 0.1));
+        assertTrue(collector.collect(4, 0.5));
+        assertEquals(0.5, collector.getThreshold(), DELTA);
+    }
+
+    @Test(timeout=SECOND)
+    public void testFewerThanK() {
+        TopKCollector collector = new TopKCollector(10);
+        collector.collect(7, 0.2);
+        collector.collect(3, 0.8);
+        collector.sort();
+        assertEquals(2, collector.size());
+        assertEquals(3, collector.getDocumentId(0));
+        assertEquals(7, collector.getDocumentId(1));
+    }
+
+    @Test(timeout=SECOND)
+    public void testZeroCapacity() {
+        TopKCollector collector = new TopKCollector(0);
+        assertFalse(collector.collect(0, 1.0));
+        collector.sort();
+        assertEquals(0, collector.size());
+    }
+
+    @Test(timeout=SECOND)
+    public void testHugeK() {
+        // Far more than will ever be collected: nothing is allocated up front for it.
+        TopKCollector collector = new TopKCollector(Integer.MAX_VALUE);
+        assertEquals(Integer.MAX_VALUE, collector.capacity());
+        for (int i = 0; i < 1000; i++) {
+            assertTrue(collector.collect(i, i % 7));
+            assertEquals(Double.NEGATIVE_INFINITY, collector.getThreshold(), DELTA);
+        }
+        collector.sort();
+        assertEquals(1000, collector.size());
+        for (int i = 1; i < collector.size(); i++) {
+            assertTrue(collector.getScore(i) <= collector.getScore(i - 1));
+        }
+        assertEquals(6.0, collector.getScore(0), DELTA);
+        assertEquals(0.0, collector.getScore(999), DELTA);
+    }
+
+    @Test(timeout=SECOND)
+    public void testMatchesSorting() {
+        Random random = new Random(12);
+        double[] scores = new double[10000];
+        TopKCollector collector = new TopKCollector(100);
+        for (int i = 0; i < scores.length; i++) {
+            scores[i] = random.nextDouble();
+            collector.collect(i, scores[i]);
+        }
+        collector.sort();
+
+        double[] sorted = scores.clone();
+        Arrays.sort(sorted);
+        for (int i = 0; i < collector.size(); i++) {
+            assertEquals(sorted[sorted.length - 1 - i], collector.getScore(i), DELTA);
+            assertEquals(scores[collector.getDocumentId(i)], collector.getScore(i), DELTA);
+        }
+    }
+
+    @Test(timeout=SECOND)
+    public void testErrorHandling() {
+        try {
+            new TopKCollector(-1);
+            fail("Expected IllegalArgumentException");
+        } catch (IllegalArgumentException ex) {
+            // Do nothing: this is ok
+        }
+
+        TopKCollector collector = new TopKCollector(2);
+        collector.collect(0, 1.0);
+        try {
+            collector.getScore(0);
+            fail("Expected IllegalStateException");
+        } catch (IllegalStateException ex) {
+            // Do nothing: this is ok
+        }
+
+        collector.sort();
+        try {
+            collector.getDocumentId(1);
+            fail("Expected IndexOutOfBoundsException");
+        } catch (IndexOutOfBoundsException ex) {
+            // Do nothing: this is ok
+        }
+        try {
+            collector.collect(1, 2.0);
+            fail("Expected IllegalStateException");
+        } catch (IllegalStateException ex) {
+            // Do nothing: this is ok
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package search;
+
+import misc.BaseTest;
+import org.eclipse.jetty.server.Server;
+import org.eclipse.jetty.server.ServerConnector;
+import org.eclipse.jetty.server.handler.AbstractHandler;
+import org.junit.Test;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class TestWebapp extends BaseTest {
+    private String fetch(URL url) throws IOException {
+        try (InputStream in = url.openStream()) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[1024];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                out.write(buffer, 0, read);
+            }
+            return new String(out.toByteArray(), StandardCharsets.UTF_8);
+        }
+    }
+
+    @Test(timeout=10 * SECOND)
+    public void testServerRunsOnGivenExecutor() throws Exception {
+        // The same factory that hands Jetty virtual threads, given ordinary named ones.
+        AtomicInteger suppliedExecutors = new AtomicInteger(0);
+        ExecutorService executor = Executors.newCachedThreadPool(task -> new Thread(task, "test-executor"));
+        Server server = Webapp.serverFactory(() -> {
+            suppliedExecutors.incrementAndGet();
+            return executor;
+        }).create(8, 2, 1000);
+        assertEquals(1, suppliedExecutors.get());
+
+        ServerConnector connector = new ServerConnector(server);
+        connector.setPort(0);
+        server.addConnector(connector);
+        server.setHandler(new AbstractHandler() {
+            @Override
+            public void handle(String target, org.eclipse.jetty.server.Request baseRequest,
+                               HttpServletRequest request, HttpServletResponse response) throws IOException {
+                response.getWriter().print(Thread.currentThread().getName());
+                baseRequest.setHandled(true);
+            }
+        });
+
+        server.start();
+        try {
+            URL url = new URL("http://localhost:" + connector.getLocalPort() + "/");
+            assertEquals("test-executor", this.fetch(url));
+            assertEquals("test-executor", this.fetch(url));
+        } finally {
+            server.stop();
+            executor.shutdownNow();
+        }
+    }
+}
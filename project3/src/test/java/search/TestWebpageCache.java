@@ -0,0 +1,132 @@
+package search;
+
+import datastructures.concrete.DoubleLinkedList;
+import datastructures.interfaces.IList;
+import misc.BaseTest;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import search.models.Webpage;
+import search.models.WebpageCache;
+
+import java.io.IOException;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class TestWebpageCache extends BaseTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private Webpage buildPage(String name, String words, String... linksTo) {
+        IList<URI> links = new DoubleLinkedList<>();
+        for (String link : linksTo) {
+            links.add(URI.create("http://example.com/" + link + ".html"));
+        }
+        IList<String> wordList = new DoubleLinkedList<>();
+        for (String word : words.split(" ")) {
+            wordList.add(word);
+        }
+        return new Webpage(
+                URI.create("http://example.com/" + name + ".html"),
+                links,
+                wordList,
+                name + " title \u00e9",
+                name + " blurb\nwith a newline");
+    }
+
+    private <T> void assertListsEqual(IList<T> expected, IList<T> actual) {
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.get(i), actual.get(i));
+        }
+    }
+
+    @Test(timeout=SECOND)
+    public void testRoundTrip() throws IOException {
+        Webpage pageA = buildPage("a", "the mouse played with the cat", "b", "c", "b");
+        Webpage pageB = buildPage("b", "the quick brown fox", "a");
+
+        WebpageCache cache = new WebpageCache();
+        cache.put("a.html", 10, 1000, pageA);
+        cache.put("sub/b.html", 20, 2000, pageB);
+        Path file = this.folder.getRoot().toPath().resolve("corpus.pages");
+        cache.save(file);
+
+        WebpageCache loaded = WebpageCache.load(file);
+        assertEquals(2, loaded.size());
+
+        Webpage loadedA = loaded.get("a.html", 10, 1000);
+        assertEquals(pageA.getUri(), loadedA.getUri());
+        assertEquals(pageA.getSummary(), loadedA.getSummary());
+        assertListsEqual(pageA.getWords(), loadedA.getWords());
+        assertListsEqual(pageA.getLinks(), loadedA.getLinks());
+
+        Webpage loadedB = loaded.get("sub/b.html", 20, 2000);
+        assertListsEqual(pageB.getWords(), loadedB.getWords());
+        assertListsEqual(pageB.getLinks(), loadedB.getLinks());
+    }
+
+    @Test(timeout=SECOND)
+    public void testChangedFilesAreMisses() throws IOException {
+        WebpageCache cache = new WebpageCache();
+        cache.put("a.html", 10, 1000, buildPage("a", "word"));
+        Path file = this.folder.getRoot().toPath().resolve("corpus.pages");
+        cache.save(file);
+
+        WebpageCache loaded = WebpageCache.load(file);
+        assertNull(loaded.get("a.html", 11, 1000));
+        assertNull(loaded.get("a.html", 10, 1001));
+        assertNull(loaded.get("b.html", 10, 1000));
+    }
+
+    @Test(timeout=SECOND)
+    public void testMissingOrForeignFileIsEmpty() throws IOException {
+        Path root = this.folder.getRoot().toPath();
+        assertEquals(0, WebpageCache.load(root.resolve("missing.pages")).size());
+
+        Path other = root.resolve("other.pages");
+        Files.write(other, "not a cache file".getBytes());
+        assertEquals(0, WebpageCache.load(other).size());
+    }
+
+    @Test(timeout=5 * SECOND)
+    public void testHugeLengthIsCorrupt() throws IOException {
+        WebpageCache cache = new WebpageCache();
+        cache.put("a.html", 10, 1000, buildPage("a", "the mouse played with the cat", "b", "c"));
+        cache.put("b.html", 20, 2000, buildPage("b", "the quick brown fox", "a"));
+        Path file = this.folder.getRoot().toPath().resolve("corpus.pages");
+        cache.save(file);
+        byte[] original = Files.readAllBytes(file);
+
+        // A huge length anywhere past the header must be rejected rather than allocated.
+        int rejected = 0;
+        for (int start = 8; start < original.length - 4; start++) {
+            byte[] corrupt = original.clone();
+            ByteBuffer.wrap(corrupt).putInt(start, Integer.MAX_VALUE - 8);
+            Files.write(file, corrupt);
+            try {
+                WebpageCache.load(file);
+            } catch (IOException ex) {
+                rejected++;
+            }
+        }
+        assertTrue(rejected > 0);
+
+        // The word count comes right after the header.
+        byte[] corrupt = original.clone();
+        ByteBuffer.wrap(corrupt).putInt(8, Integer.MAX_VALUE - 8);
+        Files.write(file, corrupt);
+        try {
+            WebpageCache.load(file);
+            fail("Expected IOException");
+        } catch (IOException ex) {
+            // Do nothing: this is ok
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package search;
+
+import misc.BaseTest;
+import org.junit.Test;
+import search.misc.WordInterner;
+
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class TestWordInterner extends BaseTest {
+    private int add(WordInterner words, String word) {
+        // Pad the buffer, so only the first length characters may count.
+        char[] buffer = (word + "xyz").toCharArray();
+        return words.add(buffer, word.length());
+    }
+
+    @Test(timeout=SECOND)
+    public void testAssignsDenseIds() {
+        WordInterner words = new WordInterner();
+        assertEquals(0, this.add(words, "cat"));
+        assertEquals(1, this.add(words, "dog"));
+        assertEquals(0, this.add(words, "cat"));
+        assertEquals(2, this.add(words, "ca"));
+        assertEquals(3, this.add(words, ""));
+        assertEquals(4, words.size());
+
+        assertEquals("dog", words.getWord(1));
+        assertEquals("", words.getWord(3));
+        assertEquals(2, words.getId("ca"));
+        assertEquals(WordInterner.NOT_FOUND, words.getId("cats"));
+    }
+
+    @Test(timeout=SECOND)
+    public void testSameWordSameString() {
+        WordInterner words = new WordInterner();
+        String first = words.getWord(this.add(words, "seattle"));
+        String second = words.getWord(this.add(words, "seattle"));
+        assertTrue(first == second);
+    }
+
+    @Test(timeout=SECOND)
+    public void testManyWords() {
+        WordInterner words = new WordInterner();
+        for (int i = 0; i < 20000; i++) {
+            assertEquals(i, this.add(words, "word" + i));
+        }
+        // "Aa" and "BB" have the same hash code.
+        int colliding = this.add(words, "Aa");
+        assertEquals(colliding + 1, this.add(words, "BB"));
+        for (int i = 0; i < 20000; i++) {
+            assertEquals(i, this.add(words, "word" + i));
+            assertEquals(i, words.getId("word" + i));
+        }
+        assertEquals(colliding, words.getId("Aa"));
+        assertEquals(colliding + 1, words.getId("BB"));
+        assertEquals(20002, words.size());
+    }
+
+    @Test(timeout=SECOND)
+    public void testErrorHandling() {
+        WordInterner words = new WordInterner();
+        this.add(words, "cat");
+        try {
+            words.getWord(1);
+            fail("Expected IndexOutOfBoundsException");
+        } catch (IndexOutOfBoundsException ex) {
+            // Do nothing: this is ok
+        }
+        try {
+            words.getWord(-1);
+            fail("Expected IndexOutOfBoundsException");
+        } catch (IndexOutOfBoundsException ex) {
+            // Do nothing: this is ok
+        }
+    }
+}
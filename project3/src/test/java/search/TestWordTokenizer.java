@@ -0,0 +1,129 @@
+package search;
+
+import datastructures.concrete.DoubleLinkedList;
+import datastructures.interfaces.IList;
+import misc.BaseTest;
+import org.junit.Test;
+import search.misc.WordInterner;
+import search.misc.WordTokenizer;
+
+import java.util.Locale;
+import java.util.Random;
+
+import static org.junit.Assert.assertTrue;
+
+public class TestWordTokenizer extends BaseTest {
+    // The tokenizer as it used to be written: the scanning version must match it exactly.
+    private IList<String> extractWithRegex(String input) {
+        IList<String> out = new DoubleLinkedList<>();
+        for (String word : input.toLowerCase().split("\\s+")) {
+            word = word.replaceAll("\\p{Punct}", "");
+            if (!word.isEmpty()) {
+                out.add(word);
+            }
+        }
+        return out;
+    }
+
+    private void assertSameWords(String input) {
+        IList<String> expected = this.extractWithRegex(input);
+        IList<String> actual = WordTokenizer.extract(input);
+        assertEquals("Wrong number of words in \"" + input + "\"", expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals("Wrong words in \"" + input + "\"", expected.get(i), actual.get(i));
+        }
+    }
+
+    private void assertWords(String[] expected, IList<String> actual) {
+        assertEquals(expected.length, actual.size());
+        for (int i = 0; i < expected.length; i++) {
+            assertEquals(expected[i], actual.get(i));
+        }
+    }
+
+    @Test(timeout=SECOND)
+    public void testBasic() {
+        IList<String> words = WordTokenizer.extract("The Quick, brown fox's den -- isn't it?");
+        this.assertWords(new String[] {"the", "quick", "brown", "foxs", "den", "isnt", "it"}, words);
+    }
+
+    @Test(timeout=SECOND)
+    public void testEmptyAndBlank() {
+        this.assertSameWords("");
+        this.assertSameWords(" ");
+        this.assertSameWords(" \t\n\r\f\u000B ");
+        this.assertSameWords("... !!! ---");
+    }
+
+    @Test(timeout=SECOND)
+    public void testEdgeCases() {
+        this.assertSameWords("  leading and trailing  ");
+        this.assertSameWords("\ttabs\tand\nnewlines\r\n");
+        this.assertSameWords("a\u00A0b non-breaking space is not whitespace");
+        this.assertSameWords("control\u0001characters\u007Fstay");
+        this.assertSameWords("\u039F\u0394\u039F\u03A3 \u03A3\u038A\u03A3\u03A5\u03A6\u039F\u03A3 \u03A3.");
+        this.assertSameWords("\u0130STANBUL \u0130 \u0130i");
+        this.assertSameWords("Stra\u00DFe \u00C0\u00C9\u00CE \u00ABquoted\u00BB \u201Ccurly\u201D");
+        this.assertSameWords("emoji \uD83D\uDE00! and a lone \uD800 surrogate");
+        this.assertSameWords("a-very-long-hyphenated-word-that-is-longer-than-the-initial-buffer-for-sure");
+    }
+
+    @Test(timeout=SECOND)
+    public void testTurkishLocale() {
+        Locale original = Locale.getDefault();
+        try {
+            Locale.setDefault(new Locale("tr", "TR"));
+            this.assertSameWords("ISTANBUL Is It I\u0130\u0131");
+        } finally {
+            Locale.setDefault(original);
+        }
+    }
+
+    @Test(timeout=SECOND)
+    public void testForEachWord() {
+        IList<String> words = new DoubleLinkedList<>();
+        WordTokenizer.forEachWord("One two, THREE", (word, length) -> words.add(new String(word, 0, length)));
+        this.assertWords(new String[] {"one", "two", "three"}, words);
+    }
+
+    @Test(timeout=SECOND)
+    public void testExtractIds() {
+        WordInterner words = new WordInterner();
+        int[] ids = WordTokenizer.extractIds("the cat, THE dog", words);
+        assertEquals(4, ids.length);
+        assertEquals(0, ids[0]);
+        assertEquals(1, ids[1]);
+        assertEquals(0, ids[2]);
+        assertEquals(2, ids[3]);
+        assertEquals("dog", words.getWord(ids[3]));
+
+        // Ids carry over from one call to the next.
+        ids = WordTokenizer.extractIds("dog days", words);
+        assertEquals(2, ids[0]);
+        assertEquals(3, ids[1]);
+        assertEquals(0, WordTokenizer.extractIds(" ... ", words).length);
+    }
+
+    @Test(timeout=SECOND)
+    public void testExtractSharesRepeatedWords() {
+        String input = "The cat saw the other cat";
+        IList<String> words = WordTokenizer.extract(input, new WordInterner());
+        this.assertWords(new String[] {"the", "cat", "saw", "the", "other", "cat"}, words);
+        assertTrue(words.get(0) == words.get(3));
+        assertTrue(words.get(1) == words.get(5));
+    }
+
+    @Test(timeout=SECOND)
+    public void testMatchesRegexOnRandomInput() {
+        String alphabet = "aZ09 \t\n\r\f\u000B!\"#$%&'()*+,-./:;<=>?@[\\]^_`{|}~\u0001\u00A0\u00C0\u00DF\u03A3\u03C3\u0130\u0131\u2028\u3000\uD83D";
+        Random random = new Random(12);
+        for (int i = 0; i < 2000; i++) {
+            StringBuilder input = new StringBuilder();
+            int length = random.nextInt(40);
+            for (int j = 0; j < length; j++) {
+                input.append(alphabet.charAt(random.nextInt(alphabet.length())));
+            }
+            this.assertSameWords(input.toString());
+        }
+    }
+}